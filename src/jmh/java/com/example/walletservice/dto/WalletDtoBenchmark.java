@@ -0,0 +1,102 @@
+package com.example.walletservice.dto;
+
+import com.example.walletservice.domain.OperationType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор и валидация тела POST /api/v1/wallet и сериализация ответа — без HTTP и Spring-контекста.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WalletDtoBenchmark {
+
+    private static final UUID WALLET_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private static final byte[] REQUEST = """
+            {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"WITHDRAW","amount":1000.50}
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] REQUEST_ALIAS = """
+            {"valletId":"00000000-0000-0000-0000-000000000001","operationType":"WITHDRAW","amount":1000.50}
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private ObjectMapper objectMapper;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    private WalletOperationRequest validRequest;
+    private WalletOperationRequest invalidRequest;
+    private WalletBalanceResponse response;
+    private MinorUnitsBalanceResponse minorUnitsResponse;
+
+    @Setup
+    public void setUp() {
+        // те же настройки, что у ObjectMapper из JacksonAutoConfiguration
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+
+        validRequest = new WalletOperationRequest(WALLET_ID, OperationType.WITHDRAW, new BigDecimal("1000.50"));
+        // нарушает и @DecimalMin, и @Digits
+        invalidRequest = new WalletOperationRequest(WALLET_ID, OperationType.WITHDRAW, new BigDecimal("0.001"));
+        response = new WalletBalanceResponse(WALLET_ID, new BigDecimal("123456.78"));
+        minorUnitsResponse = new MinorUnitsBalanceResponse(WALLET_ID, 12_345_678L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public WalletOperationRequest deserializeRequest() throws IOException {
+        return objectMapper.readValue(REQUEST, WalletOperationRequest.class);
+    }
+
+    @Benchmark
+    public WalletOperationRequest deserializeRequestWithAlias() throws IOException {
+        return objectMapper.readValue(REQUEST_ALIAS, WalletOperationRequest.class);
+    }
+
+    @Benchmark
+    public MinorUnitsOperationRequest deserializeMinorUnitsRequest() throws IOException {
+        return objectMapper.readValue(REQUEST, MinorUnitsOperationRequest.class);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<WalletOperationRequest>> validateValidRequest() {
+        return validator.validate(validRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<WalletOperationRequest>> validateInvalidRequest() {
+        return validator.validate(invalidRequest);
+    }
+
+    @Benchmark
+    public byte[] serializeBalanceResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializeMinorUnitsBalanceResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(minorUnitsResponse);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.walletservice.error;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Путь ошибки INSUFFICIENT_FUNDS/WALLET_NOT_FOUND от исключения до байт тела ответа.
+ * {@code legacy*} — прежний путь: исключение со stack trace, {@link ApiErrorResponse} с Map и сериализация Jackson'ом.
+ * Как в сервисе: под обработчиком {@code stackDepth} кадров (Tomcat, фильтры, DispatcherServlet — порядка сотни),
+ * исключение бросается на {@value #UNWIND_FRAMES} кадров выше места, где его ловят. Заполнение stack trace обходит
+ * весь стек, поэтому его цена растёт с {@code stackDepth}, а раскрутка — нет.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ApiErrorBenchmark {
+
+    private static final UUID WALLET_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final int UNWIND_FRAMES = 10;
+
+    @Param({"10", "120"})
+    public int stackDepth;
+
+    private GlobalExceptionHandler handler;
+    private MockHttpServletRequest request;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        handler = new GlobalExceptionHandler(Duration.ofSeconds(1));
+        request = new MockHttpServletRequest("POST", "/api/v1/wallet");
+        // те же настройки, что у ObjectMapper из JacksonAutoConfiguration
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] legacyInsufficientFunds() {
+        return onStack(stackDepth, () -> {
+            try {
+                return throwAt(UNWIND_FRAMES, () -> new StackfulException("Insufficient funds for wallet: " + WALLET_ID, WALLET_ID));
+            } catch (StackfulException ex) {
+                try {
+                    return objectMapper.writeValueAsBytes(new ApiErrorResponse(
+                            "INSUFFICIENT_FUNDS",
+                            "Недостаточно средств",
+                            Instant.now(),
+                            request.getRequestURI(),
+                            Map.of("walletId", String.valueOf(ex.walletId))
+                    ));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    @Benchmark
+    public byte[] insufficientFunds() {
+        return onStack(stackDepth, () -> {
+            try {
+                return throwAt(UNWIND_FRAMES, () -> new InsufficientFundsException(WALLET_ID));
+            } catch (InsufficientFundsException ex) {
+                return handler.handleInsufficientFunds(ex, request).getBody().json();
+            }
+        });
+    }
+
+    @Benchmark
+    public byte[] walletNotFound() {
+        return onStack(stackDepth, () -> {
+            try {
+                return throwAt(UNWIND_FRAMES, () -> new WalletNotFoundException(WALLET_ID));
+            } catch (WalletNotFoundException ex) {
+                return handler.handleWalletNotFound(ex, request).getBody().json();
+            }
+        });
+    }
+
+    private static byte[] onStack(int depth, Supplier<byte[]> handler) {
+        if (depth == 0) {
+            return handler.get();
+        }
+        return onStack(depth - 1, handler);
+    }
+
+    private static byte[] throwAt(int depth, Supplier<? extends RuntimeException> error) {
+        if (depth == 0) {
+            throw error.get();
+        }
+        return throwAt(depth - 1, error);
+    }
+
+    /** Исключение в прежнем виде: сообщение собирается в конструкторе, stack trace заполняется. */
+    private static final class StackfulException extends RuntimeException {
+        private final UUID walletId;
+
+        StackfulException(String message, UUID walletId) {
+            super(message);
+            this.walletId = walletId;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.walletservice.service;
+
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.dto.WalletOperationRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Арифметика BigDecimal на пути записи: знак операции ({@link WalletService#toDelta}) и
+ * баланс + delta с проверкой знака, как в {@code WalletRepository#applyDeltas} (group commit).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WalletServiceBenchmark {
+
+    private static final UUID WALLET_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private WalletOperationRequest deposit;
+    private WalletOperationRequest withdraw;
+    private BigDecimal balance;
+
+    @Setup
+    public void setUp() {
+        deposit = new WalletOperationRequest(WALLET_ID, OperationType.DEPOSIT, new BigDecimal("1000.50"));
+        withdraw = new WalletOperationRequest(WALLET_ID, OperationType.WITHDRAW, new BigDecimal("1000.50"));
+        balance = new BigDecimal("123456.78");
+    }
+
+    @Benchmark
+    public BigDecimal depositDelta() {
+        return WalletService.toDelta(deposit);
+    }
+
+    @Benchmark
+    public BigDecimal withdrawDelta() {
+        return WalletService.toDelta(withdraw);
+    }
+
+    @Benchmark
+    public BigDecimal withdrawApplied() {
+        BigDecimal next = balance.add(WalletService.toDelta(withdraw));
+        return next.signum() < 0 ? balance : next;
+    }
+}
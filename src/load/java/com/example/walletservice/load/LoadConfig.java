@@ -0,0 +1,114 @@
+package com.example.walletservice.load;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Параметры прогона — системные свойства load.* (профиль load в pom.xml пробрасывает их из -D).
+ *
+ * @param jdbcUrl        БД для засева и проверки балансов; пусто — Postgres в Testcontainers
+ * @param baseUrl        уже запущенный сервис (той же БД); пусто — приложение поднимается в этой JVM
+ * @param appArgs        аргументы для приложения в этой JVM, например "--wallet.write.mode=coalescing"
+ * @param protocol       rest — POST /api/v1/wallet; grpc — унарный Operate; grpc-stream — OperateStream по одному вызову
+ * @param grpcTarget     host:port gRPC уже запущенного сервиса (с load.base-url и протоколом grpc*)
+ * @param zipfExponent   перекос по кошелькам: 0 — равномерно, 1 — классический Zipf, больше — горячее
+ * @param withdrawRatio  доля списаний среди операций
+ * @param insufficientRate доля заведомо неисполнимых списаний (сумма больше любого баланса)
+ */
+record LoadConfig(
+        String jdbcUrl,
+        String jdbcUser,
+        String jdbcPassword,
+        String baseUrl,
+        String appArgs,
+        String protocol,
+        String grpcTarget,
+        int wallets,
+        double zipfExponent,
+        double withdrawRatio,
+        double insufficientRate,
+        BigDecimal amountMax,
+        BigDecimal initialBalance,
+        int concurrency,
+        Duration warmup,
+        Duration duration,
+        String output,
+        String version
+) {
+
+    static LoadConfig fromSystemProperties() {
+        LoadConfig config = new LoadConfig(
+                prop("load.jdbc-url", ""),
+                prop("load.jdbc-user", "wallet"),
+                prop("load.jdbc-password", "wallet"),
+                prop("load.base-url", ""),
+                prop("load.app-args", ""),
+                prop("load.protocol", "rest"),
+                prop("load.grpc-target", ""),
+                Integer.parseInt(prop("load.wallets", "1000")),
+                Double.parseDouble(prop("load.zipf", "1.0")),
+                Double.parseDouble(prop("load.withdraw-ratio", "0.5")),
+                Double.parseDouble(prop("load.insufficient-rate", "0.01")),
+                new BigDecimal(prop("load.amount-max", "100.00")),
+                new BigDecimal(prop("load.initial-balance", "1000000.00")),
+                Integer.parseInt(prop("load.concurrency", "64")),
+                Duration.parse(prop("load.warmup", "PT5S")),
+                Duration.parse(prop("load.duration", "PT30S")),
+                prop("load.output", "target/load-result.json"),
+                prop("load.version", "unknown")
+        );
+        config.validate();
+        return config;
+    }
+
+    private void validate() {
+        require(wallets > 0, "load.wallets должно быть больше 0");
+        require(zipfExponent >= 0, "load.zipf не может быть отрицательным");
+        require(withdrawRatio >= 0 && withdrawRatio <= 1, "load.withdraw-ratio — от 0 до 1");
+        require(insufficientRate >= 0 && insufficientRate <= withdrawRatio,
+                "load.insufficient-rate — от 0 до load.withdraw-ratio (это часть списаний)");
+        require(amountMax.signum() > 0 && amountMax.scale() <= 2, "load.amount-max — больше 0, до 2 знаков после запятой");
+        require(initialBalance.signum() >= 0 && initialBalance.scale() <= 2, "load.initial-balance — от 0, до 2 знаков после запятой");
+        require(concurrency > 0, "load.concurrency должно быть больше 0");
+        require(!duration.isNegative() && !duration.isZero(), "load.duration должно быть больше 0");
+        require(baseUrl.isEmpty() || !jdbcUrl.isEmpty(), "с load.base-url нужен load.jdbc-url той же БД");
+        require(List.of("rest", "grpc", "grpc-stream").contains(protocol), "load.protocol — rest, grpc или grpc-stream");
+        require(baseUrl.isEmpty() || !isGrpc() || !grpcTarget.isEmpty(), "с load.base-url и gRPC нужен load.grpc-target");
+    }
+
+    boolean isGrpc() {
+        return protocol.startsWith("grpc");
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("target", baseUrl.isEmpty() ? "in-process" : baseUrl);
+        m.put("database", jdbcUrl.isEmpty() ? "testcontainers" : "jdbc");
+        m.put("appArgs", appArgs);
+        m.put("protocol", protocol);
+        m.put("wallets", wallets);
+        m.put("zipfExponent", zipfExponent);
+        m.put("withdrawRatio", withdrawRatio);
+        m.put("insufficientRate", insufficientRate);
+        m.put("amountMax", amountMax);
+        m.put("initialBalance", initialBalance);
+        m.put("concurrency", concurrency);
+        m.put("warmup", warmup.toString());
+        m.put("duration", duration.toString());
+        return m;
+    }
+
+    private static String prop(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return (value == null || value.isBlank()) ? defaultValue : value.trim();
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.walletservice.load;
+
+import com.example.walletservice.grpc.v1.OperateRequest;
+import com.example.walletservice.grpc.v1.OperateResponse;
+import com.example.walletservice.grpc.v1.OperationType;
+import com.example.walletservice.grpc.v1.WalletApiGrpc;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Одна операция по выбранному протоколу (load.protocol). Исход — UPDATED, INSUFFICIENT_FUNDS или код ошибки
+ * ("HTTP 503", "RESOURCE_EXHAUSTED"), при которой операция точно не применена. IOException — исход неизвестен
+ * (таймаут, обрыв): такие операции исключаются из клиентского учёта баланса.
+ */
+interface OperationClient extends AutoCloseable {
+
+    String UPDATED = "UPDATED";
+    String INSUFFICIENT_FUNDS = "INSUFFICIENT_FUNDS";
+
+    String operate(UUID walletId, boolean withdraw, String amount) throws IOException, InterruptedException;
+
+    @Override
+    default void close() throws InterruptedException {
+    }
+
+    static OperationClient create(LoadConfig config, String baseUrl, String grpcTarget, Duration timeout) {
+        return switch (config.protocol()) {
+            case "grpc" -> new GrpcUnary(channel(grpcTarget), timeout);
+            case "grpc-stream" -> new GrpcStream(channel(grpcTarget), timeout);
+            default -> new Rest(baseUrl, timeout);
+        };
+    }
+
+    private static ManagedChannel channel(String target) {
+        return Grpc.newChannelBuilder(target, InsecureChannelCredentials.create()).build();
+    }
+
+    /** Исход вызова gRPC, завершившегося ошибкой; null — операция могла примениться. */
+    private static String failure(Status status) {
+        return switch (status.getCode()) {
+            case UNAVAILABLE, DEADLINE_EXCEEDED, CANCELLED, UNKNOWN, INTERNAL -> null;
+            default -> status.getCode().name();
+        };
+    }
+
+    /** POST /api/v1/wallet, HTTP/1.1 — как у внешних клиентов. */
+    final class Rest implements OperationClient {
+
+        private final HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        private final URI operateUri;
+        private final Duration timeout;
+
+        Rest(String baseUrl, Duration timeout) {
+            this.operateUri = URI.create(baseUrl + "/api/v1/wallet");
+            this.timeout = timeout;
+        }
+
+        @Override
+        public String operate(UUID walletId, boolean withdraw, String amount) throws IOException, InterruptedException {
+            HttpRequest request = HttpRequest.newBuilder(operateUri)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"walletId\":\"" + walletId
+                            + "\",\"operationType\":\"" + (withdraw ? "WITHDRAW" : "DEPOSIT")
+                            + "\",\"amount\":" + amount + "}"))
+                    .build();
+            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return switch (status) {
+                case 200 -> UPDATED;
+                case 409 -> INSUFFICIENT_FUNDS;
+                default -> "HTTP " + status;
+            };
+        }
+    }
+
+    /** Унарный Operate: каждый вызов — отдельный HTTP/2-поток в общем соединении. */
+    final class GrpcUnary implements OperationClient {
+
+        private final ManagedChannel channel;
+        private final WalletApiGrpc.WalletApiBlockingStub stub;
+        private final Duration timeout;
+
+        GrpcUnary(ManagedChannel channel, Duration timeout) {
+            this.channel = channel;
+            this.stub = WalletApiGrpc.newBlockingStub(channel);
+            this.timeout = timeout;
+        }
+
+        @Override
+        public String operate(UUID walletId, boolean withdraw, String amount) throws IOException {
+            try {
+                return stub.withDeadlineAfter(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                        .operate(request(walletId, withdraw, amount, 0))
+                        .getStatus().name();
+            } catch (StatusRuntimeException e) {
+                String outcome = failure(e.getStatus());
+                if (outcome == null) {
+                    throw new IOException(e);
+                }
+                return outcome;
+            }
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Один вызов OperateStream на всех: потоки нагрузки отправляют запросы в общий конвейер и ждут свой ответ
+     * по request_id. В полёте — load.concurrency операций.
+     */
+    final class GrpcStream implements OperationClient {
+
+        private final ManagedChannel channel;
+        private final StreamObserver<OperateRequest> requests;
+        private final Map<Long, CompletableFuture<OperateResponse>> pending = new ConcurrentHashMap<>();
+        private final AtomicLong nextId = new AtomicLong();
+        private final Duration timeout;
+        private volatile Throwable broken;
+
+        GrpcStream(ManagedChannel channel, Duration timeout) {
+            this.channel = channel;
+            this.timeout = timeout;
+            this.requests = WalletApiGrpc.newStub(channel).operateStream(new StreamObserver<>() {
+                @Override
+                public void onNext(OperateResponse response) {
+                    CompletableFuture<OperateResponse> future = pending.remove(response.getRequestId());
+                    if (future != null) {
+                        future.complete(response);
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    broken = t;
+                    pending.values().forEach(f -> f.completeExceptionally(t));
+                }
+
+                @Override
+                public void onCompleted() {
+                    onError(new IOException("stream completed"));
+                }
+            });
+        }
+
+        @Override
+        public String operate(UUID walletId, boolean withdraw, String amount) throws IOException, InterruptedException {
+            if (broken != null) {
+                throw new IOException(broken);
+            }
+            long id = nextId.incrementAndGet();
+            CompletableFuture<OperateResponse> future = new CompletableFuture<>();
+            pending.put(id, future);
+            // StreamObserver не потокобезопасен
+            synchronized (requests) {
+                requests.onNext(request(walletId, withdraw, amount, id));
+            }
+            try {
+                return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS).getStatus().name();
+            } catch (ExecutionException | TimeoutException e) {
+                pending.remove(id);
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            synchronized (requests) {
+                requests.onCompleted();
+            }
+            channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+            channel.shutdownNow();
+        }
+    }
+
+    private static OperateRequest request(UUID walletId, boolean withdraw, String amount, long requestId) {
+        return OperateRequest.newBuilder()
+                .setWalletId(walletId.toString())
+                .setOperationType(withdraw ? OperationType.WITHDRAW : OperationType.DEPOSIT)
+                .setAmount(amount)
+                .setRequestId(requestId)
+                .build();
+    }
+}
@@ -0,0 +1,418 @@
+package com.example.walletservice.load;
+
+import com.example.walletservice.WalletServiceApplication;
+import com.example.walletservice.grpc.WalletGrpcServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.lang.management.ManagementFactory;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный прогон операций по кошелькам (load.protocol: POST /api/v1/wallet, gRPC Operate или OperateStream):
+ * закрытый цикл из load.concurrency виртуальных потоков,
+ * кошельки выбираются по Zipf (горячие ключи), смесь пополнений и списаний с заданной долей
+ * заведомо неисполнимых списаний.
+ *
+ * Результат — пропускная способность, p50/p99/p999 латентности (HdrHistogram, только после разогрева),
+ * CPU процесса на операцию, исходы по кодам ответа и проверка сохранения баланса: сумма балансов после прогона должна равняться
+ * исходной плюс нетто успешных (200) операций, а нетто журнала wallet_transactions за прогон — тому же нетто.
+ * Пишется в load.output (JSON); при нарушении баланса процесс завершается с кодом 2.
+ *
+ * Запуск: ./mvnw -Pload test-compile exec:exec -Dload.zipf=1.2 -Dload.concurrency=128 -Dload.duration=PT60S
+ */
+public final class WalletLoadRunner {
+
+    /** Префикс UUID кошельков прогона ("LOAD"), чтобы не пересекаться с рабочими данными. */
+    private static final long WALLET_ID_PREFIX = 0x4c4f4144_00000000L;
+
+    /** Больше любого баланса прогона, но в пределах @Digits(17, 2) и long в копейках. */
+    private static final String UNPAYABLE_AMOUNT = "9999999999999999.99";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadConfig config;
+    private final UUID[] walletIds;
+    private final ZipfSampler sampler;
+    private final OperationClient client;
+    private final long amountMaxCents;
+
+    private final Recorder latency = new Recorder(3);
+    private final LongAdder updated = new LongAdder();
+    private final LongAdder insufficient = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Map<String, LongAdder> otherOutcomes = new ConcurrentHashMap<>();
+
+    /** Нетто успешных операций в копейках — за весь прогон, включая разогрев. */
+    private final LongAdder netCents = new LongAdder();
+    /** Запросы без ответа (таймаут, обрыв): их исход на сервере неизвестен. */
+    private final LongAdder unknownOutcomes = new LongAdder();
+
+    private volatile boolean measuring;
+
+    private WalletLoadRunner(LoadConfig config, OperationClient client) {
+        this.config = config;
+        this.walletIds = new UUID[config.wallets()];
+        for (int i = 0; i < walletIds.length; i++) {
+            walletIds[i] = new UUID(WALLET_ID_PREFIX, i);
+        }
+        this.sampler = new ZipfSampler(config.wallets(), config.zipfExponent());
+        this.client = client;
+        this.amountMaxCents = config.amountMax().movePointRight(2).longValueExact();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.fromSystemProperties();
+
+        PostgreSQLContainer<?> postgres = null;
+        ConfigurableApplicationContext app = null;
+        try {
+            String jdbcUrl = config.jdbcUrl();
+            String user = config.jdbcUser();
+            String password = config.jdbcPassword();
+            if (jdbcUrl.isEmpty()) {
+                postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+                        .withDatabaseName("wallet")
+                        .withUsername("wallet")
+                        .withPassword("wallet");
+                postgres.start();
+                jdbcUrl = postgres.getJdbcUrl();
+                user = postgres.getUsername();
+                password = postgres.getPassword();
+            }
+
+            String baseUrl = config.baseUrl();
+            String grpcTarget = config.grpcTarget();
+            if (baseUrl.isEmpty()) {
+                // аргументы командной строки, а не properties(): те имеют низший приоритет и проиграли бы ${DB_URL:...}
+                List<String> appArgs = new ArrayList<>(List.of(
+                        "--spring.datasource.url=" + jdbcUrl,
+                        "--spring.datasource.username=" + user,
+                        "--spring.datasource.password=" + password,
+                        "--server.port=0"
+                ));
+                if (config.isGrpc()) {
+                    appArgs.addAll(List.of("--wallet.grpc.enabled=true", "--wallet.grpc.port=0"));
+                }
+                if (!config.appArgs().isEmpty()) {
+                    appArgs.addAll(List.of(config.appArgs().split("\\s+")));
+                }
+                app = new SpringApplicationBuilder(WalletServiceApplication.class).run(appArgs.toArray(String[]::new));
+                baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+                if (config.isGrpc()) {
+                    grpcTarget = "localhost:" + app.getBean(WalletGrpcServer.class).getPort();
+                }
+            }
+
+            Map<String, Object> result;
+            try (Connection db = DriverManager.getConnection(jdbcUrl, user, password);
+                 OperationClient client = OperationClient.create(config, baseUrl, grpcTarget, REQUEST_TIMEOUT)) {
+                result = new WalletLoadRunner(config, client).run(db);
+            }
+
+            File output = new File(config.output());
+            if (output.getParentFile() != null) {
+                output.getParentFile().mkdirs();
+            }
+            ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+            mapper.writeValue(output, result);
+            System.out.println(mapper.writeValueAsString(result));
+            System.out.println("Результат: " + output.getAbsolutePath());
+
+            @SuppressWarnings("unchecked")
+            var conservation = (Map<String, Object>) result.get("balanceConservation");
+            if (!Boolean.TRUE.equals(conservation.get("ok"))) {
+                System.err.println("Нарушено сохранение баланса");
+                System.exit(2);
+            }
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+    }
+
+    private Map<String, Object> run(Connection db) throws Exception {
+        boolean minorUnits = isMinorUnits(db);
+        seed(db, minorUnits);
+        BigDecimal initialTotal = totalBalance(db, minorUnits);
+        Timestamp runStart = dbNow(db);
+
+        long warmupNanos = config.warmup().toNanos();
+        long durationNanos = config.duration().toNanos();
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long deadline = measureStart + durationNanos;
+
+        List<Future<?>> workers = new ArrayList<>(config.concurrency());
+        long cpuStart;
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.concurrency(); i++) {
+                workers.add(pool.submit(() -> work(deadline)));
+            }
+            sleepUntil(measureStart);
+            latency.reset();
+            cpuStart = processCpuNanos();
+            measuring = true;
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        long measuredNanos = System.nanoTime() - measureStart;
+        long cpuNanos = processCpuNanos() - cpuStart;
+        Histogram histogram = latency.getIntervalHistogram();
+
+        BigDecimal finalTotal = totalBalance(db, minorUnits);
+        BigDecimal ledgerNet = ledgerNet(db, minorUnits, runStart);
+        long negative = negativeBalances(db);
+
+        BigDecimal clientNet = BigDecimal.valueOf(netCents.sum(), 2);
+        long unknown = unknownOutcomes.sum();
+        BigDecimal actualNet = finalTotal.subtract(initialTotal);
+        // без неизвестных исходов клиентский учёт точен; иначе проверяем только журнал против балансов
+        boolean ok = negative == 0
+                && actualNet.compareTo(ledgerNet) == 0
+                && (unknown > 0 || actualNet.compareTo(clientNet) == 0);
+
+        long completed = updated.sum() + insufficient.sum() + failed.sum();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("version", config.version());
+        result.put("timestamp", Instant.now().toString());
+        result.put("javaVersion", Runtime.version().toString());
+        result.put("config", config.toMap());
+        result.put("hottestWalletShare", round(sampler.hottestShare()));
+
+        Map<String, Object> throughput = new LinkedHashMap<>();
+        throughput.put("requests", completed);
+        throughput.put("seconds", round(measuredNanos / 1e9));
+        throughput.put("requestsPerSecond", round(completed / (measuredNanos / 1e9)));
+        result.put("throughput", throughput);
+
+        Map<String, Object> latencyMs = new LinkedHashMap<>();
+        latencyMs.put("p50", millis(histogram.getValueAtPercentile(50)));
+        latencyMs.put("p90", millis(histogram.getValueAtPercentile(90)));
+        latencyMs.put("p99", millis(histogram.getValueAtPercentile(99)));
+        latencyMs.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+        latencyMs.put("max", millis(histogram.getMaxValue()));
+        latencyMs.put("mean", round(histogram.getMean() / 1e6));
+        result.put("latencyMs", latencyMs);
+
+        // вся JVM: в режиме in-process это сервис вместе с клиентом нагрузки
+        Map<String, Object> cpu = new LinkedHashMap<>();
+        cpu.put("processCpuSeconds", round(cpuNanos / 1e9));
+        cpu.put("cores", round((double) cpuNanos / measuredNanos));
+        cpu.put("microsPerOperation", completed == 0 ? 0 : round(cpuNanos / 1e3 / completed));
+        result.put("cpu", cpu);
+
+        Map<String, Object> outcomes = new LinkedHashMap<>();
+        outcomes.put("UPDATED", updated.sum());
+        outcomes.put("INSUFFICIENT_FUNDS", insufficient.sum());
+        outcomes.put("insufficientFundsRate", completed == 0 ? 0 : round((double) insufficient.sum() / completed));
+        outcomes.put("failed", failed.sum());
+        Map<String, Long> other = new LinkedHashMap<>();
+        otherOutcomes.forEach((outcome, count) -> other.put(outcome, count.sum()));
+        outcomes.put("other", other);
+        result.put("outcomes", outcomes);
+
+        Map<String, Object> conservation = new LinkedHashMap<>();
+        conservation.put("initialTotal", initialTotal);
+        conservation.put("finalTotal", finalTotal);
+        conservation.put("clientNet", clientNet);
+        conservation.put("ledgerNet", ledgerNet);
+        conservation.put("unknownOutcomes", unknown);
+        conservation.put("negativeBalances", negative);
+        conservation.put("ok", ok);
+        result.put("balanceConservation", conservation);
+        return result;
+    }
+
+    private void work(long deadline) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            UUID walletId = walletIds[sampler.next()];
+            double r = rnd.nextDouble();
+
+            boolean withdraw = r < config.withdrawRatio();
+            boolean unpayable = r < config.insufficientRate();
+            long cents = 1 + rnd.nextLong(amountMaxCents);
+            String amount = unpayable ? UNPAYABLE_AMOUNT : toDecimal(cents);
+
+            long t0 = System.nanoTime();
+            String outcome;
+            try {
+                outcome = client.operate(walletId, withdraw, amount);
+            } catch (IOException e) {
+                unknownOutcomes.increment();
+                count(failed);
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long elapsed = System.nanoTime() - t0;
+
+            if (OperationClient.UPDATED.equals(outcome)) {
+                netCents.add(withdraw ? -cents : cents);
+            }
+            if (!measuring) {
+                continue;
+            }
+            latency.recordValue(elapsed);
+            switch (outcome) {
+                case OperationClient.UPDATED -> updated.increment();
+                case OperationClient.INSUFFICIENT_FUNDS -> insufficient.increment();
+                default -> {
+                    failed.increment();
+                    otherOutcomes.computeIfAbsent(outcome, o -> new LongAdder()).increment();
+                }
+            }
+        }
+    }
+
+    private void count(LongAdder counter) {
+        if (measuring) {
+            counter.increment();
+        }
+    }
+
+    private void seed(Connection db, boolean minorUnits) throws SQLException {
+        BigDecimal initial = minorUnits ? config.initialBalance().movePointRight(2) : config.initialBalance();
+        try (PreparedStatement ps = db.prepareStatement("""
+                INSERT INTO wallets(id, balance)
+                SELECT id, ? FROM unnest(?::uuid[]) AS t(id)
+                ON CONFLICT (id) DO UPDATE SET balance = EXCLUDED.balance
+                """)) {
+            ps.setBigDecimal(1, initial);
+            ps.setArray(2, ids(db));
+            ps.executeUpdate();
+        }
+    }
+
+    /** Баланс с учётом слотов wallet_slots — как WalletRepository.findBalance. */
+    private BigDecimal totalBalance(Connection db, boolean minorUnits) throws SQLException {
+        return money(queryDecimal(db, """
+                SELECT COALESCE(sum(w.balance), 0)
+                     + COALESCE((SELECT sum(s.balance) FROM wallet_slots s WHERE s.wallet_id = ANY(?)), 0)
+                FROM wallets w
+                WHERE w.id = ANY(?)
+                """, ids(db), ids(db)), minorUnits);
+    }
+
+    private BigDecimal ledgerNet(Connection db, boolean minorUnits, Timestamp since) throws SQLException {
+        try (PreparedStatement ps = db.prepareStatement("""
+                SELECT COALESCE(sum(delta), 0)
+                FROM wallet_transactions
+                WHERE wallet_id = ANY(?) AND created_at >= ?
+                """)) {
+            ps.setArray(1, ids(db));
+            ps.setTimestamp(2, since);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return money(rs.getBigDecimal(1), minorUnits);
+            }
+        }
+    }
+
+    private long negativeBalances(Connection db) throws SQLException {
+        try (PreparedStatement ps = db.prepareStatement("SELECT count(*) FROM wallets WHERE id = ANY(?) AND balance < 0")) {
+            ps.setArray(1, ids(db));
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static boolean isMinorUnits(Connection db) throws SQLException {
+        try (PreparedStatement ps = db.prepareStatement("""
+                SELECT data_type FROM information_schema.columns
+                WHERE table_schema = current_schema() AND table_name = 'wallets' AND column_name = 'balance'
+                """);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() && "bigint".equals(rs.getString(1));
+        }
+    }
+
+    private static Timestamp dbNow(Connection db) throws SQLException {
+        try (PreparedStatement ps = db.prepareStatement("SELECT now()");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    private static BigDecimal queryDecimal(Connection db, String sql, Array... params) throws SQLException {
+        try (PreparedStatement ps = db.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setArray(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getBigDecimal(1);
+            }
+        }
+    }
+
+    private Array ids(Connection db) throws SQLException {
+        return db.createArrayOf("uuid", walletIds);
+    }
+
+    private static BigDecimal money(BigDecimal value, boolean minorUnits) {
+        return (minorUnits ? value.movePointLeft(2) : value).setScale(2);
+    }
+
+    private static String toDecimal(long cents) {
+        long fraction = cents % 100;
+        return (cents / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            Thread.sleep(Duration.ofNanos(remaining));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
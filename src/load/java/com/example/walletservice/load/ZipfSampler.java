@@ -0,0 +1,37 @@
+package com.example.walletservice.load;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Номер кошелька с вероятностью, пропорциональной 1 / (rank + 1)^s: кошелёк 0 — самый горячий.
+ * Распределение считается один раз (CDF), выборка — двоичный поиск, без блокировок между потоками.
+ */
+final class ZipfSampler {
+
+    private final double[] cdf;
+
+    ZipfSampler(int n, double exponent) {
+        cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        cdf[n - 1] = 1.0;
+    }
+
+    int next() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        int i = Arrays.binarySearch(cdf, u);
+        return (i >= 0) ? i : Math.min(-i - 1, cdf.length - 1);
+    }
+
+    /** Доля операций, приходящихся на самый горячий кошелёк. */
+    double hottestShare() {
+        return cdf[0];
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.walletservice;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * Spring AOT (профиль fast-startup) вычисляет условия @ConditionalOn* при сборке, и набор бинов в образе от настроек
+ * запуска уже не зависит. Поэтому переключатели режимов из этих условий записываются при сборке в
+ * {@value #RESOURCE}, а при запуске с -Dspring.aot.enabled=true сверяются с окружением: образ, собранный без gRPC,
+ * с WALLET_GRPC_ENABLED=true не запустится, а не будет молча работать без него.
+ *
+ * Новое условие на бине приложения — новая строка в {@link #SWITCHES}.
+ */
+public class AotBuildConditions implements BeanFactoryInitializationAotProcessor, EnvironmentPostProcessor {
+
+    static final String RESOURCE = "META-INF/wallet-aot-build.properties";
+
+    private static final Map<String, Function<Environment, String>> SWITCHES = new LinkedHashMap<>();
+
+    static {
+        SWITCHES.put("spring.main.web-application-type", env -> value(env, "spring.main.web-application-type", "servlet"));
+        SWITCHES.put("spring.threads.virtual.enabled", env -> flag(env, "spring.threads.virtual.enabled", false));
+        SWITCHES.put("spring.liquibase.enabled", env -> flag(env, "spring.liquibase.enabled", true));
+        SWITCHES.put("wallet.write.mode", env -> value(env, "wallet.write.mode", "direct"));
+        SWITCHES.put("wallet.money.minor-units", env -> flag(env, "wallet.money.minor-units", false));
+        SWITCHES.put("wallet.cluster.enabled", env -> flag(env, "wallet.cluster.enabled", false));
+        SWITCHES.put("wallet.grpc.enabled", env -> flag(env, "wallet.grpc.enabled", false));
+        SWITCHES.put("wallet.events.listen-notify", env -> flag(env, "wallet.events.listen-notify", false));
+        SWITCHES.put("wallet.shedding.enabled", env -> flag(env, "wallet.shedding.enabled", true));
+        // ReplicaDataSources зависит только от того, задан ли список
+        SWITCHES.put("wallet.replicas.urls",
+                env -> env.getProperty("wallet.replicas.urls", "").isBlank() ? "empty" : "set");
+    }
+
+    @Override
+    public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+        Properties build = snapshot(beanFactory.getBean(Environment.class));
+        return (generationContext, code) -> {
+            StringWriter out = new StringWriter();
+            try {
+                build.store(out, null);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            generationContext.getGeneratedFiles().addResourceFile(RESOURCE, out.toString());
+        };
+    }
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!AotDetector.useGeneratedArtifacts()) {
+            return;
+        }
+        Properties build = new Properties();
+        try (InputStream in = application.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                return;
+            }
+            build.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Properties current = snapshot(environment);
+        List<String> mismatches = new ArrayList<>();
+        for (String name : SWITCHES.keySet()) {
+            if (!current.getProperty(name).equals(build.getProperty(name, current.getProperty(name)))) {
+                mismatches.add(name + ": при сборке " + build.getProperty(name) + ", сейчас " + current.getProperty(name));
+            }
+        }
+        if (!mismatches.isEmpty()) {
+            throw new IllegalStateException("Сборка Spring AOT сделана для других режимов " + mismatches
+                    + " — пересоберите образ с этими значениями или запустите без -Dspring.aot.enabled=true");
+        }
+    }
+
+    private static Properties snapshot(Environment env) {
+        Properties values = new Properties();
+        SWITCHES.forEach((name, read) -> values.setProperty(name, read.apply(env)));
+        return values;
+    }
+
+    private static String value(Environment env, String name, String defaultValue) {
+        return env.getProperty(name, defaultValue).trim().toLowerCase();
+    }
+
+    private static String flag(Environment env, String name, boolean defaultValue) {
+        return String.valueOf(env.getProperty(name, Boolean.class, defaultValue));
+    }
+}
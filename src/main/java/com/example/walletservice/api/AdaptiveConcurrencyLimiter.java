@@ -0,0 +1,80 @@
+package com.example.walletservice.api;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Адаптивный предел одновременных запросов (AIMD по латентности).
+ *
+ * - запрос быстрее latencyThreshold при загруженном пределе (занято не меньше половины) — предел растёт
+ *   на 1 / limit, т.е. примерно на 1 за «окно» из limit запросов;
+ * - запрос медленнее порога или завершившийся 5xx (таймаут пула, ошибка БД) — предел умножается на backoffRatio.
+ *
+ * Сверх предела запрос отклоняется сразу, без очереди: при деградации БД время ответа остаётся малым,
+ * а предел сжимается до числа запросов, которые БД успевает обслужить.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private double limit;
+    private volatile int effectiveLimit;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold,
+                                      double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Ожидается 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoff-ratio должен быть в (0, 1)");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = initialLimit;
+        this.effectiveLimit = initialLimit;
+    }
+
+    /**
+     * @return false — предел исчерпан, запрос нужно отклонить; true — после обработки обязателен {@link #release}
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= effectiveLimit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param dropped запрос завершился перегрузкой (5xx) — сигнал к снижению независимо от латентности
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (dropped || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlightBefore * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            effectiveLimit = (int) limit;
+        }
+    }
+
+    public int getLimit() {
+        return effectiveLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.walletservice.api;
+
+import com.example.walletservice.dto.WalletBalanceResponse;
+import com.example.walletservice.error.WalletNotFoundException;
+import com.example.walletservice.events.BalanceEventBus;
+import com.example.walletservice.events.BalanceListener;
+import com.example.walletservice.persistence.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * SSE-поток баланса поверх {@link BalanceEventBus}: событие {@code balance} с телом как у
+ * GET /api/v1/wallets/{walletId}. Соединение живёт wallet.events.timeout, затем закрывается —
+ * EventSource переподключится и первым событием получит текущий баланс, так что пропусков нет.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BalanceEventStreams {
+
+    private final BalanceEventBus bus;
+    private final WalletRepository repo;
+    private final long timeoutMillis;
+
+    public BalanceEventStreams(
+            BalanceEventBus bus,
+            WalletRepository repo,
+            @Value("${wallet.events.timeout:30m}") Duration timeout
+    ) {
+        this.bus = bus;
+        this.repo = repo;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    public SseEmitter open(UUID walletId) {
+        if (repo.findBalance(walletId).isEmpty()) {
+            throw new WalletNotFoundException(walletId);
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        BalanceEventBus.Subscription subscription = bus.subscribe(walletId, new BalanceListener() {
+            @Override
+            public void onBalance(UUID id, BigDecimal balance) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .name("balance")
+                        .data(new WalletBalanceResponse(id, balance), MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void onHeartbeat() throws IOException {
+                emitter.send(SseEmitter.event().comment(""));
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.walletservice.api;
+
+import com.example.walletservice.cluster.ClusterWalletService;
+import com.example.walletservice.cluster.OwnerForwarder;
+import com.example.walletservice.dto.WalletBalanceResponse;
+import com.example.walletservice.dto.WalletBalancesRequest;
+import com.example.walletservice.dto.WalletBalancesResponse;
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.error.IdempotencyKeyNotSupportedException;
+import com.example.walletservice.error.OwnerUnavailableException;
+import com.example.walletservice.service.WalletService;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+/**
+ * Контракт {@link WalletController} в кластерном режиме (wallet.cluster.enabled=true): операция выполняется
+ * на узле-владельце кошелька, остальные узлы пересылают её туда. Чтение баланса — из БД на любом узле
+ * (владелец записывает операцию до ответа). Batch и Idempotency-Key в этом режиме не поддерживаются.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "wallet.cluster.enabled", havingValue = "true")
+@RequestMapping("/api/v1")
+public class ClusterWalletController {
+
+    private final ClusterWalletService cluster;
+    private final OwnerForwarder forwarder;
+    private final WalletService service;
+    private final BalanceEventStreams events;
+
+    public ClusterWalletController(ClusterWalletService cluster, OwnerForwarder forwarder, WalletService service,
+                                   BalanceEventStreams events) {
+        this.cluster = cluster;
+        this.forwarder = forwarder;
+        this.service = service;
+        this.events = events;
+    }
+
+    @PostMapping("/wallet")
+    public ResponseEntity<?> operate(
+            @Valid @RequestBody WalletOperationRequest request,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestHeader(name = OwnerForwarder.FORWARDED_BY, required = false) String forwardedBy
+    ) {
+        if (idempotencyKey != null) {
+            throw new IdempotencyKeyNotSupportedException();
+        }
+
+        var route = cluster.route(request.walletId());
+        if (!route.local()) {
+            if (!forwarder.canForward(forwardedBy, route.owner())) {
+                throw new OwnerUnavailableException(request.walletId(), route.owner(), route.url());
+            }
+            return forwarder.forward(request, route.owner(), route.url(), forwardedBy);
+        }
+
+        try {
+            return ResponseEntity.ok(cluster.operate(request));
+        } catch (OwnerUnavailableException e) {
+            // корзину только что забрал другой узел; операция не записана — пересылаем новому владельцу
+            if (e.getOwnerUrl() == null || !forwarder.canForward(forwardedBy, e.getOwner())) {
+                throw e;
+            }
+            return forwarder.forward(request, e.getOwner(), e.getOwnerUrl(), forwardedBy);
+        }
+    }
+
+    /**
+     * Балансы нескольких кошельков за один запрос; ненайденные id — в missing, а не 404.
+     */
+    @PostMapping("/wallets/balances")
+    public WalletBalancesResponse getBalances(@Valid @RequestBody WalletBalancesRequest request) {
+        return service.getBalances(request.walletIds());
+    }
+
+    @GetMapping("/wallets/{walletId}")
+    public WalletBalanceResponse getBalance(@PathVariable UUID walletId) {
+        return service.getBalance(walletId);
+    }
+
+    /**
+     * Server-Sent Events: событие balance с текущим балансом сразу после подписки и с новым после каждой записи —
+     * вместо периодического опроса GET /wallets/{walletId}. Записи на других узлах приходят
+     * при wallet.events.listen-notify=true.
+     */
+    @GetMapping(path = "/wallets/{walletId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter balanceEvents(@PathVariable UUID walletId) {
+        return events.open(walletId);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.walletservice.api;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class LoadSheddingConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<LoadSheddingInterceptor> loadShedding;
+
+    public LoadSheddingConfig(ObjectProvider<LoadSheddingInterceptor> loadShedding) {
+        this.loadShedding = loadShedding;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // бина нет при wallet.shedding.enabled=false; импорт, выгрузка и SSE-подписки долгие по природе
+        // и не должны сжимать пределы
+        loadShedding.ifAvailable(interceptor -> registry.addInterceptor(interceptor)
+                .addPathPatterns("/api/v1/**")
+                .excludePathPatterns("/api/v1/wallets/import", "/api/v1/wallets/export", "/api/v1/wallets/*/events"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.walletservice.api;
+
+import com.example.walletservice.error.ServiceOverloadedException;
+import com.example.walletservice.service.WriteQueueWait;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * Сброс нагрузки перед контроллерами /api/v1: отдельные {@link AdaptiveConcurrencyLimiter} для записей (POST)
+ * и чтений (GET и POST {@value #BALANCES_PATH}). Сверх предела — {@link ServiceOverloadedException} (503 + Retry-After) из preHandle,
+ * до разбора тела и обращения к БД.
+ *
+ * Метрики: wallet.shedding.limit{operation}, wallet.shedding.in.flight{operation}, wallet.shedding.rejected{operation}.
+ * Регистрируется для /api/v1/** в {@link LoadSheddingConfig}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "wallet.shedding.enabled", havingValue = "true", matchIfMissing = true)
+public class LoadSheddingInterceptor implements HandlerInterceptor {
+
+    private static final String BALANCES_PATH = "/api/v1/wallets/balances";
+    private static final String STARTED_AT = LoadSheddingInterceptor.class.getName() + ".startedAt";
+    private static final String LIMITER = LoadSheddingInterceptor.class.getName() + ".limiter";
+
+    private final Limiter write;
+    private final Limiter read;
+    private final long retryAfterSeconds;
+
+    public LoadSheddingInterceptor(Environment env, MeterRegistry registry) {
+        this.write = new Limiter("write", limiter(env, "write"), registry);
+        this.read = new Limiter("read", limiter(env, "read"), registry);
+        Duration retryAfter = env.getRequiredProperty("wallet.shedding.retry-after", Duration.class);
+        this.retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(Environment env, String operation) {
+        String prefix = "wallet.shedding." + operation + ".";
+        return new AdaptiveConcurrencyLimiter(
+                env.getRequiredProperty(prefix + "initial-limit", Integer.class),
+                env.getRequiredProperty(prefix + "min-limit", Integer.class),
+                env.getRequiredProperty(prefix + "max-limit", Integer.class),
+                env.getRequiredProperty(prefix + "latency-threshold", Duration.class),
+                env.getRequiredProperty("wallet.shedding.backoff-ratio", Double.class)
+        );
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        boolean isRead = HttpMethod.GET.matches(request.getMethod()) || BALANCES_PATH.equals(request.getRequestURI());
+        Limiter limiter = isRead ? read : write;
+        if (!limiter.limiter.tryAcquire()) {
+            limiter.rejected.increment();
+            throw new ServiceOverloadedException(limiter.operation, retryAfterSeconds);
+        }
+        request.setAttribute(LIMITER, limiter);
+        request.setAttribute(STARTED_AT, System.nanoTime());
+        WriteQueueWait.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(LIMITER) instanceof Limiter limiter && request.getAttribute(STARTED_AT) instanceof Long startedAt) {
+            boolean dropped = ex != null || response.getStatus() >= 500;
+            // ожидание в очереди кошелька (wallet.write.mode=serialized) — не латентность БД
+            long latency = System.nanoTime() - startedAt - WriteQueueWait.take();
+            limiter.limiter.release(latency, dropped);
+        }
+    }
+
+    public AdaptiveConcurrencyLimiter writeLimiter() {
+        return write.limiter;
+    }
+
+    public AdaptiveConcurrencyLimiter readLimiter() {
+        return read.limiter;
+    }
+
+    private static final class Limiter {
+        final String operation;
+        final AdaptiveConcurrencyLimiter limiter;
+        final Counter rejected;
+
+        Limiter(String operation, AdaptiveConcurrencyLimiter limiter, MeterRegistry registry) {
+            this.operation = operation;
+            this.limiter = limiter;
+            Gauge.builder("wallet.shedding.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Текущий адаптивный предел одновременных запросов")
+                    .tag("operation", operation)
+                    .register(registry);
+            Gauge.builder("wallet.shedding.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .description("Запросы в обработке")
+                    .tag("operation", operation)
+                    .register(registry);
+            this.rejected = Counter.builder("wallet.shedding.rejected")
+                    .description("Запросы, отклонённые сверх предела (503)")
+                    .tag("operation", operation)
+                    .register(registry);
+        }
+    }
+}
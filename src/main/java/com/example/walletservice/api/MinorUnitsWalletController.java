@@ -0,0 +1,48 @@
+package com.example.walletservice.api;
+
+import com.example.walletservice.dto.MinorUnitsBalanceResponse;
+import com.example.walletservice.dto.MinorUnitsOperationRequest;
+import com.example.walletservice.error.IdempotencyKeyNotSupportedException;
+import com.example.walletservice.service.MinorUnitsWalletService;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+/**
+ * Тот же контракт, что у {@link WalletController}, с суммами в копейках (wallet.money.minor-units=true).
+ * Batch и Idempotency-Key в этом режиме не поддерживаются.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "wallet.money.minor-units", havingValue = "true")
+@RequestMapping("/api/v1")
+public class MinorUnitsWalletController {
+
+    private final MinorUnitsWalletService service;
+
+    public MinorUnitsWalletController(MinorUnitsWalletService service) {
+        this.service = service;
+    }
+
+    /**
+     * Idempotency-Key отклоняется явно: молча проигнорированный ключ превратил бы повтор клиента в двойное списание.
+     */
+    @PostMapping("/wallet")
+    public MinorUnitsBalanceResponse operate(
+            @Valid @RequestBody MinorUnitsOperationRequest request,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
+        if (idempotencyKey != null) {
+            throw new IdempotencyKeyNotSupportedException();
+        }
+        return service.operate(request);
+    }
+
+    @GetMapping("/wallets/{walletId}")
+    public MinorUnitsBalanceResponse getBalance(@PathVariable UUID walletId) {
+        return service.getBalance(walletId);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.walletservice.api;
+
+import com.example.walletservice.dto.WalletBalanceResponse;
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.service.ReactiveWalletService;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Тот же контракт, что у {@link WalletController}, на WebFlux + R2DBC.
+ * Активен при spring.main.web-application-type=reactive.
+ */
+@RestController
+@RequestMapping("/api/v1")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWalletController {
+
+    private final ReactiveWalletService service;
+
+    public ReactiveWalletController(ReactiveWalletService service) {
+        this.service = service;
+    }
+
+    @PostMapping("/wallet")
+    public Mono<WalletBalanceResponse> operate(@Valid @RequestBody WalletOperationRequest request) {
+        return service.operate(request);
+    }
+
+    @GetMapping("/wallets/{walletId}")
+    public Mono<WalletBalanceResponse> getBalance(@PathVariable UUID walletId) {
+        return service.getBalance(walletId);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.walletservice.api;
+
+import com.example.walletservice.persistence.ReadConsistency;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Заголовки read-your-writes для чтений через реплики ({@link ReadConsistency}):
+ * - {@value #CONSISTENCY}: primary — читать только с primary;
+ * - {@value #MIN_LSN}: значение {@value WriteLsnAdvice#LSN} из ответа на запись — реплика должна его воспроизвести.
+ *
+ * Некорректный LSN не отклоняет запрос, а читает с primary: результат заведомо не устаревший.
+ */
+public class ReadConsistencyInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String CONSISTENCY = "X-Wallet-Read-Consistency";
+    public static final String MIN_LSN = "X-Wallet-Min-Lsn";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReadConsistency.reset();
+        String lsn = request.getHeader(MIN_LSN);
+        if ("primary".equalsIgnoreCase(request.getHeader(CONSISTENCY))) {
+            ReadConsistency.pinPrimary();
+        } else if (lsn != null) {
+            try {
+                ReadConsistency.requireLsn(ReadConsistency.parseLsn(lsn.trim()));
+            } catch (IllegalArgumentException e) {
+                ReadConsistency.pinPrimary();
+            }
+        }
+        return true;
+    }
+
+    /** SSE-подписка: обработчик вернул управление, а afterCompletion будет вызван уже в другом потоке. */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReadConsistency.reset();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReadConsistency.reset();
+    }
+}
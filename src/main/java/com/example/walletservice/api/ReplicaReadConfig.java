@@ -0,0 +1,25 @@
+package com.example.walletservice.api;
+
+import com.example.walletservice.persistence.ReplicaDataSources;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ReplicaReadConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<ReplicaDataSources> replicas;
+
+    public ReplicaReadConfig(ObjectProvider<ReplicaDataSources> replicas) {
+        this.replicas = replicas;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // бина нет, если wallet.replicas.urls пуст
+        replicas.ifAvailable(r -> registry.addInterceptor(new ReadConsistencyInterceptor()).addPathPatterns("/api/v1/**"));
+    }
+}
@@ -1,30 +1,92 @@
 package com.example.walletservice.api;
 
 import com.example.walletservice.dto.WalletBalanceResponse;
+import com.example.walletservice.dto.WalletBalancesRequest;
+import com.example.walletservice.dto.WalletBalancesResponse;
+import com.example.walletservice.dto.WalletBatchItemResponse;
 import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.dto.WalletTransferRequest;
+import com.example.walletservice.dto.WalletTransferResponse;
 import com.example.walletservice.service.WalletService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.List;
 import java.util.UUID;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = {"wallet.money.minor-units", "wallet.cluster.enabled"}, havingValue = "false", matchIfMissing = true)
 @RequestMapping("/api/v1")
 public class WalletController {
 
     private final WalletService service;
+    private final BalanceEventStreams events;
 
-    public WalletController(WalletService service) {
+    public WalletController(WalletService service, BalanceEventStreams events) {
         this.service = service;
+        this.events = events;
     }
 
+    /**
+     * Idempotency-Key (необязательный): повтор с тем же ключом возвращает первый результат
+     * и не применяет операцию ещё раз.
+     */
     @PostMapping("/wallet")
-    public WalletBalanceResponse operate(@Valid @RequestBody WalletOperationRequest request) {
-        return service.operate(request);
+    public WalletBalanceResponse operate(
+            @Valid @RequestBody WalletOperationRequest request,
+            @RequestHeader(name = "Idempotency-Key", required = false)
+            @Size(min = 1, max = 255, message = "Idempotency-Key: от 1 до 255 символов") String idempotencyKey
+    ) {
+        return service.operate(request, idempotencyKey);
+    }
+
+    /**
+     * Пакет операций за один HTTP-запрос и один SQL round-trip.
+     * Ответ — результат по каждому элементу в том же порядке; ошибки отдельных элементов
+     * (WALLET_NOT_FOUND / INSUFFICIENT_FUNDS) не прерывают пакет.
+     */
+    @PostMapping("/wallet/batch")
+    public List<WalletBatchItemResponse> operateBatch(
+            @RequestBody List<@NotNull(message = "элемент пакета не может быть null") @Valid WalletOperationRequest> requests
+    ) {
+        return service.operateBatch(requests);
+    }
+
+    /**
+     * Атомарный перевод: списание и зачисление в одной транзакции. Ошибки — как у /wallet:
+     * WALLET_NOT_FOUND (details.walletId — ненайденный кошелёк) и INSUFFICIENT_FUNDS (по fromWalletId).
+     */
+    @PostMapping("/transfer")
+    public WalletTransferResponse transfer(@Valid @RequestBody WalletTransferRequest request) {
+        return service.transfer(request);
+    }
+
+    /**
+     * Балансы нескольких кошельков за один запрос; ненайденные id — в missing, а не 404.
+     */
+    @PostMapping("/wallets/balances")
+    public WalletBalancesResponse getBalances(@Valid @RequestBody WalletBalancesRequest request) {
+        return service.getBalances(request.walletIds());
     }
 
     @GetMapping("/wallets/{walletId}")
     public WalletBalanceResponse getBalance(@PathVariable UUID walletId) {
         return service.getBalance(walletId);
     }
+
+    /**
+     * Server-Sent Events: событие balance с текущим балансом сразу после подписки и с новым после каждой записи —
+     * вместо периодического опроса GET /wallets/{walletId}.
+     */
+    @GetMapping(path = "/wallets/{walletId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter balanceEvents(@PathVariable UUID walletId) {
+        return events.open(walletId);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.example.walletservice.api;
+
+import com.example.walletservice.service.WalletExportService;
+import com.example.walletservice.service.WalletExportService.Format;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Pattern;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Выгрузка балансов всех кошельков. Ответ пишется в поток синхронно, по мере чтения из БД
+ * (без StreamingResponseBody — на выгрузку в десятки миллионов строк не действует таймаут async-запроса).
+ * Ошибка после начала записи обрывает ответ: клиент видит усечённый файл (у gzip — без корректного окончания).
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/v1/wallets/export")
+public class WalletExportController {
+
+    private final WalletExportService service;
+
+    public WalletExportController(WalletExportService service) {
+        this.service = service;
+    }
+
+    /**
+     * @param format     ndjson (по умолчанию) или csv
+     * @param consistent true — снимок на момент начала (одна транзакция REPEATABLE READ)
+     */
+    @GetMapping
+    public void export(
+            @RequestParam(defaultValue = "ndjson")
+            @Pattern(regexp = "ndjson|csv", message = "format: ndjson или csv") String format,
+            @RequestParam(defaultValue = "false") boolean consistent,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response
+    ) throws IOException {
+        Format f = "csv".equals(format) ? Format.CSV : Format.NDJSON;
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        response.setContentType(f == Format.CSV ? "text/csv;charset=UTF-8" : "application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"wallets." + (f == Format.CSV ? "csv" : "ndjson") + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 64 * 1024) : response.getOutputStream();
+        service.export(f, consistent, out);
+        out.close();
+    }
+}
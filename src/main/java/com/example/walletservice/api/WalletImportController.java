@@ -0,0 +1,41 @@
+package com.example.walletservice.api;
+
+import com.example.walletservice.dto.WalletImportResponse;
+import com.example.walletservice.persistence.WalletImportRepository.Format;
+import com.example.walletservice.service.WalletImportService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+
+/**
+ * Массовое создание кошельков. Тело читается потоком (InputStream, без @RequestBody) и сразу уходит в COPY,
+ * поэтому размер загрузки не ограничен памятью. Запрос атомарен: при ошибке в любой строке не создаётся ничего.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/v1/wallets/import")
+public class WalletImportController {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final WalletImportService service;
+
+    public WalletImportController(WalletImportService service) {
+        this.service = service;
+    }
+
+    /** Первая строка — заголовок id,balance. */
+    @PostMapping(consumes = "text/csv")
+    public WalletImportResponse importCsv(InputStream body) {
+        return service.importWallets(Format.CSV, body);
+    }
+
+    /** По объекту {"id": "...", "balance": 100.00} на строку. */
+    @PostMapping(consumes = NDJSON)
+    public WalletImportResponse importNdjson(InputStream body) {
+        return service.importWallets(Format.NDJSON, body);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.walletservice.api;
+
+import com.example.walletservice.dto.WalletBalancesResponse;
+import com.example.walletservice.persistence.ReplicaDataSources;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * При включённых репликах успешный ответ на запись {@link WalletController} несёт {@value #LSN} — позицию WAL
+ * на primary после фиксации. Клиент передаёт её в {@value ReadConsistencyInterceptor#MIN_LSN}, чтобы следующее
+ * чтение увидело эту запись. Стоимость — один лёгкий запрос к primary на запись и только при репликах.
+ */
+@RestControllerAdvice(assignableTypes = WalletController.class)
+public class WriteLsnAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String LSN = "X-Wallet-Lsn";
+
+    private final ObjectProvider<ReplicaDataSources> replicas;
+
+    public WriteLsnAdvice(ObjectProvider<ReplicaDataSources> replicas) {
+        this.replicas = replicas;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        // POST /wallets/balances — чтение
+        return returnType.hasMethodAnnotation(PostMapping.class)
+                && returnType.getParameterType() != WalletBalancesResponse.class;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        ReplicaDataSources r = replicas.getIfAvailable();
+        if (r != null) {
+            response.getHeaders().set(LSN, r.primaryLsn());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.walletservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process кэш балансов для GET /api/v1/wallets/{walletId}.
+ *
+ * Заполняется на чтении и обновляется write-through результатом applyDelta.
+ * Режимы (wallet.cache.mode):
+ * - off — кэш выключен;
+ * - local — один инстанс: записи живут wallet.cache.ttl;
+ * - multi-instance — записи других инстансов сюда не попадают, поэтому TTL короткий
+ *   (wallet.cache.multi-instance-ttl) и ограничивает устаревание.
+ *
+ * Гонки чтение/запись: значение кладётся в кэш, только если на его «полосе» не было
+ * конкурентных записей ни в момент начала операции, ни до момента put. Иначе запись
+ * инвалидируется, и следующее чтение пойдёт в БД. Проверка и put выполняются атомарно
+ * через {@code asMap().compute}, поэтому устаревшее значение не может перезаписать свежее.
+ *
+ * Метрики hit/miss/eviction публикуются через Micrometer (cache.gets, cache.evictions; cache=wallet.balance).
+ */
+@Component
+public class BalanceCache {
+
+    /** Токен операции, результат которой класть в кэш нельзя. */
+    private static final long DIRTY = -1;
+
+    private static final int STRIPES = 4096;
+
+    private final Cache<UUID, BigDecimal> cache;
+
+    // Счётчики начатых и завершённых записей по полосам (hash(walletId) % STRIPES)
+    private final AtomicLongArray started = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray finished = new AtomicLongArray(STRIPES);
+
+    public BalanceCache(
+            @Value("${wallet.cache.mode:off}") String mode,
+            @Value("${wallet.cache.max-size:100000}") long maxSize,
+            @Value("${wallet.cache.ttl:5m}") Duration ttl,
+            @Value("${wallet.cache.multi-instance-ttl:1s}") Duration multiInstanceTtl,
+            MeterRegistry meterRegistry
+    ) {
+        this.cache = switch (mode) {
+            case "off" -> null;
+            case "local" -> build(maxSize, ttl);
+            case "multi-instance" -> build(maxSize, multiInstanceTtl);
+            default -> throw new IllegalArgumentException(
+                    "wallet.cache.mode: ожидается off | local | multi-instance, получено " + mode);
+        };
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "wallet.balance");
+        }
+    }
+
+    private static Cache<UUID, BigDecimal> build(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return баланс из кэша или null при промахе
+     */
+    public BigDecimal get(UUID walletId) {
+        return cache == null ? null : cache.getIfPresent(walletId);
+    }
+
+    public long beginRead(UUID walletId) {
+        if (cache == null) {
+            return DIRTY;
+        }
+        int stripe = stripe(walletId);
+        long s = started.get(stripe);
+        return s == finished.get(stripe) ? s : DIRTY;
+    }
+
+    public void endRead(UUID walletId, long token, BigDecimal balance) {
+        if (cache == null) {
+            return;
+        }
+        int stripe = stripe(walletId);
+        cache.asMap().compute(walletId, (id, current) ->
+                (token != DIRTY && started.get(stripe) == token) ? balance : current);
+    }
+
+    public long beginWrite(UUID walletId) {
+        if (cache == null) {
+            return DIRTY;
+        }
+        int stripe = stripe(walletId);
+        long s = started.incrementAndGet(stripe);
+        // «чистая» запись — все ранее начатые записи полосы уже завершены
+        return finished.get(stripe) == s - 1 ? s : DIRTY;
+    }
+
+    /**
+     * @param balance новый баланс после успешной операции; null — баланс неизвестен
+     *                (ошибка или результат, который нельзя считать точным), запись инвалидируется
+     */
+    public void endWrite(UUID walletId, long token, BigDecimal balance) {
+        if (cache == null) {
+            return;
+        }
+        int stripe = stripe(walletId);
+        try {
+            cache.asMap().compute(walletId, (id, current) ->
+                    (balance != null && token != DIRTY && started.get(stripe) == token) ? balance : null);
+        } finally {
+            finished.incrementAndGet(stripe);
+        }
+    }
+
+    /**
+     * Операция не изменила баланс (WALLET_NOT_FOUND / INSUFFICIENT_FUNDS): кэш не трогаем.
+     */
+    public void endWriteUnchanged(UUID walletId) {
+        if (cache == null) {
+            return;
+        }
+        finished.incrementAndGet(stripe(walletId));
+    }
+
+    private static int stripe(UUID walletId) {
+        int h = walletId.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+}
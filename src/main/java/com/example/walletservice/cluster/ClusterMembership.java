@@ -0,0 +1,90 @@
+package com.example.walletservice.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Статический список узлов кластера (wallet.cluster.members = "node-a=http://host-a:8080,node-b=http://host-b:8080").
+ *
+ * При добавлении или удалении узла список меняется на всех узлах вместе с увеличением
+ * wallet.cluster.membership-version: узел с новой версией забирает свои корзины, а узлы, ещё работающие
+ * со старым списком, не могут отобрать их обратно (см. {@code ClusterBucketRepository#claim}).
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.cluster.enabled", havingValue = "true")
+public class ClusterMembership {
+
+    private final String selfId;
+    private final long version;
+    private final Map<String, URI> members;
+    private final ConsistentHashRing ring;
+
+    public ClusterMembership(
+            @Value("${wallet.cluster.node-id}") String selfId,
+            @Value("${wallet.cluster.members}") String members,
+            @Value("${wallet.cluster.membership-version:1}") long version,
+            @Value("${wallet.cluster.virtual-nodes:128}") int virtualNodes,
+            @Value("${wallet.cluster.buckets:1024}") int buckets,
+            @Value("${wallet.money.minor-units:false}") boolean minorUnits,
+            @Value("${wallet.cache.mode:off}") String cacheMode,
+            @Value("${wallet.striping.wallet-ids:}") Set<UUID> stripedWalletIds
+    ) {
+        if (minorUnits) {
+            throw new IllegalStateException("кластерный режим не поддерживает wallet.money.minor-units=true");
+        }
+        if ("local".equals(cacheMode)) {
+            // запись на владельце не обновляет кэши остальных узлов, а TTL режима local их не ограничивает
+            throw new IllegalStateException("кластерный режим не поддерживает wallet.cache.mode=local: off или multi-instance");
+        }
+        if (!stripedWalletIds.isEmpty()) {
+            // владелец держит баланс одним числом и пишет через apply_delta, которая слотов не видит
+            throw new IllegalStateException("кластерный режим не поддерживает wallet.striping.wallet-ids");
+        }
+        this.selfId = selfId;
+        this.version = version;
+        this.members = parse(members);
+        if (!this.members.containsKey(selfId)) {
+            throw new IllegalStateException("wallet.cluster.node-id=" + selfId + " отсутствует в wallet.cluster.members");
+        }
+        this.ring = new ConsistentHashRing(this.members.keySet(), virtualNodes, buckets);
+    }
+
+    private static Map<String, URI> parse(String members) {
+        Map<String, URI> result = new LinkedHashMap<>();
+        for (String member : members.split(",")) {
+            String[] parts = member.trim().split("=", 2);
+            if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                throw new IllegalStateException("wallet.cluster.members: ожидается id=url, получено '" + member + "'");
+            }
+            result.put(parts[0].trim(), URI.create(parts[1].trim()));
+        }
+        return result;
+    }
+
+    public String selfId() {
+        return selfId;
+    }
+
+    public URI selfUrl() {
+        return members.get(selfId);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public ConsistentHashRing ring() {
+        return ring;
+    }
+
+    public URI urlOf(String nodeId) {
+        return members.get(nodeId);
+    }
+}
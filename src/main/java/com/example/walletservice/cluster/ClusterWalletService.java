@@ -0,0 +1,198 @@
+package com.example.walletservice.cluster;
+
+import com.example.walletservice.cache.BalanceCache;
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.dto.WalletBalanceResponse;
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.error.InsufficientFundsException;
+import com.example.walletservice.error.OwnerUnavailableException;
+import com.example.walletservice.error.WalletNotFoundException;
+import com.example.walletservice.events.BalanceEventBus;
+import com.example.walletservice.metrics.WalletMetrics;
+import com.example.walletservice.persistence.ClusterBucketRepository;
+import com.example.walletservice.persistence.WalletRepository;
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Кластерный режим: единственный писатель на кошелёк.
+ *
+ * Каждый узел владеет корзинами кошельков, которые ему отводит {@link ConsistentHashRing}. Владелец держит
+ * баланс кошелька в памяти как авторитетный: недостаток средств определяется без обращения к БД, а успешная
+ * операция записывается через {@link WalletRepository#applyDelta} (с журналом, как обычно).
+ *
+ * Fencing: корзина захватывается в cluster_buckets при первой операции (новый epoch), и каждая запись в той же
+ * транзакции проверяет, что epoch не изменился. Если корзину забрал другой узел, запись не выполняется,
+ * корзина помечается потерянной, и дальше запросы по её кошелькам пересылаются новому владельцу.
+ * Баланс в памяти привязан к epoch, поэтому после повторного захвата он перечитывается из БД.
+ *
+ * Запись обновляет {@link BalanceCache} владельца так же, как {@code WalletService.operate}; кэши остальных узлов
+ * она не видит, поэтому режим кэша local здесь запрещён ({@link ClusterMembership}).
+ */
+@Service
+@ConditionalOnProperty(name = "wallet.cluster.enabled", havingValue = "true")
+public class ClusterWalletService {
+
+    /** Куда направить операцию по кошельку. */
+    public record Route(String owner, URI url, boolean local) {
+    }
+
+    /** Захваченная корзина (lostTo == null) или потерянная — с новым владельцем. */
+    private record Lease(long epoch, String lostTo, URI lostToUrl) {
+    }
+
+    private static final class WalletState {
+        final ReentrantLock lock = new ReentrantLock();
+        long epoch;
+        BigDecimal balance;
+    }
+
+    private final ClusterMembership membership;
+    private final ClusterBucketRepository buckets;
+    private final WalletRepository repo;
+    private final BalanceCache cache;
+    private final TransactionTemplate tx;
+    private final WalletMetrics metrics;
+    private final BalanceEventBus events;
+
+    private final AtomicReferenceArray<Lease> leases;
+    private final ReentrantLock claimLock = new ReentrantLock();
+    private final ConcurrentHashMap<UUID, WalletState> states = new ConcurrentHashMap<>();
+
+    public ClusterWalletService(
+            ClusterMembership membership,
+            ClusterBucketRepository buckets,
+            WalletRepository repo,
+            BalanceCache cache,
+            TransactionTemplate tx,
+            WalletMetrics metrics,
+            BalanceEventBus events
+    ) {
+        this.membership = membership;
+        this.buckets = buckets;
+        this.repo = repo;
+        this.cache = cache;
+        this.tx = tx;
+        this.metrics = metrics;
+        this.events = events;
+        this.leases = new AtomicReferenceArray<>(membership.ring().bucketCount());
+    }
+
+    public Route route(UUID walletId) {
+        int bucket = membership.ring().bucketOf(walletId);
+        Lease lease = leases.get(bucket);
+        if (lease != null && lease.lostTo() != null) {
+            return new Route(lease.lostTo(), lease.lostToUrl(), false);
+        }
+        String owner = membership.ring().ownerOf(bucket);
+        return new Route(owner, membership.urlOf(owner), owner.equals(membership.selfId()));
+    }
+
+    /**
+     * Операция на узле-владельце.
+     *
+     * @throws OwnerUnavailableException корзину кошелька захватил другой узел — ничего не записано
+     */
+    public WalletBalanceResponse operate(WalletOperationRequest req) {
+        UUID id = req.walletId();
+        BigDecimal delta = (req.operationType() == OperationType.DEPOSIT) ? req.amount() : req.amount().negate();
+        int bucket = membership.ring().bucketOf(id);
+
+        ApplyDeltaResult result = null;
+        long start = System.nanoTime();
+        long cacheToken = cache.beginWrite(id);
+        try {
+            long epoch = lease(bucket, id);
+            WalletState state = states.computeIfAbsent(id, k -> new WalletState());
+            state.lock.lock();
+            try {
+                result = tx.execute(status -> applyFenced(bucket, epoch, id, delta, state));
+            } finally {
+                state.lock.unlock();
+            }
+        } finally {
+            if (result != null && result.status() != WalletRepository.ApplyDeltaStatus.UPDATED) {
+                cache.endWriteUnchanged(id);
+            } else {
+                cache.endWrite(id, cacheToken, result == null ? null : result.balance());
+            }
+            metrics.recordOperation(req.operationType(), result == null ? null : result.status(), System.nanoTime() - start);
+        }
+
+        if (result.status() == WalletRepository.ApplyDeltaStatus.UPDATED) {
+            // подписчики на других узлах получат изменение через wallet.events.listen-notify
+            events.walletChanged(id);
+        }
+        return switch (result.status()) {
+            case UPDATED -> new WalletBalanceResponse(id, result.balance());
+            case WALLET_NOT_FOUND -> throw new WalletNotFoundException(id);
+            case INSUFFICIENT_FUNDS -> throw new InsufficientFundsException(id);
+        };
+    }
+
+    private ApplyDeltaResult applyFenced(int bucket, long epoch, UUID id, BigDecimal delta, WalletState state) {
+        if (!buckets.isHeldBy(bucket, membership.selfId(), epoch)) {
+            throw lose(bucket, id);
+        }
+
+        if (state.balance == null || state.epoch != epoch) {
+            // первая операция после захвата корзины: все записи прежнего владельца уже зафиксированы
+            var balance = repo.findBalance(id);
+            if (balance.isEmpty()) {
+                return ApplyDeltaResult.walletNotFound();
+            }
+            state.balance = balance.get();
+            state.epoch = epoch;
+        }
+
+        if (state.balance.add(delta).signum() < 0) {
+            return ApplyDeltaResult.insufficientFunds();
+        }
+
+        ApplyDeltaResult result = repo.applyDelta(id, delta);
+        // расхождение с БД (запись в обход владельца) — перечитать при следующей операции
+        state.balance = (result.status() == WalletRepository.ApplyDeltaStatus.UPDATED) ? result.balance() : null;
+        return result;
+    }
+
+    private long lease(int bucket, UUID walletId) {
+        Lease lease = leases.get(bucket);
+        if (lease == null) {
+            claimLock.lock();
+            try {
+                lease = leases.get(bucket);
+                if (lease == null) {
+                    var epoch = buckets.claim(bucket, membership.selfId(), membership.selfUrl().toString(), membership.version());
+                    if (epoch.isEmpty()) {
+                        throw lose(bucket, walletId);
+                    }
+                    lease = new Lease(epoch.getAsLong(), null, null);
+                    leases.set(bucket, lease);
+                }
+            } finally {
+                claimLock.unlock();
+            }
+        }
+        if (lease.lostTo() != null) {
+            throw new OwnerUnavailableException(walletId, lease.lostTo(), lease.lostToUrl());
+        }
+        return lease.epoch();
+    }
+
+    private OwnerUnavailableException lose(int bucket, UUID walletId) {
+        var owner = buckets.findOwner(bucket);
+        String lostTo = owner.map(ClusterBucketRepository.BucketOwner::owner).orElse(null);
+        URI lostToUrl = owner.map(o -> URI.create(o.ownerUrl())).orElse(null);
+        leases.set(bucket, new Lease(0, lostTo, lostToUrl));
+        return new OwnerUnavailableException(walletId, lostTo, lostToUrl);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.walletservice.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Кошелёк → корзина (фиксированное число, одинаковое на всех узлах) → узел на кольце с виртуальными узлами.
+ *
+ * Корзина — единица владения и fencing: при добавлении или удалении узла переезжают только корзины,
+ * попавшие на дугу этого узла (~1/N), остальные остаются у прежних владельцев.
+ */
+public final class ConsistentHashRing {
+
+    private final int buckets;
+    private final String[] owners;
+
+    public ConsistentHashRing(Collection<String> nodeIds, int virtualNodes, int buckets) {
+        if (nodeIds.isEmpty() || virtualNodes < 1 || buckets < 1) {
+            throw new IllegalArgumentException("Кольцо: нужен хотя бы один узел, virtual-nodes >= 1, buckets >= 1");
+        }
+        TreeMap<Long, String> ring = new TreeMap<>();
+        for (String node : List.copyOf(nodeIds)) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+        this.buckets = buckets;
+        this.owners = new String[buckets];
+        for (int b = 0; b < buckets; b++) {
+            Map.Entry<Long, String> e = ring.ceilingEntry(hash("bucket#" + b));
+            owners[b] = (e != null ? e : ring.firstEntry()).getValue();
+        }
+    }
+
+    public int bucketOf(UUID walletId) {
+        long h = mix(walletId.getMostSignificantBits() ^ mix(walletId.getLeastSignificantBits()));
+        return (int) Math.floorMod(h, (long) buckets);
+    }
+
+    public int bucketCount() {
+        return buckets;
+    }
+
+    public String ownerOf(int bucket) {
+        return owners[bucket];
+    }
+
+    public String ownerOf(UUID walletId) {
+        return owners[bucketOf(walletId)];
+    }
+
+    /** FNV-1a 64 + перемешивание: стабильно между JVM и версиями (в отличие от String.hashCode и HashMap). */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /** Финализатор MurmurHash3 (fmix64). */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
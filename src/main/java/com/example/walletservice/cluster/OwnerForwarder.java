@@ -0,0 +1,112 @@
+package com.example.walletservice.cluster;
+
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.error.OwnerOutcomeUnknownException;
+import com.example.walletservice.error.OwnerUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Пересылка POST /api/v1/wallet узлу-владельцу. Ответ владельца (статус, тело, Retry-After) возвращается
+ * клиенту как есть. В заголовке {@link #FORWARDED_BY} накапливается цепочка узлов, через которые прошёл запрос
+ * (узел со старым списком -> прежний владелец -> новый владелец); в узел из цепочки запрос повторно не пересылается,
+ * поэтому при расхождении конфигураций узлов он не ходит по кругу.
+ *
+ * Сбой пересылки: если соединение с владельцем не установлено, запрос до него не дошёл — 503 OWNER_UNAVAILABLE,
+ * повтор безопасен. Если запрос отправлен, а ответа нет (таймаут чтения, обрыв), владелец мог его применить —
+ * {@link OwnerOutcomeUnknownException}, повторять вслепую нельзя.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.cluster.enabled", havingValue = "true")
+public class OwnerForwarder {
+
+    public static final String FORWARDED_BY = "X-Wallet-Forwarded-By";
+
+    private final RestClient client;
+    private final String selfId;
+    private final Counter forwarded;
+    private final Counter failed;
+
+    public OwnerForwarder(
+            RestClient.Builder builder,
+            ClusterMembership membership,
+            MeterRegistry registry,
+            @Value("${wallet.cluster.forward-timeout:2s}") Duration timeout
+    ) {
+        var factory = new JdkClientHttpRequestFactory(HttpClient.newBuilder().connectTimeout(timeout).build());
+        factory.setReadTimeout(timeout);
+        this.client = builder.requestFactory(factory).build();
+        this.selfId = membership.selfId();
+        this.forwarded = Counter.builder("wallet.cluster.forwarded")
+                .description("Операции, пересланные узлу-владельцу")
+                .register(registry);
+        this.failed = Counter.builder("wallet.cluster.forward.failures")
+                .description("Пересылки, на которые владелец не ответил")
+                .register(registry);
+    }
+
+    /** Можно ли переслать запрос владельцу owner, не образуя петли. */
+    public boolean canForward(String forwardedBy, String owner) {
+        if (owner == null) {
+            return false;
+        }
+        if (forwardedBy == null) {
+            return true;
+        }
+        var chain = List.of(forwardedBy.split(","));
+        return !chain.contains(owner) && !chain.contains(selfId);
+    }
+
+    public ResponseEntity<byte[]> forward(WalletOperationRequest req, String owner, URI ownerUrl, String forwardedBy) {
+        forwarded.increment();
+        try {
+            return client.post()
+                    .uri(ownerUrl.toString().replaceAll("/+$", "") + "/api/v1/wallet")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(FORWARDED_BY, forwardedBy == null ? selfId : forwardedBy + "," + selfId)
+                    .body(req)
+                    .exchange((request, response) -> {
+                        HttpHeaders headers = new HttpHeaders();
+                        headers.setContentType(response.getHeaders().getContentType());
+                        String retryAfter = response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+                        if (retryAfter != null) {
+                            headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+                        }
+                        return ResponseEntity.status(response.getStatusCode())
+                                .headers(headers)
+                                .body(response.getBody().readAllBytes());
+                    });
+        } catch (RestClientException e) {
+            failed.increment();
+            if (notConnected(e)) {
+                throw new OwnerUnavailableException(req.walletId(), owner, null);
+            }
+            throw new OwnerOutcomeUnknownException(req.walletId(), owner);
+        }
+    }
+
+    private static boolean notConnected(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.walletservice.dto;
+
+import com.example.walletservice.error.AmountConstraintException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Суммы в копейках (long) при wallet.money.minor-units=true.
+ *
+ * На проводе формат прежний — десятичное число с двумя знаками ("1000.50"): десериализатор разбирает
+ * символы числа сразу в long, без BigDecimal, и проверяет те же правила, что
+ * {@code @Digits(integer = 17, fraction = 2)} у {@link WalletOperationRequest#amount()}.
+ * 17 целых разрядов в копейках (до 10^19 - 1) не помещаются в long, поэтому переполнение
+ * проверяется явно и отклоняется как ошибка валидации.
+ */
+public final class MinorUnits {
+
+    /** Знаков после запятой на проводе. */
+    public static final int SCALE = 2;
+
+    private static final int MAX_INTEGER_DIGITS = 17;
+
+    /** Те же тексты, что у ограничений {@link WalletOperationRequest#amount()}. */
+    private static final String DIGITS_MESSAGE = "amount: максимум 2 знака после запятой";
+    private static final String RANGE_MESSAGE = "amount: значение вне допустимого диапазона";
+
+    /** ".00" … ".99": дробная часть дописывается к целой без промежуточного буфера. */
+    private static final String[] FRACTIONS = new String[100];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            FRACTIONS[i] = "." + (i / 10) + (i % 10);
+        }
+    }
+
+    private MinorUnits() {
+    }
+
+    public static final class AmountDeserializer extends StdDeserializer<Long> {
+
+        public AmountDeserializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            JsonToken token = p.currentToken();
+
+            if (token == JsonToken.VALUE_NUMBER_INT && p.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+                long units = p.getLongValue();
+                if (Math.abs(units) >= 100_000_000_000_000_000L) {
+                    throw new AmountConstraintException(p, DIGITS_MESSAGE);
+                }
+                return toMinor(p, units, 0);
+            }
+
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return parse(p, ctxt, p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            }
+
+            if (token == JsonToken.VALUE_STRING) {
+                // как и BigDecimal, принимаем число в строке
+                String text = p.getText().trim();
+                return parse(p, ctxt, text.toCharArray(), 0, text.length());
+            }
+
+            return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+        }
+
+        private static long parse(JsonParser p, DeserializationContext ctxt, char[] chars, int offset, int length)
+                throws IOException {
+            int end = offset + length;
+            int i = offset;
+
+            boolean negative = false;
+            if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                negative = chars[i] == '-';
+                i++;
+            }
+
+            long units = 0;
+            int integerDigits = 0;
+            boolean anyDigit = false;
+            for (; i < end && chars[i] >= '0' && chars[i] <= '9'; i++) {
+                anyDigit = true;
+                if (units == 0 && chars[i] == '0') {
+                    continue; // ведущие нули не считаются разрядами
+                }
+                if (++integerDigits > MAX_INTEGER_DIGITS) {
+                    throw new AmountConstraintException(p, DIGITS_MESSAGE);
+                }
+                units = units * 10 + (chars[i] - '0');
+            }
+
+            long fraction = 0;
+            int fractionDigits = 0;
+            if (i < end && chars[i] == '.') {
+                i++;
+                int significant = 0;
+                for (int pos = 0; i < end && chars[i] >= '0' && chars[i] <= '9'; i++, pos++) {
+                    anyDigit = true;
+                    if (chars[i] != '0') {
+                        significant = pos + 1; // хвостовые нули не считаются
+                    }
+                    if (pos < SCALE) {
+                        fraction = fraction * 10 + (chars[i] - '0');
+                        fractionDigits++;
+                    }
+                }
+                if (significant > SCALE) {
+                    throw new AmountConstraintException(p, DIGITS_MESSAGE);
+                }
+            }
+
+            if (i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+                // экспоненциальная запись на проводе — редкость, её разбирает BigDecimal
+                return fromBigDecimal(p, ctxt, new String(chars, offset, length));
+            }
+
+            if (i != end || !anyDigit) {
+                throw ctxt.weirdStringException(new String(chars, offset, length), BigDecimal.class,
+                        "not a valid decimal amount");
+            }
+
+            for (; fractionDigits < SCALE; fractionDigits++) {
+                fraction *= 10;
+            }
+
+            long minor = toMinor(p, units, fraction);
+            return negative ? -minor : minor;
+        }
+
+        private static long fromBigDecimal(JsonParser p, DeserializationContext ctxt, String text) throws IOException {
+            BigDecimal value;
+            try {
+                value = new BigDecimal(text).stripTrailingZeros();
+            } catch (NumberFormatException e) {
+                throw ctxt.weirdStringException(text, BigDecimal.class, "not a valid decimal amount");
+            }
+            if (value.precision() - value.scale() > MAX_INTEGER_DIGITS || value.scale() > SCALE) {
+                throw new AmountConstraintException(p, DIGITS_MESSAGE);
+            }
+            try {
+                return value.movePointRight(SCALE).longValueExact();
+            } catch (ArithmeticException e) {
+                throw new AmountConstraintException(p, RANGE_MESSAGE);
+            }
+        }
+
+        private static long toMinor(JsonParser p, long units, long fraction) throws AmountConstraintException {
+            try {
+                return Math.addExact(Math.multiplyExact(units, 100L), fraction);
+            } catch (ArithmeticException e) {
+                throw new AmountConstraintException(p, RANGE_MESSAGE);
+            }
+        }
+    }
+
+    public static final class AmountSerializer extends StdSerializer<Long> {
+
+        public AmountSerializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            long minor = value;
+            long units = minor / 100;
+            String fraction = FRACTIONS[(int) Math.abs(minor % 100)];
+
+            if (minor < 0 && units == 0) {
+                gen.writeNumber("-0" + fraction);
+                return;
+            }
+            // одним текстом числа: на проводе "1000.50"; writeRaw не поддерживают TokenBuffer и другие генераторы
+            gen.writeNumber(units + fraction);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.walletservice.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.UUID;
+
+/**
+ * {@link WalletBalanceResponse} с балансом в копейках; на проводе — то же десятичное число.
+ */
+public record MinorUnitsBalanceResponse(
+        UUID walletId,
+        @JsonSerialize(using = MinorUnits.AmountSerializer.class)
+        long balance
+) {}
@@ -0,0 +1,28 @@
+package com.example.walletservice.dto;
+
+import com.example.walletservice.domain.OperationType;
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.util.UUID;
+
+/**
+ * {@link WalletOperationRequest} с суммой в копейках (wallet.money.minor-units=true).
+ * Разрядность суммы проверяет {@link MinorUnits.AmountDeserializer}.
+ */
+public record MinorUnitsOperationRequest(
+        @NotNull(message = "walletId обязателен")
+        @JsonAlias({"valletId", "walletId"})
+        UUID walletId,
+
+        @NotNull(message = "operationType обязателен")
+        OperationType operationType,
+
+        @NotNull(message = "amount обязателен")
+        @Positive(message = "amount должен быть больше 0")
+        @JsonDeserialize(using = MinorUnits.AmountDeserializer.class)
+        Long amount
+) {
+}
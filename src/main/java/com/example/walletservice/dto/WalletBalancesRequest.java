@@ -0,0 +1,12 @@
+package com.example.walletservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+import java.util.UUID;
+
+public record WalletBalancesRequest(
+        @NotEmpty(message = "walletIds не может быть пустым")
+        List<@NotNull(message = "walletId не может быть null") UUID> walletIds
+) {}
@@ -0,0 +1,12 @@
+package com.example.walletservice.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Найденные балансы и ненайденные id — в порядке запроса, без повторов.
+ */
+public record WalletBalancesResponse(
+        List<WalletBalanceResponse> found,
+        List<UUID> missing
+) {}
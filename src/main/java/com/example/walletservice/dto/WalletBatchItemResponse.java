@@ -0,0 +1,16 @@
+package com.example.walletservice.dto;
+
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaStatus;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Результат одного элемента пакетной операции.
+ * balance заполнен только для статуса UPDATED.
+ */
+public record WalletBatchItemResponse(
+        UUID walletId,
+        ApplyDeltaStatus status,
+        BigDecimal balance
+) {}
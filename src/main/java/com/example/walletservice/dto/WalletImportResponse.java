@@ -0,0 +1,7 @@
+package com.example.walletservice.dto;
+
+public record WalletImportResponse(
+        long received,
+        long created,
+        long skipped
+) {}
@@ -0,0 +1,30 @@
+package com.example.walletservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record WalletTransferRequest(
+        @NotNull(message = "fromWalletId обязателен")
+        UUID fromWalletId,
+
+        @NotNull(message = "toWalletId обязателен")
+        UUID toWalletId,
+
+        @NotNull(message = "amount обязателен")
+        @DecimalMin(value = "0.01", message = "amount должен быть больше 0")
+        @Digits(integer = 17, fraction = 2, message = "amount: максимум 2 знака после запятой")
+        BigDecimal amount
+) {
+
+    @JsonIgnore
+    @AssertTrue(message = "fromWalletId и toWalletId должны различаться")
+    public boolean isDistinctWallets() {
+        return fromWalletId == null || !fromWalletId.equals(toWalletId);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.walletservice.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record WalletTransferResponse(
+        UUID fromWalletId,
+        BigDecimal fromBalance,
+        UUID toWalletId,
+        BigDecimal toBalance
+) {}
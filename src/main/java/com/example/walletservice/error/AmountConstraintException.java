@@ -0,0 +1,22 @@
+package com.example.walletservice.error;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+/**
+ * Сумма нарушает ограничения поля (разрядность, диапазон) и отклонена уже при разборе JSON.
+ * Отдаётся как VALIDATION_ERROR — так же, как нарушение Bean Validation на этом поле.
+ */
+public class AmountConstraintException extends JsonMappingException {
+
+    public AmountConstraintException(JsonParser parser, String message) {
+        super(parser, message);
+    }
+
+    /**
+     * Сообщение без описания позиции в JSON, которое добавляет Jackson.
+     */
+    public String getConstraintMessage() {
+        return getOriginalMessage();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.walletservice.error;
 
+import com.example.walletservice.metrics.WalletMetrics;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.web.error.ErrorAttributeOptions;
 import org.springframework.boot.web.servlet.error.DefaultErrorAttributes;
 import org.springframework.stereotype.Component;
@@ -13,8 +15,15 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class ApiErrorAttributes extends DefaultErrorAttributes {
 
+    private final WalletMetrics metrics;
+
+    public ApiErrorAttributes(WalletMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @Override
     public Map<String, Object> getErrorAttributes(WebRequest webRequest, ErrorAttributeOptions options) {
         // Берём базовые атрибуты, чтобы получить status/path
@@ -28,6 +37,7 @@ public class ApiErrorAttributes extends DefaultErrorAttributes {
 
         String errorCode = mapErrorCode(status);
         String message = mapMessage(status);
+        metrics.recordError(errorCode, status);
 
         Map<String, Object> details = new LinkedHashMap<>();
 
@@ -0,0 +1,46 @@
+package com.example.walletservice.error;
+
+import com.example.walletservice.metrics.WalletMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Считает ответы {@link GlobalExceptionHandler} в метриках wallet.api.errors / wallet.api.validation.errors
+ * в одном месте, не трогая каждый обработчик. Ошибки, дошедшие до /error, считает {@link ApiErrorAttributes}.
+ */
+@RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ApiErrorMetricsAdvice implements ResponseBodyAdvice<Object> {
+
+    private final WalletMetrics metrics;
+
+    public ApiErrorMetricsAdvice(WalletMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return returnType.getContainingClass() == GlobalExceptionHandler.class;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (response instanceof ServletServerHttpResponse servlet) {
+            if (body instanceof ApiErrorResponse error) {
+                metrics.recordError(error, servlet.getServletResponse().getStatus());
+            } else if (body instanceof EncodedApiError error) {
+                metrics.recordError(error.errorCode(), servlet.getServletResponse().getStatus());
+            }
+        }
+        return body;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.walletservice.error;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Заранее закодированный ответ {@link ApiErrorResponse} с единственной деталью {@code walletId}.
+ * Совпадает байт в байт с сериализацией записи через ObjectMapper (порядок полей, ISO-8601 для timestamp,
+ * экранирование строк), но в ответ вставляются только timestamp, path и walletId: один массив байт на ответ
+ * вместо Map, записи и обхода бина Jackson'ом.
+ */
+public final class ApiErrorTemplate {
+
+    public static final ApiErrorTemplate WALLET_NOT_FOUND = new ApiErrorTemplate("WALLET_NOT_FOUND", "Кошелёк не найден");
+    public static final ApiErrorTemplate INSUFFICIENT_FUNDS = new ApiErrorTemplate("INSUFFICIENT_FUNDS", "Недостаточно средств");
+
+    private static final byte[] PATH = ascii("\",\"path\":");
+    private static final byte[] DETAILS = ascii(",\"details\":{\"walletId\":\"");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    /** 9999-12-31T23:59:59Z: дальше ISO-8601 печатает год со знаком — такие значения форматирует Instant. */
+    private static final long MAX_FOUR_DIGIT_YEAR_SECOND = 253402300799L;
+
+    private final String errorCode;
+    private final byte[] head;
+
+    private ApiErrorTemplate(String errorCode, String message) {
+        this.errorCode = errorCode;
+        this.head = ("{\"errorCode\":\"" + escape(errorCode) + "\",\"message\":\"" + escape(message) + "\",\"timestamp\":\"")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String errorCode() {
+        return errorCode;
+    }
+
+    public EncodedApiError encode(Instant timestamp, String path, UUID walletId) {
+        long seconds = timestamp.getEpochSecond();
+        int nanos = timestamp.getNano();
+        byte[] formattedTimestamp = seconds >= 0 && seconds <= MAX_FOUR_DIGIT_YEAR_SECOND
+                ? null
+                : timestamp.toString().getBytes(StandardCharsets.US_ASCII);
+        byte[] escapedPath = path == null || isPlain(path) ? null : JsonStringEncoder.getInstance().quoteAsUTF8(path);
+
+        int length = head.length
+                + (formattedTimestamp != null ? formattedTimestamp.length : 20 + fractionLength(nanos))
+                + PATH.length
+                + (path == null ? NULL.length : (escapedPath != null ? escapedPath.length : path.length()) + 2)
+                + DETAILS.length
+                + (walletId == null ? NULL.length : 36)
+                + 3;
+        byte[] json = new byte[length];
+
+        int pos = put(json, 0, head);
+        pos = formattedTimestamp != null ? put(json, pos, formattedTimestamp) : putTimestamp(json, pos, seconds, nanos);
+        pos = put(json, pos, PATH);
+        if (path == null) {
+            pos = put(json, pos, NULL);
+        } else {
+            json[pos++] = '"';
+            if (escapedPath != null) {
+                pos = put(json, pos, escapedPath);
+            } else {
+                for (int i = 0; i < path.length(); i++) {
+                    json[pos++] = (byte) path.charAt(i);
+                }
+            }
+            json[pos++] = '"';
+        }
+        pos = put(json, pos, DETAILS);
+        // String.valueOf(walletId) в прежнем ответе: null превращался в строку "null"
+        pos = walletId == null ? put(json, pos, NULL) : putUuid(json, pos, walletId);
+        json[pos++] = '"';
+        json[pos++] = '}';
+        json[pos] = '}';
+        return new EncodedApiError(errorCode, json);
+    }
+
+    /** ASCII без символов, которые Jackson экранирует, — копируется в ответ как есть. */
+    private static boolean isPlain(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x20 || c >= 0x80 || c == '"' || c == '\\') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int fractionLength(int nanos) {
+        if (nanos == 0) {
+            return 0;
+        }
+        if (nanos % 1_000_000 == 0) {
+            return 4;
+        }
+        return nanos % 1_000 == 0 ? 7 : 10;
+    }
+
+    /**
+     * Тот же вывод, что у {@link java.time.format.DateTimeFormatter#ISO_INSTANT}: доли секунды группами по три цифры.
+     * Дата из номера дня — алгоритм civil_from_days (H. Hinnant), без LocalDateTime.
+     */
+    private static int putTimestamp(byte[] b, int pos, long seconds, int nanos) {
+        long days = seconds / 86_400;
+        int secondOfDay = (int) (seconds % 86_400);
+
+        long z = days + 719_468;
+        long era = z / 146_097;
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        pos = putDigits(b, pos, year, 4);
+        b[pos++] = '-';
+        pos = putDigits(b, pos, month, 2);
+        b[pos++] = '-';
+        pos = putDigits(b, pos, day, 2);
+        b[pos++] = 'T';
+        pos = putDigits(b, pos, secondOfDay / 3_600, 2);
+        b[pos++] = ':';
+        pos = putDigits(b, pos, secondOfDay / 60 % 60, 2);
+        b[pos++] = ':';
+        pos = putDigits(b, pos, secondOfDay % 60, 2);
+        if (nanos != 0) {
+            b[pos++] = '.';
+            if (nanos % 1_000_000 == 0) {
+                pos = putDigits(b, pos, nanos / 1_000_000, 3);
+            } else if (nanos % 1_000 == 0) {
+                pos = putDigits(b, pos, nanos / 1_000, 6);
+            } else {
+                pos = putDigits(b, pos, nanos, 9);
+            }
+        }
+        b[pos++] = 'Z';
+        return pos;
+    }
+
+    private static int putDigits(byte[] b, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            b[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    private static int putUuid(byte[] b, int pos, UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        pos = putHex(b, pos, msb >>> 32, 8);
+        b[pos++] = '-';
+        pos = putHex(b, pos, msb >>> 16, 4);
+        b[pos++] = '-';
+        pos = putHex(b, pos, msb, 4);
+        b[pos++] = '-';
+        pos = putHex(b, pos, lsb >>> 48, 4);
+        b[pos++] = '-';
+        return putHex(b, pos, lsb, 12);
+    }
+
+    private static int putHex(byte[] b, int pos, long value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            b[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return pos + width;
+    }
+
+    private static int put(byte[] b, int pos, byte[] src) {
+        System.arraycopy(src, 0, b, pos, src.length);
+        return pos + src.length;
+    }
+
+    private static String escape(String s) {
+        return new String(JsonStringEncoder.getInstance().quoteAsString(s));
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
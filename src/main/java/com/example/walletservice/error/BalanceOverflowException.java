@@ -0,0 +1,16 @@
+package com.example.walletservice.error;
+
+import java.util.UUID;
+
+public class BalanceOverflowException extends RuntimeException {
+    private final UUID walletId;
+
+    public BalanceOverflowException(UUID walletId) {
+        super("Balance overflow: " + walletId);
+        this.walletId = walletId;
+    }
+
+    public UUID getWalletId() {
+        return walletId;
+    }
+}
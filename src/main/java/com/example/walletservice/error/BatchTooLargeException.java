@@ -0,0 +1,20 @@
+package com.example.walletservice.error;
+
+public class BatchTooLargeException extends RuntimeException {
+    private final int size;
+    private final int maxSize;
+
+    public BatchTooLargeException(int size, int maxSize) {
+        super("Batch size " + size + " exceeds limit " + maxSize);
+        this.size = size;
+        this.maxSize = maxSize;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.walletservice.error;
+
+/**
+ * Готовое тело ответа об ошибке из {@link ApiErrorTemplate}; пишется в ответ как есть {@link EncodedApiErrorConverter}.
+ * {@code errorCode} — для метрик, без разбора JSON.
+ */
+public record EncodedApiError(String errorCode, byte[] json) {
+}
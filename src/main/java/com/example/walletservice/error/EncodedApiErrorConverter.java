@@ -0,0 +1,49 @@
+package com.example.walletservice.error;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Пишет {@link EncodedApiError} без Jackson. Бин HttpMessageConverter Spring Boot ставит перед стандартными
+ * конвертерами; медиатипы — те же, что у Jackson, поэтому согласование по Accept не меняется.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class EncodedApiErrorConverter extends AbstractHttpMessageConverter<EncodedApiError> {
+
+    public EncodedApiErrorConverter() {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == EncodedApiError.class;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected EncodedApiError readInternal(Class<? extends EncodedApiError> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("EncodedApiError is write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(EncodedApiError body, MediaType contentType) {
+        return (long) body.json().length;
+    }
+
+    @Override
+    protected void writeInternal(EncodedApiError body, HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(body.json());
+    }
+}
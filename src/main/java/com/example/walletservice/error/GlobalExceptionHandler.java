@@ -3,47 +3,226 @@ package com.example.walletservice.error;
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.validation.FieldError;
+import org.springframework.validation.method.ParameterErrors;
+import org.springframework.validation.method.ParameterValidationResult;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.springframework.web.servlet.NoHandlerFoundException;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 
 @RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class GlobalExceptionHandler {
 
+    private final long retryAfterSeconds;
+
+    public GlobalExceptionHandler(@Value("${wallet.shedding.retry-after:1s}") Duration retryAfter) {
+        this.retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+
+    /**
+     * Частые исходы операций (404/409) — готовое тело из {@link ApiErrorTemplate} вместо {@link ApiErrorResponse}:
+     * JSON тот же, но без Map, записи и сериализации Jackson'ом.
+     *
+     * У 404 тип задан явно: SSE-подписка на несуществующий кошелёк приходит с Accept: text/event-stream,
+     * и согласование типа отвергло бы JSON.
+     */
     @ExceptionHandler(WalletNotFoundException.class)
-    public ResponseEntity<ApiErrorResponse> handleWalletNotFound(WalletNotFoundException ex, HttpServletRequest request) {
+    public ResponseEntity<EncodedApiError> handleWalletNotFound(WalletNotFoundException ex, HttpServletRequest request) {
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ApiErrorTemplate.WALLET_NOT_FOUND.encode(Instant.now(), request.getRequestURI(), ex.getWalletId()));
+    }
+
+    @ExceptionHandler(InsufficientFundsException.class)
+    public ResponseEntity<EncodedApiError> handleInsufficientFunds(InsufficientFundsException ex, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiErrorTemplate.INSUFFICIENT_FUNDS.encode(Instant.now(), request.getRequestURI(), ex.getWalletId()));
+    }
+
+    @ExceptionHandler(TransferNotSupportedException.class)
+    public ResponseEntity<ApiErrorResponse> handleTransferNotSupported(TransferNotSupportedException ex, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(new ApiErrorResponse(
-                        "WALLET_NOT_FOUND",
-                        "Кошелёк не найден",
+                        "TRANSFER_NOT_SUPPORTED",
+                        "Перевод с участием «полосатого» кошелька не поддерживается",
                         Instant.now(),
                         request.getRequestURI(),
                         Map.of("walletId", String.valueOf(ex.getWalletId()))
                 ));
     }
 
-    @ExceptionHandler(InsufficientFundsException.class)
-    public ResponseEntity<ApiErrorResponse> handleInsufficientFunds(InsufficientFundsException ex, HttpServletRequest request) {
+    @ExceptionHandler(StripedWalletNotSupportedException.class)
+    public ResponseEntity<ApiErrorResponse> handleStripedWalletNotSupported(StripedWalletNotSupportedException ex, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ApiErrorResponse(
+                        "STRIPED_WALLET_NOT_SUPPORTED",
+                        "Batch, Idempotency-Key и режим копеек не поддерживаются для «полосатого» кошелька",
+                        Instant.now(),
+                        request.getRequestURI(),
+                        Map.of("walletId", String.valueOf(ex.getWalletId()))
+                ));
+    }
+
+    @ExceptionHandler(WalletImportInvalidException.class)
+    public ResponseEntity<ApiErrorResponse> handleImportInvalid(WalletImportInvalidException ex, HttpServletRequest request) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        if (ex.getLine() != null) {
+            details.put("line", ex.getLine());
+        }
+        details.put("reason", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ApiErrorResponse(
+                        "IMPORT_INVALID",
+                        "Файл импорта содержит некорректную строку, кошельки не созданы",
+                        Instant.now(),
+                        request.getRequestURI(),
+                        details
+                ));
+    }
+
+    @ExceptionHandler(BatchTooLargeException.class)
+    public ResponseEntity<ApiErrorResponse> handleBatchTooLarge(BatchTooLargeException ex, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ApiErrorResponse(
+                        "BATCH_TOO_LARGE",
+                        "Превышен максимальный размер пакета",
+                        Instant.now(),
+                        request.getRequestURI(),
+                        Map.of(
+                                "size", ex.getSize(),
+                                "maxSize", ex.getMaxSize()
+                        )
+                ));
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ApiErrorResponse> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(new ApiErrorResponse(
+                        "IDEMPOTENCY_KEY_REUSED",
+                        "Idempotency-Key уже использован для другого запроса",
+                        Instant.now(),
+                        request.getRequestURI(),
+                        Map.of("idempotencyKey", ex.getIdempotencyKey())
+                ));
+    }
+
+    @ExceptionHandler(BalanceOverflowException.class)
+    public ResponseEntity<ApiErrorResponse> handleBalanceOverflow(BalanceOverflowException ex, HttpServletRequest request) {
         return ResponseEntity.status(HttpStatus.CONFLICT)
                 .body(new ApiErrorResponse(
-                        "INSUFFICIENT_FUNDS",
-                        "Недостаточно средств",
+                        "BALANCE_OVERFLOW",
+                        "Баланс превысит допустимый диапазон",
+                        Instant.now(),
+                        request.getRequestURI(),
+                        Map.of("walletId", String.valueOf(ex.getWalletId()))
+                ));
+    }
+
+    @ExceptionHandler(IdempotencyKeyNotSupportedException.class)
+    public ResponseEntity<ApiErrorResponse> handleIdempotencyKeyNotSupported(IdempotencyKeyNotSupportedException ex, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ApiErrorResponse(
+                        "IDEMPOTENCY_KEY_NOT_SUPPORTED",
+                        "Idempotency-Key не поддерживается в режимах wallet.money.minor-units и wallet.cluster.enabled",
+                        Instant.now(),
+                        request.getRequestURI(),
+                        Map.of()
+                ));
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ApiErrorResponse> handleOverloaded(ServiceOverloadedException ex, HttpServletRequest request) {
+        return overloaded(ex.getRetryAfterSeconds(), request, Map.of("operation", ex.getOperation()));
+    }
+
+    @ExceptionHandler(WalletBusyException.class)
+    public ResponseEntity<ApiErrorResponse> handleWalletBusy(WalletBusyException ex, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new ApiErrorResponse(
+                        "WALLET_BUSY",
+                        "Слишком много одновременных операций по кошельку, повторите запрос позже",
                         Instant.now(),
                         request.getRequestURI(),
                         Map.of("walletId", String.valueOf(ex.getWalletId()))
                 ));
     }
 
+    @ExceptionHandler(OwnerUnavailableException.class)
+    public ResponseEntity<ApiErrorResponse> handleOwnerUnavailable(OwnerUnavailableException ex, HttpServletRequest request) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("walletId", String.valueOf(ex.getWalletId()));
+        details.put("owner", String.valueOf(ex.getOwner()));
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new ApiErrorResponse(
+                        "OWNER_UNAVAILABLE",
+                        "Узел-владелец кошелька недоступен, повторите запрос позже",
+                        Instant.now(),
+                        request.getRequestURI(),
+                        details
+                ));
+    }
+
+    /**
+     * Владелец мог применить операцию: 504 без Retry-After — клиенту нужно сверить баланс, а не повторять вслепую.
+     */
+    @ExceptionHandler(OwnerOutcomeUnknownException.class)
+    public ResponseEntity<ApiErrorResponse> handleOwnerOutcomeUnknown(OwnerOutcomeUnknownException ex, HttpServletRequest request) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("walletId", String.valueOf(ex.getWalletId()));
+        details.put("owner", String.valueOf(ex.getOwner()));
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(new ApiErrorResponse(
+                        "OPERATION_OUTCOME_UNKNOWN",
+                        "Узел-владелец кошелька не ответил вовремя; операция могла быть применена — проверьте баланс перед повтором",
+                        Instant.now(),
+                        request.getRequestURI(),
+                        details
+                ));
+    }
+
+    /**
+     * Нет соединения с БД за DB_CONN_TIMEOUT_MS (пул Hikari или предел wallet.db.max-concurrency исчерпан) —
+     * та же перегрузка, что и отказ ограничителя: 503 с Retry-After вместо INTERNAL_ERROR.
+     */
+    @ExceptionHandler(CannotGetJdbcConnectionException.class)
+    public ResponseEntity<ApiErrorResponse> handleNoConnection(CannotGetJdbcConnectionException ex, HttpServletRequest request) {
+        return overloaded(retryAfterSeconds, request, Map.of());
+    }
+
+    private ResponseEntity<ApiErrorResponse> overloaded(long retryAfter, HttpServletRequest request, Map<String, Object> details) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(new ApiErrorResponse(
+                        "SERVICE_OVERLOADED",
+                        "Сервис перегружен, повторите запрос позже",
+                        Instant.now(),
+                        request.getRequestURI(),
+                        details
+                ));
+    }
+
     @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
     public ResponseEntity<ApiErrorResponse> handleMethodNotAllowed(HttpRequestMethodNotSupportedException ex, HttpServletRequest request) {
         List<String> supported = ex.getSupportedHttpMethods() == null
@@ -63,6 +242,21 @@ public class GlobalExceptionHandler {
                 ));
     }
 
+    @ExceptionHandler(HttpMediaTypeNotSupportedException.class)
+    public ResponseEntity<ApiErrorResponse> handleMediaTypeNotSupported(HttpMediaTypeNotSupportedException ex, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                .body(new ApiErrorResponse(
+                        "UNSUPPORTED_MEDIA_TYPE",
+                        "Content-Type не поддерживается для этого эндпоинта",
+                        Instant.now(),
+                        request.getRequestURI(),
+                        Map.of(
+                                "contentType", String.valueOf(ex.getContentType()),
+                                "supportedMediaTypes", ex.getSupportedMediaTypes().stream().map(Object::toString).toList()
+                        )
+                ));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiErrorResponse> handleBeanValidation(MethodArgumentNotValidException ex, HttpServletRequest request) {
         List<Map<String, String>> fieldErrors = new ArrayList<>();
@@ -84,6 +278,46 @@ public class GlobalExceptionHandler {
                 ));
     }
 
+    /**
+     * Валидация на уровне метода: элементы коллекции в теле запроса (List&lt;@Valid WalletOperationRequest&gt;,
+     * поле с индексом элемента: [3].amount) и ограничения на заголовках/параметрах.
+     */
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ResponseEntity<ApiErrorResponse> handleMethodValidation(HandlerMethodValidationException ex, HttpServletRequest request) {
+        List<Map<String, String>> fieldErrors = new ArrayList<>();
+
+        for (ParameterValidationResult result : ex.getAllValidationResults()) {
+            String index = result.getContainerIndex() != null ? "[" + result.getContainerIndex() + "]" : null;
+
+            if (result instanceof ParameterErrors errors) {
+                // поля тела запроса — в том же виде, что и в MethodArgumentNotValidException
+                for (FieldError fe : errors.getFieldErrors()) {
+                    fieldErrors.add(Map.of(
+                            "field", index != null ? index + "." + fe.getField() : fe.getField(),
+                            "message", Optional.ofNullable(fe.getDefaultMessage()).orElse("Ошибка валидации")
+                    ));
+                }
+            } else {
+                String field = index != null ? index : String.valueOf(result.getMethodParameter().getParameterName());
+                for (MessageSourceResolvable error : result.getResolvableErrors()) {
+                    fieldErrors.add(Map.of(
+                            "field", field,
+                            "message", Optional.ofNullable(error.getDefaultMessage()).orElse("Ошибка валидации")
+                    ));
+                }
+            }
+        }
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ApiErrorResponse(
+                        "VALIDATION_ERROR",
+                        "Ошибка валидации запроса",
+                        Instant.now(),
+                        request.getRequestURI(),
+                        Map.of("fieldErrors", fieldErrors)
+                ));
+    }
+
     @ExceptionHandler(ConstraintViolationException.class)
     public ResponseEntity<ApiErrorResponse> handleConstraintViolation(ConstraintViolationException ex, HttpServletRequest request) {
         List<String> violations = ex.getConstraintViolations().stream()
@@ -145,6 +379,24 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ApiErrorResponse> handleInvalidJson(HttpMessageNotReadableException ex, HttpServletRequest request) {
         Throwable root = rootCause(ex);
 
+        // сумма в копейках проверяется уже при разборе JSON — ответ как при нарушении Bean Validation
+        if (root instanceof AmountConstraintException ace) {
+            var path = ace.getPath();
+            String field = (path == null || path.isEmpty()) ? "unknown" : path.get(path.size() - 1).getFieldName();
+
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiErrorResponse(
+                            "VALIDATION_ERROR",
+                            "Ошибка валидации запроса",
+                            Instant.now(),
+                            request.getRequestURI(),
+                            Map.of("fieldErrors", List.of(Map.of(
+                                    "field", field,
+                                    "message", ace.getConstraintMessage()
+                            )))
+                    ));
+        }
+
         if (root instanceof InvalidFormatException ife) {
             String field = "unknown";
             var path = ife.getPath();
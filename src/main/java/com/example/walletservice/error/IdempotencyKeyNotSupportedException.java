@@ -0,0 +1,8 @@
+package com.example.walletservice.error;
+
+public class IdempotencyKeyNotSupportedException extends RuntimeException {
+
+    public IdempotencyKeyNotSupportedException() {
+        super("Idempotency-Key is not supported in this mode");
+    }
+}
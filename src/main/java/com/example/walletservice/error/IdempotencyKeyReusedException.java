@@ -0,0 +1,14 @@
+package com.example.walletservice.error;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+    private final String idempotencyKey;
+
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super("Idempotency key reused with a different request: " + idempotencyKey);
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+}
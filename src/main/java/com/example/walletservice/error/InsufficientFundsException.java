@@ -2,15 +2,24 @@ package com.example.walletservice.error;
 
 import java.util.UUID;
 
+/**
+ * Ожидаемый исход операции, а не сбой: без stack trace и с сообщением по требованию —
+ * под нагрузкой списаний такие ответы составляют заметную долю.
+ */
 public class InsufficientFundsException extends RuntimeException {
     private final UUID walletId;
 
     public InsufficientFundsException(UUID walletId) {
-        super("Insufficient funds for wallet: " + walletId);
+        super(null, null, false, false);
         this.walletId = walletId;
     }
 
     public UUID getWalletId() {
         return walletId;
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getMessage() {
+        return "Insufficient funds for wallet: " + walletId;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.walletservice.error;
+
+import java.util.UUID;
+
+/**
+ * Кластерный режим: запрос переслан владельцу, но ответ не получен (таймаут чтения, обрыв соединения).
+ * Владелец мог успеть применить операцию, поэтому, в отличие от {@link OwnerUnavailableException},
+ * слепой повтор небезопасен.
+ */
+public class OwnerOutcomeUnknownException extends RuntimeException {
+    private final UUID walletId;
+    private final String owner;
+
+    public OwnerOutcomeUnknownException(UUID walletId, String owner) {
+        super("Wallet operation outcome unknown: " + walletId + " -> " + owner, null, false, false);
+        this.walletId = walletId;
+        this.owner = owner;
+    }
+
+    public UUID getWalletId() {
+        return walletId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+}
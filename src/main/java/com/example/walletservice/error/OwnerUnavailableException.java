@@ -0,0 +1,33 @@
+package com.example.walletservice.error;
+
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * Кластерный режим: владелец кошелька недоступен или этот узел больше не владеет корзиной кошелька
+ * (её захватил узел с более новой конфигурацией). ownerUrl — куда переслать запрос, если известно.
+ */
+public class OwnerUnavailableException extends RuntimeException {
+    private final UUID walletId;
+    private final String owner;
+    private final URI ownerUrl;
+
+    public OwnerUnavailableException(UUID walletId, String owner, URI ownerUrl) {
+        super("Wallet owner unavailable: " + walletId + " -> " + owner, null, false, false);
+        this.walletId = walletId;
+        this.owner = owner;
+        this.ownerUrl = ownerUrl;
+    }
+
+    public UUID getWalletId() {
+        return walletId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public URI getOwnerUrl() {
+        return ownerUrl;
+    }
+}
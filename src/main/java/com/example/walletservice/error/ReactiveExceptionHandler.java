@@ -0,0 +1,168 @@
+package com.example.walletservice.error;
+
+import com.example.walletservice.metrics.WalletMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.MethodNotAllowedException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.server.WebExceptionHandler;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+
+/**
+ * Единый формат ошибок для reactive-варианта API — те же коды и тела, что у
+ * {@link GlobalExceptionHandler} и {@link ApiErrorAttributes} в servlet-варианте.
+ *
+ * В WebFlux ошибки маршрутизации (404/405) не доходят до @ControllerAdvice,
+ * поэтому всё обрабатывается одним WebExceptionHandler перед стандартным (order -1).
+ */
+@Component
+@Order(-2)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExceptionHandler implements WebExceptionHandler {
+
+    private final ObjectMapper objectMapper;
+    private final WalletMetrics metrics;
+
+    public ReactiveExceptionHandler(ObjectMapper objectMapper, WalletMetrics metrics) {
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.error(ex);
+        }
+
+        String path = exchange.getRequest().getPath().value();
+        HttpStatusCode status;
+        ApiErrorResponse body;
+
+        if (ex instanceof WalletNotFoundException e) {
+            status = HttpStatus.NOT_FOUND;
+            body = ApiErrorResponse.of("WALLET_NOT_FOUND", "Кошелёк не найден", path,
+                    Map.of("walletId", String.valueOf(e.getWalletId())));
+        } else if (ex instanceof InsufficientFundsException e) {
+            status = HttpStatus.CONFLICT;
+            body = ApiErrorResponse.of("INSUFFICIENT_FUNDS", "Недостаточно средств", path,
+                    Map.of("walletId", String.valueOf(e.getWalletId())));
+        } else if (ex instanceof WebExchangeBindException e) {
+            status = HttpStatus.BAD_REQUEST;
+            body = ApiErrorResponse.of("VALIDATION_ERROR", "Ошибка валидации запроса", path,
+                    Map.of("fieldErrors", fieldErrors(e)));
+        } else if (ex instanceof ServerWebInputException e) {
+            status = HttpStatus.BAD_REQUEST;
+            body = inputError(e, path);
+        } else if (ex instanceof MethodNotAllowedException e) {
+            status = HttpStatus.METHOD_NOT_ALLOWED;
+            body = ApiErrorResponse.of("METHOD_NOT_ALLOWED", "Метод не поддерживается для этого эндпоинта", path,
+                    Map.of(
+                            "method", e.getHttpMethod(),
+                            "supportedMethods", e.getSupportedMethods().stream().map(Object::toString).toList()
+                    ));
+        } else if (ex instanceof ResponseStatusException e && e.getStatusCode().value() == 404) {
+            status = e.getStatusCode();
+            body = ApiErrorResponse.of("NOT_FOUND", "Эндпоинт не найден", path,
+                    Map.of(
+                            "method", exchange.getRequest().getMethod().name(),
+                            "path", path
+                    ));
+        } else if (ex instanceof ResponseStatusException e && e.getStatusCode().is4xxClientError()) {
+            status = e.getStatusCode();
+            body = ApiErrorResponse.of("REQUEST_ERROR", "Ошибка запроса", path);
+        } else {
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+            body = ApiErrorResponse.of("INTERNAL_ERROR", "Внутренняя ошибка сервера", path);
+        }
+
+        metrics.recordError(body, status.value());
+
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(json)));
+    }
+
+    private static List<Map<String, String>> fieldErrors(WebExchangeBindException ex) {
+        List<Map<String, String>> fieldErrors = new ArrayList<>();
+        for (FieldError fe : ex.getBindingResult().getFieldErrors()) {
+            fieldErrors.add(Map.of(
+                    "field", fe.getField(),
+                    "message", Optional.ofNullable(fe.getDefaultMessage()).orElse("Ошибка валидации")
+            ));
+        }
+        return fieldErrors;
+    }
+
+    /**
+     * Некорректный JSON, значение enum или UUID в пути.
+     */
+    private static ApiErrorResponse inputError(ServerWebInputException ex, String path) {
+        Throwable root = rootCause(ex);
+
+        if (ex.getCause() instanceof TypeMismatchException tme) {
+            MethodParameter parameter = ex.getMethodParameter();
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("parameter", parameter == null ? "unknown" : parameter.getParameterName());
+            details.put("value", String.valueOf(tme.getValue()));
+            details.put("expectedType", tme.getRequiredType() == null ? "unknown" : tme.getRequiredType().getSimpleName());
+            return ApiErrorResponse.of("INVALID_VALUE", "Некорректное значение параметра", path, details);
+        }
+
+        if (root instanceof InvalidFormatException ife) {
+            String field = "unknown";
+            var jsonPath = ife.getPath();
+            if (jsonPath != null && !jsonPath.isEmpty()) {
+                field = jsonPath.get(jsonPath.size() - 1).getFieldName();
+            }
+
+            Class<?> targetType = ife.getTargetType();
+            List<String> allowedValues =
+                    (targetType != null && targetType.isEnum())
+                            ? Arrays.stream(targetType.getEnumConstants()).map(Object::toString).toList()
+                            : List.of();
+
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("field", field);
+            details.put("value", String.valueOf(ife.getValue()));
+            details.put("expectedType", targetType == null ? "unknown" : targetType.getSimpleName());
+            if (!allowedValues.isEmpty()) {
+                details.put("allowedValues", allowedValues);
+            }
+            return ApiErrorResponse.of("INVALID_VALUE", "Некорректное значение в JSON", path, details);
+        }
+
+        return ApiErrorResponse.of("INVALID_JSON", "Некорректный JSON", path);
+    }
+
+    private static Throwable rootCause(Throwable t) {
+        Throwable cur = t;
+        while (cur.getCause() != null && cur.getCause() != cur) {
+            cur = cur.getCause();
+        }
+        return cur;
+    }
+}
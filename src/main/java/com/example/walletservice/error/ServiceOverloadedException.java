@@ -0,0 +1,24 @@
+package com.example.walletservice.error;
+
+/**
+ * Запрос отклонён ограничителем нагрузки до обращения к БД. Без стека: при перегрузке таких
+ * исключений много, а место возникновения всегда одно.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    private final String operation;
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String operation, long retryAfterSeconds) {
+        super("Service overloaded: " + operation, null, false, false);
+        this.operation = operation;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.walletservice.error;
+
+import java.util.UUID;
+
+public class StripedWalletNotSupportedException extends RuntimeException {
+    private final UUID walletId;
+
+    public StripedWalletNotSupportedException(UUID walletId) {
+        super("Operation is not supported for striped wallet (batch, Idempotency-Key, minor units): " + walletId);
+        this.walletId = walletId;
+    }
+
+    public UUID getWalletId() {
+        return walletId;
+    }
+}
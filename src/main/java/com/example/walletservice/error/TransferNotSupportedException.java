@@ -0,0 +1,16 @@
+package com.example.walletservice.error;
+
+import java.util.UUID;
+
+public class TransferNotSupportedException extends RuntimeException {
+    private final UUID walletId;
+
+    public TransferNotSupportedException(UUID walletId) {
+        super("Transfer is not supported for striped wallet: " + walletId);
+        this.walletId = walletId;
+    }
+
+    public UUID getWalletId() {
+        return walletId;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.walletservice.error;
+
+import java.util.UUID;
+
+/**
+ * Очередь операций по кошельку переполнена или ожидание в ней превысило таймаут
+ * (wallet.write.mode=serialized). Без стека, как и {@link ServiceOverloadedException}.
+ */
+public class WalletBusyException extends RuntimeException {
+    private final UUID walletId;
+
+    public WalletBusyException(UUID walletId) {
+        super("Wallet busy: " + walletId, null, false, false);
+        this.walletId = walletId;
+    }
+
+    public UUID getWalletId() {
+        return walletId;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.walletservice.error;
+
+public class WalletImportInvalidException extends RuntimeException {
+    private final Long line;
+
+    /**
+     * @param line номер строки данных (с 1, без заголовка CSV) или null, если он неизвестен
+     */
+    public WalletImportInvalidException(String reason, Long line) {
+        super(reason);
+        this.line = line;
+    }
+
+    public Long getLine() {
+        return line;
+    }
+}
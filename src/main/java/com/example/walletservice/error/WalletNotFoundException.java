@@ -2,15 +2,23 @@ package com.example.walletservice.error;
 
 import java.util.UUID;
 
+/**
+ * Ответ клиенту, а не ошибка сервиса — stack trace не собирается, как и у {@link InsufficientFundsException}.
+ */
 public class WalletNotFoundException extends RuntimeException {
     private final UUID walletId;
 
     public WalletNotFoundException(UUID walletId) {
-        super("Wallet not found: " + walletId);
+        super(null, null, false, false);
         this.walletId = walletId;
     }
 
     public UUID getWalletId() {
         return walletId;
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getMessage() {
+        return "Wallet not found: " + walletId;
+    }
+}
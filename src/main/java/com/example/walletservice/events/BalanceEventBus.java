@@ -0,0 +1,330 @@
+package com.example.walletservice.events;
+
+import com.example.walletservice.persistence.WalletRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Шина изменений балансов внутри узла: подписки по кошелькам и доставка нового баланса после каждой
+ * зафиксированной записи.
+ *
+ * Запись сообщает только «кошелёк изменился» ({@link #walletChanged}), без значения: параллельные операции
+ * по одному кошельку завершаются в приложении не в порядке фиксации, и их результаты могли бы прийти
+ * подписчику в обратном порядке. Изменённые кошельки с подписчиками попадают в lock-free очередь
+ * (CAS флага + ConcurrentLinkedQueue, повторная отметка до выборки — no-op); один поток раз в
+ * wallet.events.dispatch-interval читает их балансы с primary пачками по wallet.events.fetch-batch-size.
+ * Чтение начинается после фиксации записи и выполняется одним потоком, поэтому каждый подписчик видит
+ * балансы в порядке фиксации и последним — актуальный. Кошельки без подписчиков на узле ничего не стоят,
+ * кроме поиска в ConcurrentHashMap.
+ *
+ * Медленный подписчик не тормозит выборку и других подписчиков: отправку выполняет пул из
+ * wallet.events.delivery-threads платформенных потоков, а пока отправка подписчику занята, новые балансы
+ * замещают неотправленный (conflation) — у подписки не больше одного значения и одной задачи в пуле.
+ * Виртуальные потоки здесь не годятся: SseEmitter.send пишет в сокет внутри synchronized, и на JDK 21
+ * клиент, переставший читать, занял бы поток-носитель — при нескольких ядрах это остановило бы всю доставку.
+ * Раз в wallet.events.heartbeat-interval каждой подписке отправляется пустое событие.
+ *
+ * Между узлами изменения передаёт {@link PgNotifyBridge} (wallet.events.listen-notify=true).
+ */
+@Component
+public class BalanceEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceEventBus.class);
+
+    private static final Subscription[] NONE = new Subscription[0];
+    private static final long RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final WalletRepository repo;
+    private final long dispatchIntervalNanos;
+    private final int fetchBatchSize;
+    private final long heartbeatIntervalNanos;
+
+    private final ConcurrentHashMap<UUID, Topic> topics = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Topic> changed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger subscriptions = new AtomicInteger();
+    private final ExecutorService delivery;
+
+    private final Counter pushed;
+    private final Counter conflated;
+
+    private volatile Consumer<UUID> outbound;
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public BalanceEventBus(
+            WalletRepository repo,
+            MeterRegistry registry,
+            @Value("${wallet.events.dispatch-interval:PT0.02S}") Duration dispatchInterval,
+            @Value("${wallet.events.fetch-batch-size:500}") int fetchBatchSize,
+            @Value("${wallet.events.heartbeat-interval:PT30S}") Duration heartbeatInterval,
+            @Value("${wallet.events.delivery-threads:32}") int deliveryThreads
+    ) {
+        if (fetchBatchSize < 1 || deliveryThreads < 1 || dispatchInterval.isNegative() || dispatchInterval.isZero()) {
+            throw new IllegalArgumentException(
+                    "wallet.events: fetch-batch-size >= 1, delivery-threads >= 1, dispatch-interval > 0");
+        }
+        this.delivery = Executors.newFixedThreadPool(deliveryThreads,
+                Thread.ofPlatform().name("wallet-events-delivery-", 0).daemon().factory());
+        this.repo = repo;
+        this.dispatchIntervalNanos = dispatchInterval.toNanos();
+        this.fetchBatchSize = fetchBatchSize;
+        this.heartbeatIntervalNanos = heartbeatInterval.toNanos();
+
+        Gauge.builder("wallet.events.subscriptions", subscriptions, AtomicInteger::get)
+                .description("Открытые подписки на баланс")
+                .register(registry);
+        this.pushed = Counter.builder("wallet.events.pushed")
+                .description("Балансы, отправленные подписчикам")
+                .register(registry);
+        this.conflated = Counter.builder("wallet.events.conflated")
+                .description("Балансы, замещённые более новыми до отправки медленному подписчику")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        dispatcher = Thread.ofPlatform().name("wallet-balance-events").daemon().start(this::dispatchLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        delivery.shutdownNow();
+    }
+
+    /**
+     * Подписка на баланс кошелька: первым событием придёт текущий баланс, дальше — каждый новый.
+     * Существование кошелька проверяет вызывающий.
+     */
+    public Subscription subscribe(UUID walletId, BalanceListener listener) {
+        Subscription subscription = new Subscription(walletId, listener);
+        Topic topic = topics.compute(walletId, (id, t) -> {
+            Topic result = (t == null) ? new Topic(id) : t;
+            Subscription[] current = result.subscribers;
+            Subscription[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = subscription;
+            result.subscribers = next;
+            return result;
+        });
+        subscriptions.incrementAndGet();
+        markChanged(topic);
+        return subscription;
+    }
+
+    /**
+     * Запись по кошельку зафиксирована. Вызывается после коммита: выборка баланса должна её увидеть.
+     */
+    public void walletChanged(UUID walletId) {
+        localChange(walletId);
+        Consumer<UUID> out = outbound;
+        if (out != null) {
+            out.accept(walletId);
+        }
+    }
+
+    /** Изменение, пришедшее с другого узла: только локальным подписчикам. */
+    void localChange(UUID walletId) {
+        Topic topic = topics.get(walletId);
+        if (topic != null) {
+            markChanged(topic);
+        }
+    }
+
+    /** Изменения могли быть потеряны (например, разрыв LISTEN): перечитать все кошельки с подписчиками. */
+    void resyncAll() {
+        topics.values().forEach(this::markChanged);
+    }
+
+    void setOutbound(Consumer<UUID> outbound) {
+        this.outbound = outbound;
+    }
+
+    private void markChanged(Topic topic) {
+        if (topic.changed.compareAndSet(false, true)) {
+            changed.offer(topic);
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        topics.computeIfPresent(subscription.walletId, (id, t) -> {
+            Subscription[] current = t.subscribers;
+            int i = Arrays.asList(current).indexOf(subscription);
+            if (i < 0) {
+                return t;
+            }
+            if (current.length == 1) {
+                return null;
+            }
+            Subscription[] next = new Subscription[current.length - 1];
+            System.arraycopy(current, 0, next, 0, i);
+            System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+            t.subscribers = next;
+            return t;
+        });
+        subscriptions.decrementAndGet();
+    }
+
+    private void dispatchLoop() {
+        List<Topic> batch = new ArrayList<>(fetchBatchSize);
+        long nextHeartbeat = System.nanoTime() + heartbeatIntervalNanos;
+        while (running) {
+            LockSupport.parkNanos(dispatchIntervalNanos);
+            Topic topic;
+            while (running && (topic = changed.poll()) != null) {
+                // сброс до выборки: запись, зафиксированная во время выборки, поставит кошелёк в очередь снова
+                topic.changed.set(false);
+                batch.add(topic);
+                if (batch.size() == fetchBatchSize) {
+                    deliver(batch);
+                }
+            }
+            if (!batch.isEmpty()) {
+                deliver(batch);
+            }
+            if (System.nanoTime() - nextHeartbeat >= 0) {
+                for (Topic t : topics.values()) {
+                    for (Subscription s : t.subscribers) {
+                        s.heartbeat();
+                    }
+                }
+                nextHeartbeat = System.nanoTime() + heartbeatIntervalNanos;
+            }
+        }
+    }
+
+    private void deliver(List<Topic> batch) {
+        List<UUID> ids = new ArrayList<>(batch.size());
+        for (Topic t : batch) {
+            if (t.subscribers.length > 0) {
+                ids.add(t.walletId);
+            }
+        }
+        Map<UUID, BigDecimal> balances = Map.of();
+        try {
+            if (!ids.isEmpty()) {
+                balances = repo.findPrimaryBalances(ids);
+            }
+        } catch (RuntimeException e) {
+            log.warn("balance events: cannot read {} balances, retrying: {}", ids.size(), e.toString());
+            batch.forEach(this::markChanged);
+            batch.clear();
+            LockSupport.parkNanos(RETRY_NANOS);
+            return;
+        }
+        for (Topic t : batch) {
+            BigDecimal balance = balances.get(t.walletId);
+            if (balance != null) {
+                for (Subscription s : t.subscribers) {
+                    s.offer(balance);
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    private static final class Topic {
+        final UUID walletId;
+        final AtomicBoolean changed = new AtomicBoolean();
+        // copy-on-write под блокировкой узла ConcurrentHashMap; доставка читает массив без блокировок
+        volatile Subscription[] subscribers = NONE;
+
+        Topic(UUID walletId) {
+            this.walletId = walletId;
+        }
+    }
+
+    /** Подписка на баланс одного кошелька; {@link #cancel()} — идемпотентна. */
+    public final class Subscription {
+
+        private final UUID walletId;
+        private final BalanceListener listener;
+        // последний неотправленный баланс: новый замещает старый, пока отправка занята
+        private final AtomicReference<BigDecimal> pending = new AtomicReference<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        // только из drain: запуски drain упорядочены флагом draining
+        private BigDecimal lastSent;
+
+        private Subscription(UUID walletId, BalanceListener listener) {
+            this.walletId = walletId;
+            this.listener = listener;
+        }
+
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                unsubscribe(this);
+            }
+        }
+
+        void offer(BigDecimal balance) {
+            if (pending.getAndSet(balance) != null) {
+                conflated.increment();
+            }
+            schedule();
+        }
+
+        void heartbeat() {
+            heartbeatDue = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (!cancelled.get() && draining.compareAndSet(false, true)) {
+                try {
+                    delivery.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false); // остановка приложения
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!cancelled.get()) {
+                    BigDecimal balance = pending.getAndSet(null);
+                    if (balance != null) {
+                        if (lastSent == null || balance.compareTo(lastSent) != 0) {
+                            listener.onBalance(walletId, balance);
+                            lastSent = balance;
+                            heartbeatDue = false;
+                            pushed.increment();
+                        }
+                    } else if (heartbeatDue) {
+                        heartbeatDue = false;
+                        listener.onHeartbeat();
+                    } else {
+                        draining.set(false);
+                        // offer() между последней проверкой и сбросом флага мог не запустить drain
+                        if ((pending.get() == null && !heartbeatDue) || !draining.compareAndSet(false, true)) {
+                            return;
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("balance events: subscriber of {} dropped: {}", walletId, e.toString());
+                cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.walletservice.events;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Получатель событий {@link BalanceEventBus} (например, SSE-соединение). Методы одного получателя
+ * никогда не вызываются конкурентно и могут блокироваться на медленном клиенте: пока он не освободится,
+ * новые балансы схлопываются до последнего. Исключение отменяет подписку.
+ */
+public interface BalanceListener {
+
+    void onBalance(UUID walletId, BigDecimal balance) throws Exception;
+
+    /** Пустое событие: обнаруживает отключившихся клиентов и не даёт прокси закрыть простаивающее соединение. */
+    void onHeartbeat() throws Exception;
+}
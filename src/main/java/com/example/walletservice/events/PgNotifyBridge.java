@@ -0,0 +1,206 @@
+package com.example.walletservice.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Изменения балансов между узлами через Postgres LISTEN/NOTIFY (wallet.events.listen-notify=true).
+ *
+ * NOTIFY не отправляется из транзакции записи: уведомляющие транзакции фиксируются по очереди на общей
+ * блокировке очереди уведомлений, и каждая запись ждала бы чужие коммиты. Вместо этого изменённые
+ * кошельки копятся в множестве (повторы схлопываются) и раз в wallet.events.notify-interval уходят одним
+ * запросом: payload — «узел|id,id,...» до {@value #MAX_PAYLOAD} байт. Уведомление уходит после фиксации
+ * записей, поэтому выборка баланса на принимающем узле их видит.
+ *
+ * Приём — отдельное соединение вне пула (LISTEN держит его всё время работы). После разрыва соединения
+ * уведомления могли потеряться — все кошельки с подписчиками перечитываются.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.events.listen-notify", havingValue = "true")
+public class PgNotifyBridge {
+
+    private static final Logger log = LoggerFactory.getLogger(PgNotifyBridge.class);
+
+    static final String CHANNEL = "wallet_balance";
+    /** Предел payload NOTIFY — 8000 байт. */
+    static final int MAX_PAYLOAD = 7900;
+    private static final long RECONNECT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final BalanceEventBus bus;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final DataSourceProperties dataSource;
+    private final long notifyIntervalNanos;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+
+    private final Counter sent;
+    private final Counter received;
+
+    private volatile boolean running;
+    private volatile Connection listenConnection;
+    private Thread sender;
+    private Thread listener;
+
+    public PgNotifyBridge(
+            BalanceEventBus bus,
+            NamedParameterJdbcTemplate jdbc,
+            DataSourceProperties dataSource,
+            MeterRegistry registry,
+            @Value("${wallet.events.notify-interval:PT0.05S}") Duration notifyInterval
+    ) {
+        this.bus = bus;
+        this.jdbc = jdbc;
+        this.dataSource = dataSource;
+        this.notifyIntervalNanos = notifyInterval.toNanos();
+        this.sent = Counter.builder("wallet.events.notify")
+                .description("Изменённые кошельки, переданные другим узлам / полученные от них")
+                .tag("direction", "sent")
+                .register(registry);
+        this.received = Counter.builder("wallet.events.notify")
+                .description("Изменённые кошельки, переданные другим узлам / полученные от них")
+                .tag("direction", "received")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        bus.setOutbound(pending::add);
+        sender = Thread.ofPlatform().name("wallet-events-notify").daemon().start(this::sendLoop);
+        listener = Thread.ofPlatform().name("wallet-events-listen").daemon().start(this::listenLoop);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        bus.setOutbound(null);
+        LockSupport.unpark(sender);
+        sender.join(TimeUnit.SECONDS.toMillis(5));
+        closeQuietly(listenConnection);
+        listener.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void sendLoop() {
+        while (running) {
+            LockSupport.parkNanos(notifyIntervalNanos);
+            flush();
+        }
+        flush();
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(MAX_PAYLOAD);
+        int count = 0;
+        for (Iterator<UUID> it = pending.iterator(); it.hasNext(); ) {
+            UUID id = it.next();
+            it.remove();
+            if (payload.length() + 37 > MAX_PAYLOAD) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+            }
+            payload.append(payload.isEmpty() ? nodeId + '|' : ",").append(id);
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+        payloads.add(payload.toString());
+
+        try {
+            jdbc.query("SELECT pg_notify(:channel, p) FROM unnest(:payloads) AS p",
+                    new MapSqlParameterSource("channel", CHANNEL)
+                            .addValue("payloads", new SqlArrayValue("text", payloads.toArray())),
+                    rs -> {
+                    });
+            sent.increment(count);
+        } catch (RuntimeException e) {
+            // подписчики других узлов получат эти изменения со следующей записью или после переподключения
+            log.warn("balance events: NOTIFY of {} wallets failed: {}", count, e.toString());
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(
+                    dataSource.determineUrl(), dataSource.determineUsername(), dataSource.determinePassword())) {
+                listenConnection = connection;
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // изменения, пока узел не слушал, не пришли — перечитать
+                bus.resyncAll();
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(500);
+                    if (notifications != null) {
+                        for (PGNotification n : notifications) {
+                            receive(n.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("balance events: LISTEN connection lost, reconnecting: {}", e.toString());
+                    LockSupport.parkNanos(RECONNECT_NANOS);
+                }
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        int sep = payload.indexOf('|');
+        if (sep < 0 || (sep == nodeId.length() && payload.startsWith(nodeId))) {
+            return; // свои изменения шина уже получила напрямую
+        }
+        for (int start = sep + 1; start < payload.length(); start += 37) {
+            try {
+                bus.localChange(UUID.fromString(payload.substring(start, Math.min(start + 36, payload.length()))));
+                received.increment();
+            } catch (IllegalArgumentException e) {
+                log.warn("balance events: malformed notification: {}", payload);
+                return;
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // соединение уже закрыто
+            }
+        }
+    }
+}
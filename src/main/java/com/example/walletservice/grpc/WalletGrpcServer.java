@@ -0,0 +1,99 @@
+package com.example.walletservice.grpc;
+
+import com.example.walletservice.service.WalletService;
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.Server;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.grpc.MetricCollectingServerInterceptor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * gRPC-сервер (wallet.grpc.enabled=true) на отдельном порту wallet.grpc.port: HTTP/2 без TLS —
+ * для внутренних клиентов в доверенной сети.
+ *
+ * Вызовы выполняются в пуле из wallet.grpc.threads потоков — обработчики блокируются на JDBC, как и
+ * обработчики REST в пуле Tomcat; при spring.threads.virtual.enabled=true — виртуальный поток на задачу.
+ * Операции OperateStream, которые применяются по одной, идут в отдельные виртуальные потоки: задача вызова
+ * ждёт их, и в общем пуле ожидающий и ожидаемые могли бы занять все потоки.
+ * Метрики вызовов — grpc.server.* из Micrometer.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.grpc.enabled", havingValue = "true")
+public class WalletGrpcServer {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletGrpcServer.class);
+
+    private final Server server;
+    private final ExecutorService executor;
+    private final ExecutorService operationExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Duration shutdownGrace;
+
+    public WalletGrpcServer(
+            WalletService service,
+            Validator validator,
+            MeterRegistry registry,
+            @Value("${wallet.grpc.port:9090}") int port,
+            @Value("${wallet.grpc.threads:200}") int threads,
+            @Value("${wallet.grpc.stream-window:4096}") int streamWindow,
+            @Value("${wallet.grpc.shutdown-grace:PT10S}") Duration shutdownGrace,
+            @Value("${wallet.batch.max-size:1000}") int batchMaxSize,
+            @Value("${wallet.write.mode:direct}") String writeMode,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${wallet.money.minor-units:false}") boolean minorUnits,
+            @Value("${wallet.cluster.enabled:false}") boolean cluster
+    ) {
+        // в этих режимах запись идёт не через WalletService, и gRPC писал бы в обход владельца кошелька или в старом формате
+        if (minorUnits || cluster) {
+            throw new IllegalStateException(
+                    "wallet.grpc.enabled не поддерживается вместе с wallet.money.minor-units и wallet.cluster.enabled");
+        }
+        if (threads < 1 || streamWindow < 1) {
+            throw new IllegalArgumentException("wallet.grpc: threads >= 1, stream-window >= 1");
+        }
+        this.shutdownGrace = shutdownGrace;
+        this.executor = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("wallet-grpc-", 0).factory());
+        this.server = Grpc.newServerBuilderForPort(port, InsecureServerCredentials.create())
+                .executor(executor)
+                .intercept(new MetricCollectingServerInterceptor(registry))
+                .addService(new WalletGrpcService(service, validator, executor, operationExecutor,
+                        batchMaxSize, streamWindow, "direct".equals(writeMode)))
+                .build();
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        server.start();
+        log.info("gRPC server started on port {}", server.getPort());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        server.shutdown();
+        if (!server.awaitTermination(shutdownGrace.toMillis(), TimeUnit.MILLISECONDS)) {
+            server.shutdownNow();
+        }
+        executor.shutdown();
+        operationExecutor.shutdown();
+    }
+
+    /** Фактический порт (wallet.grpc.port=0 — свободный). */
+    public int getPort() {
+        return server.getPort();
+    }
+}
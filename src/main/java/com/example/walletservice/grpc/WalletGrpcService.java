@@ -0,0 +1,405 @@
+package com.example.walletservice.grpc;
+
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.dto.WalletBalanceResponse;
+import com.example.walletservice.dto.WalletBatchItemResponse;
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.error.IdempotencyKeyReusedException;
+import com.example.walletservice.error.InsufficientFundsException;
+import com.example.walletservice.error.StripedWalletNotSupportedException;
+import com.example.walletservice.error.WalletBusyException;
+import com.example.walletservice.error.WalletNotFoundException;
+import com.example.walletservice.grpc.v1.GetBalanceRequest;
+import com.example.walletservice.grpc.v1.GetBalanceResponse;
+import com.example.walletservice.grpc.v1.OperateRequest;
+import com.example.walletservice.grpc.v1.OperateResponse;
+import com.example.walletservice.grpc.v1.OperateStatus;
+import com.example.walletservice.grpc.v1.WalletApiGrpc;
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaStatus;
+import com.example.walletservice.service.WalletService;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * WalletApi (src/main/proto/wallet/v1/wallet_api.proto) поверх {@link WalletService}.
+ *
+ * Запрос собирается в тот же {@link WalletOperationRequest} и проверяется теми же ограничениями Bean Validation,
+ * что и JSON; нарушение — INVALID_ARGUMENT. Исход операции ({@code ApplyDeltaStatus}) передаётся полем status,
+ * а не статусом вызова: для клиента это обычный результат, и в OperateStream он не обрывает конвейер.
+ * Остальные ошибки — статусы gRPC по смыслу HTTP-кодов REST (429 → RESOURCE_EXHAUSTED, 503 → UNAVAILABLE).
+ */
+final class WalletGrpcService extends WalletApiGrpc.WalletApiImplBase {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletGrpcService.class);
+
+    private static final int IDEMPOTENCY_KEY_MAX_LENGTH = 255;
+
+    private final WalletService service;
+    private final Validator validator;
+    private final Executor executor;
+    private final Executor operationExecutor;
+    private final int batchMaxSize;
+    private final int streamWindow;
+    private final boolean batchWrites;
+
+    /**
+     * @param operationExecutor где OperateStream выполняет операции, применяемые по одной
+     * @param batchWrites       OperateStream применяет операции пачками {@link WalletService#operateBatch}; false —
+     *                          каждую через {@link WalletService#operate}, чтобы действовал wallet.write.mode
+     */
+    WalletGrpcService(WalletService service, Validator validator, Executor executor, Executor operationExecutor,
+                      int batchMaxSize, int streamWindow, boolean batchWrites) {
+        this.service = service;
+        this.validator = validator;
+        this.executor = executor;
+        this.operationExecutor = operationExecutor;
+        this.batchMaxSize = batchMaxSize;
+        this.streamWindow = streamWindow;
+        this.batchWrites = batchWrites;
+    }
+
+    @Override
+    public void operate(OperateRequest request, StreamObserver<OperateResponse> out) {
+        OperateResponse response;
+        try {
+            WalletOperationRequest operation = toOperation(request);
+            String idempotencyKey = request.getIdempotencyKey();
+            if (idempotencyKey.length() > IDEMPOTENCY_KEY_MAX_LENGTH) {
+                throw invalid("idempotency_key: от 1 до 255 символов");
+            }
+            response = operate(request.getRequestId(), operation, idempotencyKey.isEmpty() ? null : idempotencyKey);
+        } catch (RuntimeException e) {
+            out.onError(toStatus(e));
+            return;
+        }
+        out.onNext(response);
+        out.onCompleted();
+    }
+
+    @Override
+    public void getBalance(GetBalanceRequest request, StreamObserver<GetBalanceResponse> out) {
+        GetBalanceResponse response;
+        try {
+            WalletBalanceResponse balance = service.getBalance(parseWalletId(request.getWalletId()));
+            response = GetBalanceResponse.newBuilder()
+                    .setWalletId(request.getWalletId())
+                    .setBalance(balance.balance().toPlainString())
+                    .build();
+        } catch (WalletNotFoundException e) {
+            out.onError(Status.NOT_FOUND.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        } catch (RuntimeException e) {
+            out.onError(toStatus(e));
+            return;
+        }
+        out.onNext(response);
+        out.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<OperateRequest> operateStream(StreamObserver<OperateResponse> responseObserver) {
+        ServerCallStreamObserver<OperateResponse> out = (ServerCallStreamObserver<OperateResponse>) responseObserver;
+        OperateStream stream = new OperateStream(out);
+        out.disableAutoRequest();
+        out.setOnReadyHandler(stream::returnCredits);
+        out.setOnCancelHandler(stream::cancel);
+        out.request(streamWindow);
+        return stream;
+    }
+
+    private OperateResponse operate(long requestId, WalletOperationRequest operation, String idempotencyKey) {
+        OperateResponse.Builder response = OperateResponse.newBuilder()
+                .setRequestId(requestId)
+                .setWalletId(operation.walletId().toString());
+        try {
+            WalletBalanceResponse result = service.operate(operation, idempotencyKey);
+            return response.setStatus(OperateStatus.UPDATED)
+                    .setBalance(result.balance().toPlainString())
+                    .build();
+        } catch (WalletNotFoundException e) {
+            return response.setStatus(OperateStatus.WALLET_NOT_FOUND).build();
+        } catch (InsufficientFundsException e) {
+            return response.setStatus(OperateStatus.INSUFFICIENT_FUNDS).build();
+        }
+    }
+
+    private WalletOperationRequest toOperation(OperateRequest request) {
+        UUID walletId = parseWalletId(request.getWalletId());
+        OperationType type = switch (request.getOperationType()) {
+            case DEPOSIT -> OperationType.DEPOSIT;
+            case WITHDRAW -> OperationType.WITHDRAW;
+            default -> null;
+        };
+        BigDecimal amount = null;
+        if (!request.getAmount().isEmpty()) {
+            try {
+                amount = new BigDecimal(request.getAmount());
+            } catch (NumberFormatException e) {
+                throw invalid("amount: ожидается десятичное число");
+            }
+        }
+
+        WalletOperationRequest operation = new WalletOperationRequest(walletId, type, amount);
+        Set<ConstraintViolation<WalletOperationRequest>> violations = validator.validate(operation);
+        if (!violations.isEmpty()) {
+            throw invalid(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        return operation;
+    }
+
+    private static UUID parseWalletId(String walletId) {
+        if (walletId.isEmpty()) {
+            throw invalid("wallet_id обязателен");
+        }
+        try {
+            return UUID.fromString(walletId);
+        } catch (IllegalArgumentException e) {
+            throw invalid("wallet_id: ожидается UUID");
+        }
+    }
+
+    private static StatusRuntimeException invalid(String description) {
+        return Status.INVALID_ARGUMENT.withDescription(description).asRuntimeException();
+    }
+
+    private static StatusRuntimeException toStatus(RuntimeException e) {
+        if (e instanceof StatusRuntimeException status) {
+            return status;
+        }
+        if (e instanceof WalletBusyException) {
+            return Status.RESOURCE_EXHAUSTED.withDescription(e.getMessage()).asRuntimeException();
+        }
+        if (e instanceof StripedWalletNotSupportedException) {
+            return Status.FAILED_PRECONDITION.withDescription(e.getMessage()).asRuntimeException();
+        }
+        if (e instanceof IdempotencyKeyReusedException) {
+            return Status.FAILED_PRECONDITION.withDescription(e.getMessage()).asRuntimeException();
+        }
+        if (e instanceof CannotGetJdbcConnectionException) {
+            return Status.UNAVAILABLE.withDescription("database unavailable").asRuntimeException();
+        }
+        log.error("gRPC call failed", e);
+        return Status.INTERNAL.withDescription("internal error").asRuntimeException();
+    }
+
+    /**
+     * Один вызов OperateStream. Запросы копятся в очереди, а задача в executor забирает всё накопившееся
+     * (до wallet.batch.max-size) и применяет одним {@link WalletService#operateBatch}: пока пачка идёт в БД,
+     * набирается следующая, и тысячи запросов в полёте стоят десятки SQL round-trip'ов, а не тысячи.
+     *
+     * operateBatch — это прямой UPDATE по строкам wallets. Операции, для которых этого мало, идут через
+     * {@link WalletService#operate}, как унарный Operate: все операции при wallet.write.mode, отличном от direct
+     * (group commit, очереди кошельков), и операции по «полосатым» кошелькам. Они выполняются цепочками
+     * по кошельку: операции одного кошелька — по очереди в порядке запросов, разных кошельков — параллельно.
+     * Idempotency-Key поток не принимает (INVALID_ARGUMENT): для операций с ключом — унарный Operate.
+     *
+     * Запросов без ответа не больше wallet.grpc.stream-window: разрешение прислать следующие (request(n))
+     * клиент получает только после ответов на предыдущие и только пока читает ответы (isReady()).
+     */
+    private final class OperateStream implements StreamObserver<OperateRequest> {
+
+        private final ServerCallStreamObserver<OperateResponse> out;
+        private final ConcurrentLinkedQueue<OperateRequest> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // обработанные запросы, разрешение на замену которых клиенту ещё не выдано
+        private final AtomicInteger credits = new AtomicInteger();
+        private volatile boolean halfClosed;
+        // вызов завершён или отменён: в out больше ничего не пишется
+        private volatile boolean done;
+
+        OperateStream(ServerCallStreamObserver<OperateResponse> out) {
+            this.out = out;
+        }
+
+        @Override
+        public void onNext(OperateRequest request) {
+            queue.add(request);
+            schedule();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            done = true; // клиент отменил вызов — отвечать некому
+        }
+
+        @Override
+        public void onCompleted() {
+            halfClosed = true;
+            schedule();
+        }
+
+        void cancel() {
+            done = true;
+        }
+
+        void returnCredits() {
+            if (!done && out.isReady()) {
+                int n = credits.getAndSet(0);
+                if (n > 0) {
+                    out.request(n);
+                }
+            }
+        }
+
+        private void schedule() {
+            if (!done && draining.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // остановка сервера: вызов закроет shutdown
+                    draining.set(false);
+                }
+            }
+        }
+
+        // выполняется не более чем в одном потоке (флаг draining): только отсюда пишется в out
+        private void drain() {
+            try {
+                while (!done) {
+                    List<OperateRequest> batch = poll();
+                    if (!batch.isEmpty()) {
+                        apply(batch);
+                        credits.addAndGet(batch.size());
+                        returnCredits();
+                    } else if (halfClosed) {
+                        // после halfClosed новых запросов нет; очередь проверяется ещё раз, потому что запрос мог
+                        // прийти между poll() и чтением флага
+                        if (queue.isEmpty()) {
+                            done = true;
+                            out.onCompleted();
+                        }
+                    } else {
+                        draining.set(false);
+                        // onNext() между poll() и сбросом флага мог не запустить drain
+                        if ((queue.isEmpty() && !halfClosed) || !draining.compareAndSet(false, true)) {
+                            return;
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                done = true;
+                out.onError(toStatus(e));
+            }
+        }
+
+        private List<OperateRequest> poll() {
+            List<OperateRequest> batch = new ArrayList<>(Math.min(batchMaxSize, streamWindow));
+            OperateRequest request;
+            while (batch.size() < batchMaxSize && (request = queue.poll()) != null) {
+                batch.add(request);
+            }
+            return batch;
+        }
+
+        /** Некорректный запрос завершает вызов с INVALID_ARGUMENT; запросы перед ним применяются и получают ответы. */
+        private void apply(List<OperateRequest> batch) {
+            List<WalletOperationRequest> operations = new ArrayList<>(batch.size());
+            StatusRuntimeException invalid = null;
+            for (OperateRequest request : batch) {
+                try {
+                    if (!request.getIdempotencyKey().isEmpty()) {
+                        throw invalid("idempotency_key не поддерживается в OperateStream");
+                    }
+                    operations.add(toOperation(request));
+                } catch (StatusRuntimeException e) {
+                    invalid = Status.INVALID_ARGUMENT
+                            .withDescription("request_id " + request.getRequestId() + ": " + e.getStatus().getDescription())
+                            .asRuntimeException();
+                    break;
+                }
+            }
+
+            if (!operations.isEmpty()) {
+                for (OperateResponse response : applyOperations(batch, operations)) {
+                    out.onNext(response);
+                }
+            }
+            if (invalid != null) {
+                throw invalid;
+            }
+        }
+
+        /** Ответы в порядке запросов; операции по одному кошельку — всегда одним способом и в порядке запросов. */
+        private OperateResponse[] applyOperations(List<OperateRequest> batch, List<WalletOperationRequest> operations) {
+            OperateResponse[] responses = new OperateResponse[operations.size()];
+            List<Integer> batched = new ArrayList<>(operations.size());
+            Map<UUID, List<Integer>> chains = new LinkedHashMap<>();
+            for (int i = 0; i < operations.size(); i++) {
+                UUID walletId = operations.get(i).walletId();
+                if (batchWrites && !service.isStriped(walletId)) {
+                    batched.add(i);
+                } else {
+                    chains.computeIfAbsent(walletId, k -> new ArrayList<>()).add(i);
+                }
+            }
+
+            List<CompletableFuture<Void>> running = new ArrayList<>(chains.size());
+            for (List<Integer> chain : chains.values()) {
+                running.add(CompletableFuture.runAsync(() -> {
+                    for (int i : chain) {
+                        responses[i] = operate(batch.get(i).getRequestId(), operations.get(i), null);
+                    }
+                }, operationExecutor));
+            }
+
+            RuntimeException failure = null;
+            if (!batched.isEmpty()) {
+                try {
+                    List<WalletBatchItemResponse> results = service.operateBatch(batched.stream().map(operations::get).toList());
+                    for (int k = 0; k < results.size(); k++) {
+                        int i = batched.get(k);
+                        WalletBatchItemResponse result = results.get(k);
+                        OperateResponse.Builder response = OperateResponse.newBuilder()
+                                .setRequestId(batch.get(i).getRequestId())
+                                .setWalletId(result.walletId().toString())
+                                .setStatus(OperateStatus.valueOf(result.status().name()));
+                        if (result.status() == ApplyDeltaStatus.UPDATED) {
+                            response.setBalance(result.balance().toPlainString());
+                        }
+                        responses[i] = response.build();
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            // вызов завершается только после всех цепочек: ни одна операция не выполняется после ответа с ошибкой
+            try {
+                CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = (e.getCause() instanceof RuntimeException cause) ? cause : e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return responses;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.walletservice.metrics;
+
+import com.example.walletservice.persistence.ConcurrencyLimitedDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Насыщение пула соединений — дополнение к метрикам hikaricp.*, которые Spring Boot публикует сам
+ * (hikaricp.connections.acquire — время ожидания соединения, hikaricp.connections.usage — время его удержания).
+ *
+ * - wallet.db.pool.saturation — доля занятых соединений (active / max): 1.0 и рост hikaricp.connections.pending
+ *   означают нехватку пула;
+ * - wallet.db.limiter.available / wallet.db.limiter.waiting — семафор {@link ConcurrencyLimitedDataSource}
+ *   (только при spring.threads.virtual.enabled=true).
+ */
+@Component
+public class DataSourceMetrics implements MeterBinder {
+
+    private final DataSource dataSource;
+
+    public DataSourceMetrics(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        HikariDataSource hikari = unwrap(HikariDataSource.class);
+        if (hikari != null) {
+            Gauge.builder("wallet.db.pool.saturation", hikari, DataSourceMetrics::saturation)
+                    .description("Доля занятых соединений пула (active / max)")
+                    .tag("pool", String.valueOf(hikari.getPoolName()))
+                    .register(registry);
+        }
+
+        ConcurrencyLimitedDataSource limiter = unwrap(ConcurrencyLimitedDataSource.class);
+        if (limiter != null) {
+            Gauge.builder("wallet.db.limiter.available", limiter, ConcurrencyLimitedDataSource::availablePermits)
+                    .description("Свободные разрешения на обращение к БД")
+                    .register(registry);
+            Gauge.builder("wallet.db.limiter.waiting", limiter, ConcurrencyLimitedDataSource::queueLength)
+                    .description("Потоки, ожидающие разрешения на обращение к БД")
+                    .register(registry);
+        }
+    }
+
+    private static double saturation(HikariDataSource hikari) {
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (pool == null) {
+            return Double.NaN; // пул ещё не запущен
+        }
+        return (double) pool.getActiveConnections() / hikari.getMaximumPoolSize();
+    }
+
+    private <T> T unwrap(Class<T> type) {
+        try {
+            return dataSource.isWrapperFor(type) ? dataSource.unwrap(type) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.walletservice.metrics;
+
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.error.ApiErrorResponse;
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Метрики пути запроса.
+ *
+ * Таймеры регистрируются заранее на все сочетания тегов, поэтому запись — это только поиск в массиве
+ * и инкремент: ни поиска в реестре, ни аллокаций на запрос. Границы гистограмм задаются в
+ * management.metrics.distribution.slo (фиксированные корзины, без клиентских перцентилей).
+ *
+ * - wallet.operations{operation, outcome} — WalletService.operate, outcome = ApplyDeltaStatus или ERROR;
+ * - wallet.transfers{outcome} — WalletService.transfer, outcome = ApplyDeltaStatus или ERROR;
+ * - wallet.balance.reads{outcome} — WalletService.getBalance, outcome = FOUND | WALLET_NOT_FOUND | ERROR;
+ * - wallet.api.errors{code, status} — каждый ответ в формате ApiErrorResponse;
+ * - wallet.api.validation.errors{field} — поля из VALIDATION_ERROR (индекс элемента пакета убирается: [].amount).
+ */
+@Component
+public class WalletMetrics {
+
+    public enum ReadOutcome {
+        FOUND,
+        WALLET_NOT_FOUND,
+        ERROR
+    }
+
+    private static final String ERROR = "ERROR";
+    private static final Pattern LIST_INDEX = Pattern.compile("\\[\\d+]");
+
+    private final MeterRegistry registry;
+
+    // [OperationType.ordinal()][ApplyDeltaStatus.ordinal() | ERROR]
+    private final Timer[][] operations;
+    // [ApplyDeltaStatus.ordinal() | ERROR]
+    private final Timer[] transfers;
+    private final Timer[] reads;
+
+    private final ConcurrentMap<String, Counter> errors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> validationErrors = new ConcurrentHashMap<>();
+
+    public WalletMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        OperationType[] types = OperationType.values();
+        ApplyDeltaStatus[] statuses = ApplyDeltaStatus.values();
+        this.operations = new Timer[types.length][statuses.length + 1];
+        for (OperationType type : types) {
+            for (ApplyDeltaStatus status : statuses) {
+                operations[type.ordinal()][status.ordinal()] = operationTimer(type, status.name());
+            }
+            operations[type.ordinal()][statuses.length] = operationTimer(type, ERROR);
+        }
+
+        this.transfers = new Timer[statuses.length + 1];
+        for (ApplyDeltaStatus status : statuses) {
+            transfers[status.ordinal()] = transferTimer(status.name());
+        }
+        transfers[statuses.length] = transferTimer(ERROR);
+
+        ReadOutcome[] outcomes = ReadOutcome.values();
+        this.reads = new Timer[outcomes.length];
+        for (ReadOutcome outcome : outcomes) {
+            reads[outcome.ordinal()] = Timer.builder("wallet.balance.reads")
+                    .description("GET /api/v1/wallets/{walletId}")
+                    .tag("outcome", outcome.name())
+                    .register(registry);
+        }
+    }
+
+    private Timer operationTimer(OperationType type, String outcome) {
+        return Timer.builder("wallet.operations")
+                .description("Изменение баланса (DEPOSIT / WITHDRAW)")
+                .tag("operation", type.name())
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Timer transferTimer(String outcome) {
+        return Timer.builder("wallet.transfers")
+                .description("Перевод между кошельками")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * @param status результат операции; null — исключение (ошибка БД, таймаут, повтор ключа и т.п.)
+     */
+    public void recordOperation(OperationType type, ApplyDeltaStatus status, long nanos) {
+        int outcome = (status == null) ? operations[type.ordinal()].length - 1 : status.ordinal();
+        operations[type.ordinal()][outcome].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTransfer(ApplyDeltaStatus status, long nanos) {
+        int outcome = (status == null) ? transfers.length - 1 : status.ordinal();
+        transfers[outcome].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBalanceRead(ReadOutcome outcome, long nanos) {
+        reads[outcome.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordError(ApiErrorResponse body, int status) {
+        recordError(body.errorCode(), status);
+
+        if ("VALIDATION_ERROR".equals(body.errorCode()) && body.details().get("fieldErrors") instanceof List<?> fieldErrors) {
+            for (Object fe : fieldErrors) {
+                if (fe instanceof Map<?, ?> m && m.get("field") instanceof String field) {
+                    String normalized = LIST_INDEX.matcher(field).replaceAll("[]");
+                    validationErrors.computeIfAbsent(normalized, f -> Counter.builder("wallet.api.validation.errors")
+                                    .description("Ошибки валидации по полям")
+                                    .tag("field", f)
+                                    .register(registry))
+                            .increment();
+                }
+            }
+        }
+    }
+
+    public void recordError(String errorCode, int status) {
+        errors.computeIfAbsent(errorCode + ':' + status, k -> Counter.builder("wallet.api.errors")
+                        .description("Ответы с ошибкой по errorCode")
+                        .tag("code", errorCode)
+                        .tag("status", String.valueOf(status))
+                        .register(registry))
+                .increment();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.walletservice.persistence;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Владение корзинами кошельков (таблица cluster_buckets, миграция 008) — fencing кластерного режима.
+ */
+@Repository
+@ConditionalOnProperty(name = "wallet.cluster.enabled", havingValue = "true")
+public class ClusterBucketRepository {
+
+    public record BucketOwner(String owner, String ownerUrl, long membershipVersion, long epoch) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public ClusterBucketRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Захватывает корзину и возвращает новый epoch. Захват разрешён узлу с более новой версией списка узлов,
+     * а при той же версии — только прежнему владельцу (перезапуск). Иначе — пусто: корзиной владеет другой узел.
+     *
+     * UPDATE ждёт транзакции, держащие строку под FOR SHARE ({@link #isHeldBy}), т.е. идущие записи прежнего владельца.
+     */
+    public OptionalLong claim(int bucket, String owner, String ownerUrl, long membershipVersion) {
+        String sql = """
+            INSERT INTO cluster_buckets (bucket, owner, owner_url, membership_version, epoch)
+            VALUES (:bucket, :owner, :ownerUrl, :version, 1)
+            ON CONFLICT (bucket) DO UPDATE
+            SET owner = EXCLUDED.owner,
+                owner_url = EXCLUDED.owner_url,
+                membership_version = EXCLUDED.membership_version,
+                epoch = cluster_buckets.epoch + 1
+            WHERE cluster_buckets.membership_version < EXCLUDED.membership_version
+               OR (cluster_buckets.membership_version = EXCLUDED.membership_version
+                   AND cluster_buckets.owner = EXCLUDED.owner)
+            RETURNING epoch
+            """;
+
+        var params = new MapSqlParameterSource()
+                .addValue("bucket", bucket)
+                .addValue("owner", owner)
+                .addValue("ownerUrl", ownerUrl)
+                .addValue("version", membershipVersion);
+
+        var epochs = jdbc.queryForList(sql, params, Long.class);
+        return epochs.isEmpty() ? OptionalLong.empty() : OptionalLong.of(epochs.get(0));
+    }
+
+    /**
+     * Проверка fencing-токена; вызывается в транзакции записи. FOR SHARE держит строку до конца транзакции,
+     * поэтому конкурентный {@link #claim} не завершится, пока запись не зафиксирована.
+     */
+    public boolean isHeldBy(int bucket, String owner, long epoch) {
+        String sql = """
+            SELECT 1 FROM cluster_buckets
+            WHERE bucket = :bucket AND owner = :owner AND epoch = :epoch
+            FOR SHARE
+            """;
+
+        var params = new MapSqlParameterSource()
+                .addValue("bucket", bucket)
+                .addValue("owner", owner)
+                .addValue("epoch", epoch);
+
+        return !jdbc.queryForList(sql, params, Integer.class).isEmpty();
+    }
+
+    public Optional<BucketOwner> findOwner(int bucket) {
+        return jdbc.query(
+                "SELECT owner, owner_url, membership_version, epoch FROM cluster_buckets WHERE bucket = :bucket",
+                new MapSqlParameterSource("bucket", bucket),
+                (rs, rowNum) -> new BucketOwner(
+                        rs.getString("owner"),
+                        rs.getString("owner_url"),
+                        rs.getLong("membership_version"),
+                        rs.getLong("epoch")
+                )
+        ).stream().findFirst();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.walletservice.persistence;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * В режиме виртуальных потоков (spring.threads.virtual.enabled=true) оборачивает DataSource
+ * в {@link ConcurrencyLimitedDataSource}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class DbConcurrencyLimitConfig {
+
+    @Bean
+    static BeanPostProcessor dbConcurrencyLimiter(Environment env) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof DataSource ds && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    int maxConcurrency = env.getRequiredProperty("wallet.db.max-concurrency", Integer.class);
+                    Duration acquireTimeout = env.getRequiredProperty("wallet.db.acquire-timeout", Duration.class);
+                    return new ConcurrencyLimitedDataSource(ds, maxConcurrency, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.walletservice.persistence;
+
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaResult;
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Чтение и очистка idempotency_keys. Запись ключа — в {@link WalletRepository#applyDelta(UUID, BigDecimal, String, java.time.Duration)}.
+ */
+@Repository
+public class IdempotencyRepository {
+
+    public record StoredResult(UUID walletId, BigDecimal delta, ApplyDeltaResult result) {}
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public IdempotencyRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Сохранённый результат по ключу; истёкшие ключи не возвращаются.
+     */
+    public Optional<StoredResult> find(String key) {
+        String sql = """
+            SELECT wallet_id, delta, status, balance
+            FROM idempotency_keys
+            WHERE key = :key
+              AND expires_at > now()
+            """;
+
+        return jdbc.query(sql, new MapSqlParameterSource("key", key), (rs, rowNum) -> new StoredResult(
+                rs.getObject("wallet_id", UUID.class),
+                rs.getBigDecimal("delta"),
+                new ApplyDeltaResult(ApplyDeltaStatus.valueOf(rs.getString("status")), rs.getBigDecimal("balance"))
+        )).stream().findFirst();
+    }
+
+    public void deleteIfExpired(String key) {
+        jdbc.update(
+                "DELETE FROM idempotency_keys WHERE key = :key AND expires_at <= now()",
+                new MapSqlParameterSource("key", key)
+        );
+    }
+
+    /**
+     * Удаляет не больше limit истёкших ключей; возвращает число удалённых.
+     */
+    public int purgeExpired(int limit) {
+        String sql = """
+            DELETE FROM idempotency_keys
+            WHERE key IN (
+                SELECT key
+                FROM idempotency_keys
+                WHERE expires_at <= now()
+                LIMIT :limit
+            )
+            """;
+        return jdbc.update(sql, new MapSqlParameterSource("limit", limit));
+    }
+}
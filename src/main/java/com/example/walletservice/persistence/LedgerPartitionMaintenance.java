@@ -0,0 +1,91 @@
+package com.example.walletservice.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Обслуживание секций журнала wallet_transactions (функции из миграций 004 и 010):
+ * - заранее создаёт секции на wallet.ledger.partitions-ahead-days дней вперёд, забирая в них строки,
+ *   успевшие попасть в default-секцию;
+ * - при wallet.ledger.retention-days > 0 отсоединяет (DETACH) секции старше срока хранения — по одной
+ *   за транзакцию и не дольше wallet.ledger.detach-lock-timeout в ожидании блокировки родителя, чтобы
+ *   не задерживать вставки в журнал.
+ *
+ * Функции берут advisory lock, поэтому задачу безопасно запускать на всех инстансах.
+ */
+@Component
+public class LedgerPartitionMaintenance {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerPartitionMaintenance.class);
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final int partitionsAheadDays;
+    private final int retentionDays;
+    private final Duration detachLockTimeout;
+
+    public LedgerPartitionMaintenance(
+            NamedParameterJdbcTemplate jdbc,
+            @Value("${wallet.ledger.partitions-ahead-days:7}") int partitionsAheadDays,
+            @Value("${wallet.ledger.retention-days:0}") int retentionDays,
+            @Value("${wallet.ledger.detach-lock-timeout:200ms}") Duration detachLockTimeout
+    ) {
+        this.jdbc = jdbc;
+        this.partitionsAheadDays = partitionsAheadDays;
+        this.retentionDays = retentionDays;
+        this.detachLockTimeout = detachLockTimeout;
+    }
+
+    @Scheduled(initialDelayString = "PT0S", fixedDelayString = "${wallet.ledger.maintenance-interval:PT1H}")
+    public void maintain() {
+        try {
+            jdbc.queryForObject(
+                    "SELECT wallet_transactions_ensure_partitions(:days)::text",
+                    new MapSqlParameterSource("days", partitionsAheadDays),
+                    String.class
+            );
+
+            if (retentionDays > 0) {
+                detachExpired();
+            }
+        } catch (RuntimeException e) {
+            // следующая попытка — через maintenance-interval; до тех пор вставки уходят в default-секцию
+            log.warn("Не удалось обслужить секции wallet_transactions", e);
+        }
+    }
+
+    private void detachExpired() {
+        List<String> expired = jdbc.queryForList(
+                "SELECT wallet_transactions_expired_partitions(:days)",
+                new MapSqlParameterSource("days", retentionDays),
+                String.class
+        );
+        List<String> detached = new ArrayList<>();
+        List<String> postponed = new ArrayList<>();
+        for (String partition : expired) {
+            // каждая — отдельной транзакцией: ACCESS EXCLUSIVE на родителя держится только на время одного DETACH
+            Boolean done = jdbc.queryForObject(
+                    "SELECT wallet_transactions_detach_partition(:partition, :timeoutMs)",
+                    new MapSqlParameterSource()
+                            .addValue("partition", partition)
+                            .addValue("timeoutMs", (int) detachLockTimeout.toMillis()),
+                    Boolean.class
+            );
+            (Boolean.TRUE.equals(done) ? detached : postponed).add(partition);
+        }
+        if (!detached.isEmpty()) {
+            log.info("Отсоединены секции журнала: {}", detached);
+        }
+        if (!postponed.isEmpty()) {
+            log.info("Секции журнала не отсоединены (не дождались блокировки), повтор в следующий запуск: {}", postponed);
+        }
+    }
+}
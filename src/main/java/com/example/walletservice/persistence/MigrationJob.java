@@ -0,0 +1,27 @@
+package com.example.walletservice.persistence;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+
+/**
+ * Миграции отдельным запуском, до выката приложения с wallet.migrations.mode=verify или skip:
+ *
+ *   java -cp app.jar com.example.walletservice.persistence.MigrationJob
+ *
+ * Поднимает только DataSource и Liquibase с настройками из application.yaml и окружения (DB_URL,
+ * SPRING_LIQUIBASE_CONTEXTS, WALLET_MONEY_MINOR_UNITS), применяет changelog и завершается: код 0 — схема актуальна.
+ * Параллельные запуски ждут друг друга на DATABASECHANGELOGLOCK.
+ *
+ * Класс без @Configuration, чтобы сканирование компонентов приложения не подхватило его импорты.
+ */
+@ImportAutoConfiguration({DataSourceAutoConfiguration.class, LiquibaseAutoConfiguration.class})
+public class MigrationJob {
+
+    public static void main(String[] args) {
+        // иначе web-application-type из application.yaml потребовал бы веб-сервер
+        System.setProperty("spring.main.web-application-type", "none");
+        System.exit(SpringApplication.exit(SpringApplication.run(MigrationJob.class, args)));
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.walletservice.persistence;
+
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Scope;
+import liquibase.changelog.ChangeLogParameters;
+import liquibase.changelog.ChangeSet;
+import liquibase.changelog.DatabaseChangeLog;
+import liquibase.command.CommandScope;
+import liquibase.command.core.StatusCommandStep;
+import liquibase.command.core.ValidateCommandStep;
+import liquibase.command.core.helpers.DatabaseChangelogCommandStep;
+import liquibase.command.core.helpers.DbUrlConnectionCommandStep;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.exception.PreconditionErrorException;
+import liquibase.exception.PreconditionFailedException;
+import liquibase.integration.spring.SpringLiquibase;
+import liquibase.integration.spring.SpringResourceAccessor;
+import liquibase.precondition.core.PreconditionContainer;
+import liquibase.snapshot.SnapshotGeneratorFactory;
+import liquibase.ui.LoggerUIService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.StringUtils;
+
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Что делает Liquibase при старте приложения (wallet.migrations.mode):
+ * - apply (по умолчанию) — применяет changelog под блокировкой DATABASECHANGELOGLOCK;
+ * - verify — только сверяет схему с changelog: приложение не запустится, если есть changeset, который применил бы
+ *   update, или изменилась контрольная сумма уже применённого. Блокировка не берётся, в БД ничего не пишется;
+ * - skip — Liquibase не вызывается.
+ *
+ * verify и skip — для выката, где миграции заранее применяет {@link MigrationJob}, а новые экземпляры
+ * (автомасштабирование) стартуют без разбора changelog под блокировкой. Режим читается при старте через
+ * SpringLiquibase.setShouldRun, а не условием на автоконфигурации: в сборке Spring AOT условия уже вычислены.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MigrationModeConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(MigrationModeConfig.class);
+
+    @Bean
+    static BeanPostProcessor liquibaseStartupMode(Environment env) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof SpringLiquibase liquibase) {
+                    String mode = env.getProperty("wallet.migrations.mode", "apply");
+                    switch (mode) {
+                        case "apply" -> {
+                        }
+                        case "verify" -> {
+                            liquibase.setShouldRun(false);
+                            verify(liquibase, Binder.get(env)
+                                    .bind("spring.liquibase.parameters", Bindable.mapOf(String.class, String.class))
+                                    .orElse(Map.of()));
+                        }
+                        case "skip" -> {
+                            liquibase.setShouldRun(false);
+                            log.info("wallet.migrations.mode=skip: схема не проверяется");
+                        }
+                        default -> throw new IllegalArgumentException(
+                                "wallet.migrations.mode: ожидается apply | verify | skip, получено " + mode);
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static void verify(SpringLiquibase liquibase, Map<String, String> parameters) {
+        List<String> pending = new ArrayList<>();
+        try (Connection connection = liquibase.getDataSource().getConnection()) {
+            Database database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            if (StringUtils.hasText(liquibase.getDefaultSchema())) {
+                database.setDefaultSchemaName(liquibase.getDefaultSchema());
+            }
+            if (StringUtils.hasText(liquibase.getLiquibaseSchema())) {
+                database.setLiquibaseSchemaName(liquibase.getLiquibaseSchema());
+            }
+            if (StringUtils.hasText(liquibase.getDatabaseChangeLogTable())) {
+                database.setDatabaseChangeLogTableName(liquibase.getDatabaseChangeLogTable());
+            }
+            if (StringUtils.hasText(liquibase.getDatabaseChangeLogLockTable())) {
+                database.setDatabaseChangeLogLockTableName(liquibase.getDatabaseChangeLogLockTable());
+            }
+
+            // команды Liquibase создают DATABASECHANGELOG/DATABASECHANGELOGLOCK, если их нет, — до них не доходим
+            SnapshotGeneratorFactory snapshots = SnapshotGeneratorFactory.getInstance();
+            if (!snapshots.hasDatabaseChangeLogTable(database) || !snapshots.hasDatabaseChangeLogLockTable(database)) {
+                pending.add("весь changelog: в схеме нет таблиц Liquibase");
+            } else {
+                verifyChangeLog(liquibase, parameters, database, pending);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("wallet.migrations.mode=verify: не удалось сверить схему с changelog", e);
+        }
+
+        if (!pending.isEmpty()) {
+            throw new IllegalStateException("wallet.migrations.mode=verify: не применены " + pending
+                    + " — сначала запустите MigrationJob");
+        }
+        log.info("wallet.migrations.mode=verify: схема соответствует changelog");
+    }
+
+    /**
+     * validate через командный API (контрольные суммы) и список неприменённых changeset-ов команды status.
+     * Таблицы Liquibase уже есть, поэтому инициализация, которую делают команды, в БД ничего не пишет.
+     */
+    private static void verifyChangeLog(SpringLiquibase liquibase, Map<String, String> parameters, Database database,
+                                        List<String> pending) throws Exception {
+        ResourceLoader resourceLoader = liquibase.getResourceLoader() != null
+                ? liquibase.getResourceLoader() : new DefaultResourceLoader();
+        Map<String, Object> scope = Map.of(
+                Scope.Attr.resourceAccessor.name(), new SpringResourceAccessor(resourceLoader),
+                Scope.Attr.ui.name(), new LoggerUIService());
+        Scope.child(scope, () -> {
+            Contexts contexts = new Contexts(liquibase.getContexts());
+            LabelExpression labels = new LabelExpression(liquibase.getLabelFilter());
+            ChangeLogParameters changeLogParameters = new ChangeLogParameters(database);
+            parameters.forEach(changeLogParameters::set);
+            changeLogParameters.setContexts(contexts);
+            changeLogParameters.setLabels(labels);
+            DatabaseChangeLog changeLog = DatabaseChangelogCommandStep.getDatabaseChangeLog(
+                    liquibase.getChangeLog(), changeLogParameters, database);
+
+            // контрольные суммы применённых changeset-ов
+            new CommandScope(ValidateCommandStep.COMMAND_NAME)
+                    .addArgumentValue(DbUrlConnectionCommandStep.DATABASE_ARG, database)
+                    .addArgumentValue(DatabaseChangelogCommandStep.CHANGELOG_ARG, changeLog)
+                    .addArgumentValue(DatabaseChangelogCommandStep.CHANGELOG_PARAMETERS, changeLogParameters)
+                    .setOutput(OutputStream.nullOutputStream())
+                    .execute();
+
+            // тот же список, что печатает команда status
+            for (ChangeSet changeSet : new StatusCommandStep().listUnrunChangeSets(
+                    contexts, labels, changeLog, database)) {
+                if (wouldRun(changeSet, database, changeLog)) {
+                    pending.add(changeSet.toString(false));
+                }
+            }
+        });
+    }
+
+    /**
+     * Неприменённый changeset, чьё предусловие не выполнено с onFail CONTINUE или MARK_RAN, update пропустил бы
+     * (так ведёт себя 006-money-minor-units при wallet.money.minor-units=false).
+     */
+    private static boolean wouldRun(ChangeSet changeSet, Database database, DatabaseChangeLog changeLog)
+            throws LiquibaseException {
+        PreconditionContainer preconditions = changeSet.getPreconditions();
+        if (preconditions == null) {
+            return true;
+        }
+        try {
+            preconditions.check(database, changeLog, changeSet, null);
+            return true;
+        } catch (PreconditionFailedException e) {
+            return switch (preconditions.getOnFail()) {
+                case CONTINUE, MARK_RAN -> false;
+                default -> true;
+            };
+        } catch (PreconditionErrorException e) {
+            // update остановился бы на ошибке предусловия (onError по умолчанию HALT)
+            return true;
+        }
+    }
+}
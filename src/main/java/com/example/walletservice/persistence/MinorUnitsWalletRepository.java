@@ -0,0 +1,126 @@
+package com.example.walletservice.persistence;
+
+import com.example.walletservice.error.BalanceOverflowException;
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * {@link WalletRepository#findBalance} и {@link WalletRepository#applyDelta(UUID, java.math.BigDecimal)}
+ * для схемы в копейках (bigint, changeset 006-money-minor-units): параметры и результаты — long.
+ *
+ * Переполнение bigint Postgres не округляет, а отклоняет (SQLSTATE 22003) — это
+ * {@link BalanceOverflowException}, стейтмент откатывается целиком.
+ */
+@Repository
+@ConditionalOnProperty(name = "wallet.money.minor-units", havingValue = "true")
+public class MinorUnitsWalletRepository {
+
+    private static final String NUMERIC_VALUE_OUT_OF_RANGE = "22003";
+
+    public record ApplyResult(ApplyDeltaStatus status, long balance) {
+        private static final ApplyResult WALLET_NOT_FOUND = new ApplyResult(ApplyDeltaStatus.WALLET_NOT_FOUND, 0);
+        private static final ApplyResult INSUFFICIENT_FUNDS = new ApplyResult(ApplyDeltaStatus.INSUFFICIENT_FUNDS, 0);
+
+        public static ApplyResult updated(long balance) {
+            return new ApplyResult(ApplyDeltaStatus.UPDATED, balance);
+        }
+
+        public static ApplyResult walletNotFound() {
+            return WALLET_NOT_FOUND;
+        }
+
+        public static ApplyResult insufficientFunds() {
+            return INSUFFICIENT_FUNDS;
+        }
+    }
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public MinorUnitsWalletRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public OptionalLong findBalance(UUID walletId) {
+        // sum(bigint) — numeric; приводим обратно, переполнение суммы тоже даёт 22003
+        String sql = """
+            SELECT w.balance + COALESCE((SELECT sum(s.balance) FROM wallet_slots s WHERE s.wallet_id = w.id), 0)::bigint
+            FROM wallets w
+            WHERE w.id = :id
+            """;
+        var params = new MapSqlParameterSource("id", walletId);
+
+        try {
+            return jdbc.query(sql, params, rs -> rs.next() ? OptionalLong.of(rs.getLong(1)) : OptionalLong.empty());
+        } catch (DataAccessException e) {
+            throw translateOverflow(e, walletId);
+        }
+    }
+
+    public ApplyResult applyDelta(UUID walletId, long delta) {
+        String sql = """
+            WITH wallet AS (
+                SELECT 1 AS exists
+                FROM wallets
+                WHERE id = :id
+            ),
+            upd AS (
+                UPDATE wallets
+                SET balance = balance + :delta
+                WHERE id = :id
+                  AND balance + :delta >= 0
+                RETURNING id, balance
+            ),
+            ledger AS (
+                INSERT INTO wallet_transactions (wallet_id, delta, balance_after)
+                SELECT id, :delta, balance FROM upd
+            )
+            SELECT
+              (SELECT balance FROM upd)   AS balance,
+              (SELECT exists  FROM wallet) AS exists
+            """;
+
+        var params = new MapSqlParameterSource()
+                .addValue("id", walletId)
+                .addValue("delta", delta);
+
+        try {
+            return jdbc.query(sql, params, MinorUnitsWalletRepository::toApplyResult);
+        } catch (DataAccessException e) {
+            throw translateOverflow(e, walletId);
+        }
+    }
+
+    private static ApplyResult toApplyResult(ResultSet rs) throws SQLException {
+        rs.next(); // SELECT без FROM всегда возвращает 1 строку
+
+        long balance = rs.getLong("balance");
+        boolean updated = !rs.wasNull();
+        rs.getInt("exists");
+        boolean exists = !rs.wasNull();
+
+        if (!exists) {
+            return ApplyResult.walletNotFound();
+        }
+        if (!updated) {
+            return ApplyResult.insufficientFunds();
+        }
+        return ApplyResult.updated(balance);
+    }
+
+    private static RuntimeException translateOverflow(DataAccessException e, UUID walletId) {
+        if (e.getMostSpecificCause() instanceof SQLException sql
+                && NUMERIC_VALUE_OUT_OF_RANGE.equals(sql.getSQLState())) {
+            return new BalanceOverflowException(walletId);
+        }
+        return e;
+    }
+}
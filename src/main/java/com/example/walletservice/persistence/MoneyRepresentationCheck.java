@@ -0,0 +1,76 @@
+package com.example.walletservice.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Проверяет при старте, что тип wallets.balance совпадает с wallet.money.minor-units.
+ *
+ * Обе схемы принимают одни и те же SQL-стейтменты, поэтому без проверки приложение в режиме numeric
+ * над bigint-схемой (или наоборот) работало бы, ошибаясь в 100 раз.
+ *
+ * Проверка идёт на старте компонентов, раньше веб-сервера, а не при создании бина: тренировочный запуск AppCDS
+ * (spring.context.exit=onRefresh, см. Dockerfile) поднимает контекст без БД и завершается до этой фазы.
+ */
+@Component
+public class MoneyRepresentationCheck implements SmartLifecycle {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final boolean minorUnits;
+    private volatile boolean running;
+
+    public MoneyRepresentationCheck(
+            NamedParameterJdbcTemplate jdbc,
+            @Value("${wallet.money.minor-units:false}") boolean minorUnits
+    ) {
+        this.jdbc = jdbc;
+        this.minorUnits = minorUnits;
+    }
+
+    @Override
+    public void start() {
+        verify();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    void verify() {
+        List<String> types = jdbc.queryForList("""
+                SELECT data_type
+                FROM information_schema.columns
+                WHERE table_schema = current_schema()
+                  AND table_name = 'wallets'
+                  AND column_name = 'balance'
+                """, new MapSqlParameterSource(), String.class);
+        if (types.isEmpty()) {
+            return; // схема ещё не создана (Liquibase выключен)
+        }
+
+        boolean bigint = "bigint".equals(types.get(0));
+        if (bigint != minorUnits) {
+            throw new IllegalStateException(
+                    "wallet.money.minor-units=" + minorUnits + ", но wallets.balance имеет тип " + types.get(0)
+                            + (bigint ? ": схема уже переведена в копейки (changeset 006-money-minor-units необратим)"
+                                      : ": миграция 006-money-minor-units ещё не применена"));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.walletservice.persistence;
+
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaResult;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * R2DBC-порт {@link WalletRepository#findBalance} и {@link WalletRepository#applyDelta} для reactive-варианта API.
+ *
+ * Пул R2DBC принадлежит репозиторию и не публикуется как бин ConnectionFactory: иначе Spring Boot
+ * не создаст JDBC DataSource, на котором работают Liquibase и фоновые задачи.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWalletRepository implements DisposableBean {
+
+    private final ConnectionPool pool;
+    private final DatabaseClient db;
+
+    public ReactiveWalletRepository(
+            @Value("${wallet.reactive.r2dbc-url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${wallet.reactive.pool-size:20}") int poolSize,
+            @Value("${wallet.reactive.acquire-timeout:2s}") Duration acquireTimeout,
+            @Value("${wallet.money.minor-units:false}") boolean minorUnits,
+            @Value("${wallet.striping.wallet-ids:}") Set<UUID> stripedWalletIds
+    ) {
+        if (minorUnits) {
+            throw new IllegalStateException("reactive-вариант не поддерживает wallet.money.minor-units=true");
+        }
+        // applyDelta проверяет только wallets.balance: средства в wallet_slots списание бы не увидело
+        if (!stripedWalletIds.isEmpty()) {
+            throw new IllegalStateException("reactive-вариант не поддерживает wallet.striping.wallet-ids");
+        }
+        var options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(Math.min(poolSize, 10))
+                .maxSize(poolSize)
+                .maxAcquireTime(acquireTimeout)
+                .build());
+        this.db = DatabaseClient.create(pool);
+    }
+
+    public Mono<BigDecimal> findBalance(UUID walletId) {
+        String sql = """
+            SELECT w.balance + COALESCE((SELECT sum(s.balance) FROM wallet_slots s WHERE s.wallet_id = w.id), 0) AS balance
+            FROM wallets w
+            WHERE w.id = :id
+            """;
+
+        return db.sql(sql)
+                .bind("id", walletId)
+                .map(row -> row.get("balance", BigDecimal.class))
+                .one();
+    }
+
+    /**
+     * Тот же CTE, что и в {@link WalletRepository#applyDelta(UUID, BigDecimal)}, включая запись в журнал.
+     */
+    public Mono<ApplyDeltaResult> applyDelta(UUID walletId, BigDecimal delta) {
+        String sql = """
+            WITH wallet AS (
+                SELECT 1 AS exists
+                FROM wallets
+                WHERE id = :id
+            ),
+            upd AS (
+                UPDATE wallets
+                SET balance = balance + :delta
+                WHERE id = :id
+                  AND balance + :delta >= 0
+                RETURNING id, balance
+            ),
+            ledger AS (
+                INSERT INTO wallet_transactions (wallet_id, delta, balance_after)
+                SELECT id, :delta, balance FROM upd
+            )
+            SELECT
+              (SELECT balance FROM upd)   AS balance,
+              (SELECT exists  FROM wallet) AS exists
+            """;
+
+        return db.sql(sql)
+                .bind("id", walletId)
+                .bind("delta", delta)
+                .map(row -> {
+                    BigDecimal balance = row.get("balance", BigDecimal.class);
+                    Integer exists = row.get("exists", Integer.class);
+
+                    if (exists == null) {
+                        return ApplyDeltaResult.walletNotFound();
+                    }
+                    if (balance == null) {
+                        return ApplyDeltaResult.insufficientFunds();
+                    }
+                    return ApplyDeltaResult.updated(balance);
+                })
+                .one();
+    }
+
+    @Override
+    public void destroy() {
+        pool.dispose();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.walletservice.persistence;
+
+/**
+ * Требование к чтению баланса в текущем потоке (запросе), если включены реплики ({@link ReplicaDataSources}):
+ * - по умолчанию — любая здоровая реплика, отставание не больше wallet.replicas.max-lag;
+ * - {@link #pinPrimary()} — только primary;
+ * - {@link #requireLsn(long)} — реплика, воспроизведшая WAL до этого LSN (read-your-writes по X-Wallet-Lsn
+ *   из ответа на запись); если она не догонит за wallet.replicas.max-wait — primary.
+ *
+ * Выставляется {@code ReadConsistencyInterceptor} из заголовков запроса и сбрасывается после него.
+ */
+public final class ReadConsistency {
+
+    static final long ANY = 0;
+    static final long PRIMARY = -1;
+
+    private static final ThreadLocal<long[]> MIN_LSN = ThreadLocal.withInitial(() -> new long[]{ANY});
+
+    private ReadConsistency() {
+    }
+
+    public static void pinPrimary() {
+        MIN_LSN.get()[0] = PRIMARY;
+    }
+
+    public static void requireLsn(long lsn) {
+        MIN_LSN.get()[0] = lsn;
+    }
+
+    public static void reset() {
+        MIN_LSN.get()[0] = ANY;
+    }
+
+    /** {@link #ANY}, {@link #PRIMARY} или минимальный LSN. */
+    static long current() {
+        return MIN_LSN.get()[0];
+    }
+
+    /**
+     * LSN в текстовом виде Postgres ("16/B374D848") -> число для сравнения.
+     *
+     * @throws IllegalArgumentException не LSN
+     */
+    public static long parseLsn(String text) {
+        int slash = text.indexOf('/');
+        if (slash <= 0 || slash == text.length() - 1) {
+            throw new IllegalArgumentException("не LSN: " + text);
+        }
+        long hi = Long.parseLong(text.substring(0, slash), 16);
+        long lo = Long.parseLong(text.substring(slash + 1), 16);
+        if (hi < 0 || hi > 0xFFFFFFFFL || lo < 0 || lo > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("не LSN: " + text);
+        }
+        return (hi << 32) | lo;
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.walletservice.persistence;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Реплики для чтения балансов (wallet.replicas.urls — JDBC URL через запятую; пусто — компонента нет).
+ *
+ * {@link #routingDataSource()} выбирает источник на каждом getConnection: здоровые реплики по кругу, иначе primary.
+ * Здоровье проверяется раз в wallet.replicas.health-check-interval: реплика отвечает, и её отставание
+ * не больше wallet.replicas.max-lag. Отставание меряется от primary: при каждой проверке запоминается позиция WAL
+ * на primary, и отставание реплики — время, прошедшее с момента, когда primary был впереди её replay LSN.
+ * Реплика, потерявшая соединение с primary, поэтому отстаёт всё больше, как только на primary появляются записи;
+ * недоступный primary не даёт подтвердить свежесть, и отставание растёт с последней удачной проверки.
+ * Требования к конкретному чтению (primary, минимальный LSN) — в {@link ReadConsistency}.
+ *
+ * Записи сюда не попадают: applyDelta и остальные записи идут через основной DataSource.
+ *
+ * Метрики: wallet.replica.healthy{replica}, wallet.replica.lag{replica} (секунды),
+ * wallet.replica.reads{target=replica|primary}.
+ */
+@Component
+@ConditionalOnExpression("!'${wallet.replicas.urls:}'.isBlank()")
+public class ReplicaDataSources {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaDataSources.class);
+    private static final String PRIMARY_KEY = "primary";
+
+    private static final String PRIMARY_LSN_SQL = "SELECT pg_current_wal_flush_lsn()::text";
+    private static final String REPLAY_LSN_SQL =
+            "SELECT CASE WHEN pg_is_in_recovery() THEN pg_last_wal_replay_lsn() ELSE pg_current_wal_lsn() END::text";
+    /** Граница истории позиций primary: при интервале проверок 2 с — больше пяти часов. */
+    private static final int MAX_SAMPLES = 10_000;
+
+    /** Позиция WAL на primary в момент проверки. */
+    private record WalSample(long lsn, long nanos) {
+    }
+
+    private static final class Replica {
+        final int index;
+        final HikariDataSource dataSource;
+        final JdbcTemplate jdbc;
+        volatile boolean healthy;
+        volatile double lagSeconds = Double.NaN;
+        volatile long replayLsn;
+
+        Replica(int index, HikariDataSource dataSource, Duration checkTimeout) {
+            this.index = index;
+            this.dataSource = dataSource;
+            this.jdbc = new JdbcTemplate(dataSource);
+            this.jdbc.setQueryTimeout((int) Math.max(1, checkTimeout.toSeconds()));
+        }
+    }
+
+    private final List<Replica> replicas = new ArrayList<>();
+    // пишется и читается только в checkHealth; позиции не убывают
+    private final ArrayDeque<WalSample> primarySamples = new ArrayDeque<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final JdbcTemplate primaryJdbc;
+    private final DataSource routing;
+    private final double maxLagSeconds;
+    private final long maxWaitNanos;
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+
+    public ReplicaDataSources(
+            DataSource primary,
+            MeterRegistry registry,
+            @Value("${wallet.replicas.urls}") String urls,
+            @Value("${wallet.replicas.username:${spring.datasource.username}}") String username,
+            @Value("${wallet.replicas.password:${spring.datasource.password}}") String password,
+            @Value("${wallet.replicas.pool-size:20}") int poolSize,
+            @Value("${wallet.replicas.connection-timeout:1s}") Duration connectionTimeout,
+            @Value("${wallet.replicas.max-lag:5s}") Duration maxLag,
+            @Value("${wallet.replicas.max-wait:200ms}") Duration maxWait
+    ) {
+        this.primaryJdbc = new JdbcTemplate(primary);
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.maxWaitNanos = maxWait.toNanos();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY_KEY, primary);
+        for (String url : urls.split(",")) {
+            if (url.isBlank()) {
+                continue;
+            }
+            int index = replicas.size();
+            var ds = new HikariDataSource();
+            ds.setPoolName("replica-" + index);
+            ds.setJdbcUrl(url.trim());
+            ds.setUsername(username);
+            ds.setPassword(password);
+            ds.setMaximumPoolSize(poolSize);
+            ds.setConnectionTimeout(connectionTimeout.toMillis());
+            ds.setReadOnly(true);
+            // недоступная реплика не должна мешать старту: пул откроется при первой проверке
+            ds.setInitializationFailTimeout(-1);
+            Replica replica = new Replica(index, ds, connectionTimeout);
+            replicas.add(replica);
+            targets.put(index, ds);
+
+            Gauge.builder("wallet.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .description("Реплика получает чтения (1) или исключена (0)")
+                    .tag("replica", String.valueOf(index))
+                    .register(registry);
+            Gauge.builder("wallet.replica.lag", replica, r -> r.lagSeconds)
+                    .description("Отставание реплики, секунды")
+                    .tag("replica", String.valueOf(index))
+                    .register(registry);
+        }
+
+        var router = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return route();
+            }
+        };
+        router.setTargetDataSources(targets);
+        router.setDefaultTargetDataSource(primary);
+        router.setLenientFallback(false);
+        router.afterPropertiesSet();
+        this.routing = router;
+
+        this.replicaReads = Counter.builder("wallet.replica.reads")
+                .description("Чтения балансов по источнику")
+                .tag("target", "replica")
+                .register(registry);
+        this.primaryReads = Counter.builder("wallet.replica.reads")
+                .description("Чтения балансов по источнику")
+                .tag("target", "primary")
+                .register(registry);
+
+        checkHealth();
+    }
+
+    /** Источник для чтений балансов. */
+    public DataSource routingDataSource() {
+        return routing;
+    }
+
+    /** Текущая позиция WAL на primary — не меньше конца только что зафиксированной транзакции. */
+    public String primaryLsn() {
+        return primaryJdbc.queryForObject("SELECT pg_current_wal_insert_lsn()::text", String.class);
+    }
+
+    private Object route() {
+        long minLsn = ReadConsistency.current();
+        if (minLsn != ReadConsistency.PRIMARY) {
+            int n = replicas.size();
+            int start = Math.floorMod(next.getAndIncrement(), n);
+            for (int i = 0; i < n; i++) {
+                Replica replica = replicas.get((start + i) % n);
+                if (replica.healthy) {
+                    // ждём только первую здоровую реплику: ожидание ограничено max-wait, а не max-wait * n
+                    if (minLsn == ReadConsistency.ANY || awaitReplay(replica, minLsn)) {
+                        replicaReads.increment();
+                        return replica.index;
+                    }
+                    break;
+                }
+            }
+        }
+        primaryReads.increment();
+        return PRIMARY_KEY;
+    }
+
+    private boolean awaitReplay(Replica replica, long minLsn) {
+        if (replica.replayLsn >= minLsn) {
+            return true;
+        }
+        long deadline = System.nanoTime() + maxWaitNanos;
+        try {
+            while (true) {
+                long lsn = ReadConsistency.parseLsn(replica.jdbc.queryForObject(REPLAY_LSN_SQL, String.class));
+                replica.replayLsn = Math.max(replica.replayLsn, lsn);
+                if (lsn >= minLsn) {
+                    return true;
+                }
+                if (System.nanoTime() >= deadline) {
+                    return false;
+                }
+                LockSupport.parkNanos(Duration.ofMillis(5).toNanos());
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.replicas.health-check-interval:PT2S}")
+    void checkHealth() {
+        // позиция primary снимается до опроса реплик: реплика, догнавшая её, догнала primary на момент проверки
+        samplePrimary();
+        long now = System.nanoTime();
+        for (Replica replica : replicas) {
+            boolean wasHealthy = replica.healthy;
+            try {
+                long lsn = ReadConsistency.parseLsn(replica.jdbc.queryForObject(REPLAY_LSN_SQL, String.class));
+                replica.replayLsn = Math.max(replica.replayLsn, lsn);
+                replica.lagSeconds = lagSeconds(replica.replayLsn, now);
+                replica.healthy = replica.lagSeconds <= maxLagSeconds;
+            } catch (RuntimeException e) {
+                replica.healthy = false;
+                replica.lagSeconds = Double.NaN;
+            }
+            if (wasHealthy && !replica.healthy) {
+                log.warn("replica-{} excluded from reads (lag={}s)", replica.index, replica.lagSeconds);
+            } else if (!wasHealthy && replica.healthy) {
+                log.info("replica-{} serves reads (lag={}s)", replica.index, replica.lagSeconds);
+            }
+        }
+    }
+
+    private void samplePrimary() {
+        try {
+            long lsn = ReadConsistency.parseLsn(primaryJdbc.queryForObject(PRIMARY_LSN_SQL, String.class));
+            primarySamples.addLast(new WalSample(lsn, System.nanoTime()));
+        } catch (RuntimeException e) {
+            log.warn("replica health: primary WAL position unavailable", e);
+        }
+        // позиции, которые воспроизвели все реплики, для расчёта больше не нужны (последнюю оставляем)
+        long minReplayed = replicas.stream().mapToLong(r -> r.replayLsn).min().orElse(Long.MAX_VALUE);
+        while (primarySamples.size() > 1
+                && (primarySamples.peekFirst().lsn() <= minReplayed || primarySamples.size() > MAX_SAMPLES)) {
+            primarySamples.pollFirst();
+        }
+    }
+
+    /**
+     * Сколько времени primary впереди реплики: с первой запомненной позиции primary, которую реплика ещё не
+     * воспроизвела. Реплика догнала все позиции — с последней из них (позже неё свежесть не подтверждена).
+     */
+    private double lagSeconds(long replayLsn, long now) {
+        WalSample last = primarySamples.peekLast();
+        if (last == null) {
+            return Double.NaN;
+        }
+        long since = last.nanos();
+        for (WalSample sample : primarySamples) {
+            if (sample.lsn() > replayLsn) {
+                since = sample.nanos();
+                break;
+            }
+        }
+        return (now - since) / 1e9;
+    }
+
+    @PreDestroy
+    void close() {
+        replicas.forEach(r -> r.dataSource.close());
+    }
+}
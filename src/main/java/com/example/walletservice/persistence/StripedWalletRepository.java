@@ -0,0 +1,217 @@
+package com.example.walletservice.persistence;
+
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaResult;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Доступ к «полосатым» кошелькам: баланс разнесён по N строкам wallet_slots,
+ * итоговый баланс = wallets.balance + sum(wallet_slots.balance).
+ *
+ * Запись в горячий кошелёк идёт в разные строки и не выстраивается в очередь на один row lock.
+ * Неотрицательность обеспечивается CHECK-ограничением на каждом слоте.
+ *
+ * Возвращаемый после операции баланс — сумма на момент стейтмента плюс собственное изменение;
+ * конкурентные изменения других слотов в него могут не попасть. По той же причине
+ * balance_after в журнале пишется только для полного обхода, когда заблокированы все слоты.
+ */
+@Repository
+public class StripedWalletRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public StripedWalletRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Создаёт недостающие слоты 0..slots-1. Существующий баланс остаётся в wallets.balance
+     * и продолжает учитываться в сумме, поэтому перенос денег не нужен.
+     */
+    public void ensureSlots(UUID walletId, int slots) {
+        String sql = """
+            INSERT INTO wallet_slots (wallet_id, slot, balance)
+            SELECT w.id, g.slot, 0
+            FROM wallets w
+            CROSS JOIN generate_series(0, :slots - 1) AS g(slot)
+            WHERE w.id = :id
+            ON CONFLICT (wallet_id, slot) DO NOTHING
+            """;
+
+        var params = new MapSqlParameterSource()
+                .addValue("id", walletId)
+                .addValue("slots", slots);
+        jdbc.update(sql, params);
+    }
+
+    /**
+     * Зачисление в один слот.
+     * Возвращает null, если такого слота нет (слоты ещё не созданы) — тогда вызывающий
+     * идёт обычным путём через wallets.balance.
+     */
+    public ApplyDeltaResult deposit(UUID walletId, int slot, BigDecimal amount) {
+        String sql = """
+            WITH upd AS (
+                UPDATE wallet_slots
+                SET balance = balance + :amount
+                WHERE wallet_id = :id
+                  AND slot = :slot
+                RETURNING wallet_id
+            ),
+            ledger AS (
+                INSERT INTO wallet_transactions (wallet_id, delta)
+                SELECT wallet_id, :amount FROM upd
+            )
+            SELECT
+              (SELECT count(*) FROM upd) AS updated,
+              w.balance + COALESCE((SELECT sum(s.balance) FROM wallet_slots s WHERE s.wallet_id = w.id), 0) AS total
+            FROM wallets w
+            WHERE w.id = :id
+            """;
+
+        var params = new MapSqlParameterSource()
+                .addValue("id", walletId)
+                .addValue("slot", slot)
+                .addValue("amount", amount);
+
+        return jdbc.query(sql, params, rs -> {
+            if (!rs.next()) {
+                return ApplyDeltaResult.walletNotFound();
+            }
+            if (rs.getInt("updated") == 0) {
+                return null;
+            }
+            // сумма посчитана по снимку до собственного UPDATE
+            return ApplyDeltaResult.updated(rs.getBigDecimal("total").add(amount));
+        });
+    }
+
+    /**
+     * Списание: сначала пробуем один слот, которого хватает и который никем не заблокирован
+     * (SKIP LOCKED — не ждём чужие транзакции). Если такого нет — полный обход:
+     * блокируем строку кошелька и все слоты в порядке slot и списываем с нескольких.
+     *
+     * Порядок блокировок (wallets, затем слоты по возрастанию) одинаков у всех обходов,
+     * а зачисления и одиночные списания держат не больше одной строки — дедлоков нет.
+     */
+    @Transactional
+    public ApplyDeltaResult withdraw(UUID walletId, BigDecimal amount) {
+        var params = new MapSqlParameterSource()
+                .addValue("id", walletId)
+                .addValue("amount", amount);
+
+        String singleSlot = """
+            WITH pick AS (
+                SELECT slot
+                FROM wallet_slots
+                WHERE wallet_id = :id
+                  AND balance >= :amount
+                ORDER BY random()
+                LIMIT 1
+                FOR UPDATE SKIP LOCKED
+            ),
+            upd AS (
+                UPDATE wallet_slots s
+                SET balance = s.balance - :amount
+                FROM pick
+                WHERE s.wallet_id = :id
+                  AND s.slot = pick.slot
+                RETURNING s.wallet_id
+            )
+            INSERT INTO wallet_transactions (wallet_id, delta)
+            SELECT wallet_id, -:amount FROM upd
+            """;
+
+        if (jdbc.update(singleSlot, params) == 0) {
+            return sweep(walletId, amount);
+        }
+        return ApplyDeltaResult.updated(findBalance(walletId));
+    }
+
+    private ApplyDeltaResult sweep(UUID walletId, BigDecimal amount) {
+        var idParam = new MapSqlParameterSource("id", walletId);
+
+        List<BigDecimal> walletRow = jdbc.queryForList(
+                "SELECT balance FROM wallets WHERE id = :id FOR UPDATE",
+                idParam,
+                BigDecimal.class
+        );
+        if (walletRow.isEmpty()) {
+            return ApplyDeltaResult.walletNotFound();
+        }
+
+        List<SlotBalance> slots = jdbc.query(
+                "SELECT slot, balance FROM wallet_slots WHERE wallet_id = :id ORDER BY slot FOR UPDATE",
+                idParam,
+                (rs, rowNum) -> new SlotBalance(rs.getInt("slot"), rs.getBigDecimal("balance"))
+        );
+
+        BigDecimal total = walletRow.get(0);
+        for (SlotBalance s : slots) {
+            total = total.add(s.balance());
+        }
+        if (total.compareTo(amount) < 0) {
+            return ApplyDeltaResult.insufficientFunds();
+        }
+
+        BigDecimal remaining = amount;
+
+        BigDecimal fromWallet = walletRow.get(0).min(remaining);
+        if (fromWallet.signum() > 0) {
+            jdbc.update(
+                    "UPDATE wallets SET balance = balance - :take WHERE id = :id",
+                    new MapSqlParameterSource("id", walletId).addValue("take", fromWallet)
+            );
+            remaining = remaining.subtract(fromWallet);
+        }
+
+        List<MapSqlParameterSource> updates = new ArrayList<>();
+        for (SlotBalance s : slots) {
+            if (remaining.signum() == 0) {
+                break;
+            }
+            BigDecimal take = s.balance().min(remaining);
+            if (take.signum() > 0) {
+                updates.add(new MapSqlParameterSource()
+                        .addValue("id", walletId)
+                        .addValue("slot", s.slot())
+                        .addValue("take", take));
+                remaining = remaining.subtract(take);
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbc.batchUpdate(
+                    "UPDATE wallet_slots SET balance = balance - :take WHERE wallet_id = :id AND slot = :slot",
+                    updates.toArray(MapSqlParameterSource[]::new)
+            );
+        }
+
+        BigDecimal after = total.subtract(amount);
+        jdbc.update(
+                "INSERT INTO wallet_transactions (wallet_id, delta, balance_after) VALUES (:id, :delta, :after)",
+                new MapSqlParameterSource()
+                        .addValue("id", walletId)
+                        .addValue("delta", amount.negate())
+                        .addValue("after", after)
+        );
+
+        return ApplyDeltaResult.updated(after);
+    }
+
+    private BigDecimal findBalance(UUID walletId) {
+        return jdbc.queryForObject("""
+                SELECT w.balance + COALESCE((SELECT sum(s.balance) FROM wallet_slots s WHERE s.wallet_id = w.id), 0)
+                FROM wallets w
+                WHERE w.id = :id
+                """, new MapSqlParameterSource("id", walletId), BigDecimal.class);
+    }
+
+    private record SlotBalance(int slot, BigDecimal balance) {}
+}
@@ -0,0 +1,111 @@
+package com.example.walletservice.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Чтение всех балансов для выгрузки по порядку id. Балансы отдаются текстом из Postgres
+ * (без UUID/BigDecimal на строку), «полосатые» кошельки — с суммой слотов, как в {@link WalletRepository#findBalance}.
+ *
+ * - consistent = false: keyset-пагинация (WHERE id > :last ORDER BY id LIMIT pageSize). Каждая страница —
+ *   отдельный короткий запрос; соединение возвращается в пул до записи страницы клиенту, долгой транзакции
+ *   (и удержания vacuum) нет. Выгрузка не является снимком: кошельки, созданные во время неё, могут попасть в неё.
+ * - consistent = true: одна транзакция REPEATABLE READ READ ONLY и серверный курсор (fetchSize строк за раз) —
+ *   снимок на момент первого запроса. Соединение занято до конца выгрузки, в т.ч. пока медленный клиент читает.
+ *
+ * Блокировок строк нет в обоих режимах; память — одна страница (fetchSize / pageSize строк).
+ */
+@Repository
+public class WalletExportRepository {
+
+    @FunctionalInterface
+    public interface RowHandler {
+        void row(String walletId, String balance) throws IOException;
+    }
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate snapshotTx;
+    private final int pageSize;
+    private final String balanceExpr;
+
+    public WalletExportRepository(
+            DataSource dataSource,
+            PlatformTransactionManager txManager,
+            @Value("${wallet.export.fetch-size:10000}") int fetchSize,
+            @Value("${wallet.export.page-size:10000}") int pageSize,
+            @Value("${wallet.money.minor-units:false}") boolean minorUnits
+    ) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(fetchSize);
+        this.snapshotTx = new TransactionTemplate(txManager);
+        this.snapshotTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTx.setReadOnly(true);
+        this.pageSize = pageSize;
+        String total = "w.balance + COALESCE((SELECT sum(s.balance) FROM wallet_slots s WHERE s.wallet_id = w.id), 0)";
+        // в режиме копеек на выходе то же десятичное число, что и в API
+        this.balanceExpr = minorUnits ? "((" + total + ")::numeric / 100)::numeric(21,2)::text" : "(" + total + ")::text";
+    }
+
+    public void export(boolean consistent, RowHandler handler) {
+        if (consistent) {
+            exportSnapshot(handler);
+        } else {
+            exportKeyset(handler);
+        }
+    }
+
+    private void exportSnapshot(RowHandler handler) {
+        String sql = "SELECT w.id::text, " + balanceExpr + " FROM wallets w ORDER BY w.id";
+        snapshotTx.executeWithoutResult(status -> jdbc.query(sql, rs -> {
+            try {
+                handler.row(rs.getString(1), rs.getString(2));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+
+    private void exportKeyset(RowHandler handler) {
+        String first = "SELECT w.id::text, " + balanceExpr + " FROM wallets w ORDER BY w.id LIMIT ?";
+        String next = "SELECT w.id::text, " + balanceExpr + " FROM wallets w WHERE w.id > ?::uuid ORDER BY w.id LIMIT ?";
+
+        String[] ids = new String[pageSize];
+        String[] balances = new String[pageSize];
+        String last = null;
+        while (true) {
+            int[] count = {0};
+            RowCallbackHandler collect = rs -> {
+                ids[count[0]] = rs.getString(1);
+                balances[count[0]] = rs.getString(2);
+                count[0]++;
+            };
+            if (last == null) {
+                jdbc.query(first, collect, pageSize);
+            } else {
+                jdbc.query(next, collect, last, pageSize);
+            }
+
+            // соединение уже в пуле: запись клиенту его не держит
+            try {
+                for (int i = 0; i < count[0]; i++) {
+                    handler.row(ids[i], balances[i]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (count[0] < pageSize) {
+                return;
+            }
+            last = ids[count[0] - 1];
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.walletservice.persistence;
+
+import com.example.walletservice.error.WalletImportInvalidException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.util.PSQLException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Массовое создание кошельков через COPY: загрузка потоком уходит в Postgres кусками по bufferSize байт,
+ * без INSERT на строку и без буферизации файла в памяти.
+ *
+ * Порядок в одной транзакции: COPY во временную таблицу wallet_import (ON COMMIT DROP) -> проверка строк ->
+ * INSERT ... SELECT ... ON CONFLICT (id) DO NOTHING в wallets с записью начального баланса в журнал.
+ * Существующие кошельки (и повторы id внутри файла) не меняются и считаются пропущенными.
+ */
+@Repository
+public class WalletImportRepository {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    public record ImportResult(long received, long created) {
+        public long skipped() {
+            return received - created;
+        }
+    }
+
+    private static final String CREATE_STAGING_SQL = """
+            CREATE TEMP TABLE wallet_import (
+              line    bigint GENERATED ALWAYS AS IDENTITY,
+              id      uuid,
+              balance numeric
+            ) ON COMMIT DROP
+            """;
+
+    // HEADER MATCH: первая строка CSV обязана быть "id,balance"
+    private static final String COPY_CSV_SQL =
+            "COPY wallet_import (id, balance) FROM STDIN WITH (FORMAT csv, HEADER MATCH)";
+    private static final String COPY_NDJSON_SQL =
+            "COPY wallet_import (id, balance) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String FIRST_INVALID_SQL = """
+            SELECT line,
+                   CASE
+                     WHEN id IS NULL THEN 'id обязателен'
+                     WHEN balance IS NULL THEN 'balance обязателен'
+                     WHEN balance < 0 THEN 'balance не может быть отрицательным'
+                     WHEN scale(balance) > 2 THEN 'balance: максимум 2 знака после запятой'
+                     ELSE 'balance: максимум 17 знаков до запятой'
+                   END AS reason
+            FROM wallet_import
+            WHERE id IS NULL
+               OR balance IS NULL
+               OR balance < 0
+               OR scale(balance) > 2
+               OR balance >= 1e17
+            ORDER BY line
+            LIMIT 1
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final DataSource dataSource;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final int bufferSize;
+    private final String mergeSql;
+
+    public WalletImportRepository(
+            NamedParameterJdbcTemplate jdbc,
+            DataSource dataSource,
+            @Value("${wallet.import.buffer-size:65536}") int bufferSize,
+            @Value("${wallet.money.minor-units:false}") boolean minorUnits
+    ) {
+        this.jdbc = jdbc;
+        this.dataSource = dataSource;
+        this.bufferSize = bufferSize;
+        String balance = minorUnits ? "(s.balance * 100)::bigint" : "s.balance";
+        this.mergeSql = """
+                WITH created AS (
+                    INSERT INTO wallets (id, balance)
+                    SELECT s.id, %s
+                    FROM wallet_import s
+                    ORDER BY s.line
+                    ON CONFLICT (id) DO NOTHING
+                    RETURNING id, balance
+                ),
+                ledger AS (
+                    INSERT INTO wallet_transactions (wallet_id, delta, balance_after)
+                    SELECT id, balance, balance FROM created WHERE balance > 0
+                )
+                SELECT count(*) FROM created
+                """.formatted(balance);
+    }
+
+    /**
+     * @throws WalletImportInvalidException строка файла не разбирается или не проходит проверку — ничего не создано
+     * @throws IllegalStateException        COPY прерван не из-за данных файла — ничего не создано
+     */
+    @Transactional
+    public ImportResult importWallets(Format format, InputStream in) {
+        var params = new MapSqlParameterSource();
+        jdbc.update(CREATE_STAGING_SQL, params);
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        long received;
+        try {
+            CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+            received = (format == Format.CSV)
+                    ? copy.copyIn(COPY_CSV_SQL, in, bufferSize)
+                    : copyNdjson(copy, in);
+        } catch (PSQLException e) {
+            if (!isInvalidData(e)) {
+                throw new IllegalStateException("COPY wallet_import failed", e);
+            }
+            var server = e.getServerErrorMessage();
+            String where = (server == null || server.getWhere() == null) ? "" : " (" + server.getWhere() + ")";
+            throw new WalletImportInvalidException((server == null ? e.getMessage() : server.getMessage()) + where, null);
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("COPY wallet_import failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+
+        List<Map<String, Object>> invalid = jdbc.queryForList(FIRST_INVALID_SQL, params);
+        if (!invalid.isEmpty()) {
+            throw new WalletImportInvalidException(
+                    (String) invalid.get(0).get("reason"),
+                    ((Number) invalid.get(0).get("line")).longValue()
+            );
+        }
+
+        Long created = jdbc.queryForObject(mergeSql, params, Long.class);
+        return new ImportResult(received, created == null ? 0 : created);
+    }
+
+    /**
+     * Ошибка в самих данных файла: классы SQLSTATE 22 (data exception) и 23 (integrity constraint violation).
+     * Остальное (отмена, обрыв соединения, нехватка места) — сбой сервиса, а не плохой файл.
+     */
+    private static boolean isInvalidData(PSQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+
+    /**
+     * Каждый объект {"id": ..., "balance": ...} переписывается в строку CSV и отправляется в COPY
+     * по заполнении буфера: в памяти только буфер и текущий объект.
+     */
+    private long copyNdjson(CopyManager copy, InputStream in) throws SQLException, IOException {
+        CopyIn copyIn = copy.copyIn(COPY_NDJSON_SQL);
+        byte[] buffer = new byte[bufferSize];
+        int used = 0;
+        long line = 0;
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                line++;
+                if (token != JsonToken.START_OBJECT) {
+                    throw new WalletImportInvalidException("ожидается JSON-объект", line);
+                }
+                String id = null;
+                String balance = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if (value.isStructStart()) {
+                        parser.skipChildren();
+                    } else if (value == JsonToken.VALUE_NULL) {
+                        continue;
+                    } else if ("id".equals(field)) {
+                        id = parser.getValueAsString();
+                    } else if ("balance".equals(field)) {
+                        // число — как записано в файле, без double
+                        balance = parser.getText();
+                    }
+                }
+
+                byte[] row = (csvField(id) + "," + csvField(balance) + "\n").getBytes(StandardCharsets.UTF_8);
+                if (used + row.length > buffer.length) {
+                    copyIn.writeToCopy(buffer, 0, used);
+                    used = 0;
+                }
+                if (row.length > buffer.length) {
+                    copyIn.writeToCopy(row, 0, row.length);
+                } else {
+                    System.arraycopy(row, 0, buffer, used, row.length);
+                    used += row.length;
+                }
+            }
+            if (used > 0) {
+                copyIn.writeToCopy(buffer, 0, used);
+            }
+            return copyIn.endCopy();
+        } catch (JsonProcessingException e) {
+            throw new WalletImportInvalidException("некорректный JSON: " + e.getOriginalMessage(), line);
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    /** null -> пустое поле (NULL в COPY csv), иначе значение в кавычках. */
+    private static String csvField(String value) {
+        return (value == null) ? "" : '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,11 +1,24 @@
 package com.example.walletservice.persistence;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -32,14 +45,86 @@ public class WalletRepository {
         }
     }
 
+    /**
+     * Результат перевода. missingWalletId — какой из кошельков не найден (при WALLET_NOT_FOUND),
+     * балансы — только при UPDATED.
+     */
+    public record TransferResult(ApplyDeltaStatus status, UUID missingWalletId, BigDecimal fromBalance, BigDecimal toBalance) {
+        public static TransferResult updated(BigDecimal fromBalance, BigDecimal toBalance) {
+            return new TransferResult(ApplyDeltaStatus.UPDATED, null, fromBalance, toBalance);
+        }
+
+        public static TransferResult walletNotFound(UUID walletId) {
+            return new TransferResult(ApplyDeltaStatus.WALLET_NOT_FOUND, walletId, null, null);
+        }
+
+        public static TransferResult insufficientFunds() {
+            return new TransferResult(ApplyDeltaStatus.INSUFFICIENT_FUNDS, null, null, null);
+        }
+    }
+
+    /**
+     * Постоянный текст с позиционными параметрами: драйвер находит стейтмент в своём кэше соединения
+     * и после prepareThreshold выполнений (DB_PREPARE_THRESHOLD) использует серверный prepared statement —
+     * без повторного parse/plan в Postgres.
+     */
+    private static final String APPLY_DELTA_FUNCTION_SQL =
+            "SELECT result_status, result_balance FROM apply_delta(?, ?)";
+
+    private static final String TRANSFER_SQL =
+            "SELECT result_status, missing_wallet_id, from_balance, to_balance FROM transfer(?, ?, ?)";
+
     private final NamedParameterJdbcTemplate jdbc;
+    // чтения балансов для API: через реплики, если они настроены ({@link ReplicaDataSources}), иначе = jdbc
+    private final NamedParameterJdbcTemplate readJdbc;
+    private final boolean useFunction;
+
+    public WalletRepository(NamedParameterJdbcTemplate jdbc, String applyDeltaMode) {
+        this(jdbc, applyDeltaMode, null);
+    }
 
-    public WalletRepository(NamedParameterJdbcTemplate jdbc) {
+    @Autowired
+    public WalletRepository(
+            NamedParameterJdbcTemplate jdbc,
+            @Value("${wallet.write.apply-delta:function}") String applyDeltaMode,
+            @Nullable ReplicaDataSources replicas
+    ) {
         this.jdbc = jdbc;
+        this.readJdbc = (replicas == null) ? jdbc : new NamedParameterJdbcTemplate(replicas.routingDataSource());
+        this.useFunction = switch (applyDeltaMode) {
+            case "function" -> true;
+            case "cte" -> false;
+            default -> throw new IllegalArgumentException(
+                    "wallet.write.apply-delta: ожидается function | cte, получено " + applyDeltaMode);
+        };
     }
 
+    /**
+     * Баланс с учётом слотов «полосатого» кошелька (для обычного кошелька слотов нет). Всегда с primary.
+     */
     public Optional<BigDecimal> findBalance(UUID walletId) {
-        String sql = "SELECT balance FROM wallets WHERE id = :id";
+        return findBalance(jdbc, walletId);
+    }
+
+    /**
+     * То же, что {@link #findBalance}, но через реплику, если они настроены: значение может отставать
+     * (не больше wallet.replicas.max-lag, если не задан {@link ReadConsistency}).
+     */
+    public Optional<BigDecimal> readBalance(UUID walletId) {
+        return findBalance(readJdbc, walletId);
+    }
+
+    /** Чтения {@link #readBalance} и {@link #findBalances} идут на реплики — их результат не для кэша. */
+    public boolean readsFromReplicas() {
+        return readJdbc != jdbc;
+    }
+
+    private static Optional<BigDecimal> findBalance(NamedParameterJdbcTemplate jdbc, UUID walletId) {
+        String sql = """
+            SELECT w.balance + COALESCE((SELECT sum(s.balance) FROM wallet_slots s WHERE s.wallet_id = w.id), 0)
+            FROM wallets w
+            WHERE w.id = :id
+            """;
         var params = new MapSqlParameterSource("id", walletId);
 
         try {
@@ -50,6 +135,37 @@ public class WalletRepository {
         }
     }
 
+    /**
+     * Балансы нескольких кошельков одним запросом (id = ANY(:ids)), как в {@link #readBalance} (через реплики,
+     * если они настроены). Ненайденных id в результате нет; размер списка ограничивает вызывающий.
+     */
+    public Map<UUID, BigDecimal> findBalances(Collection<UUID> walletIds) {
+        return findBalances(readJdbc, walletIds);
+    }
+
+    /**
+     * То же, что {@link #findBalances}, но всегда с primary: значение не старше последней зафиксированной записи.
+     */
+    public Map<UUID, BigDecimal> findPrimaryBalances(Collection<UUID> walletIds) {
+        return findBalances(jdbc, walletIds);
+    }
+
+    private static Map<UUID, BigDecimal> findBalances(NamedParameterJdbcTemplate jdbc, Collection<UUID> walletIds) {
+        String sql = """
+            SELECT w.id,
+                   w.balance + COALESCE((SELECT sum(s.balance) FROM wallet_slots s WHERE s.wallet_id = w.id), 0) AS balance
+            FROM wallets w
+            WHERE w.id = ANY(:ids)
+            """;
+        var params = new MapSqlParameterSource("ids", new SqlArrayValue("uuid", walletIds.toArray()));
+
+        Map<UUID, BigDecimal> balances = new HashMap<>(walletIds.size() * 2);
+        jdbc.query(sql, params, rs -> {
+            balances.put(rs.getObject("id", UUID.class), rs.getBigDecimal("balance"));
+        });
+        return balances;
+    }
+
     /**
      * Один SQL-стейтмент, который отличает:
      * - кошелёк не найден (404)
@@ -57,8 +173,53 @@ public class WalletRepository {
      * - успешное обновление (200)
      *
      * Работает атомарно: UPDATE делает row-level lock внутри Postgres.
+     * Запись в журнал wallet_transactions — в том же стейтменте, без лишнего round-trip.
+     *
+     * По умолчанию (wallet.write.apply-delta=function) вызывает серверную функцию apply_delta
+     * (changeset 007): на успешном пути — одно обращение к wallets вместо двух в CTE.
      */
     public ApplyDeltaResult applyDelta(UUID walletId, BigDecimal delta) {
+        return useFunction ? applyDeltaFunction(walletId, delta) : applyDeltaCte(walletId, delta);
+    }
+
+    private ApplyDeltaResult applyDeltaFunction(UUID walletId, BigDecimal delta) {
+        return jdbc.getJdbcTemplate().query(APPLY_DELTA_FUNCTION_SQL, ps -> {
+            ps.setObject(1, walletId);
+            ps.setBigDecimal(2, delta);
+        }, rs -> {
+            rs.next(); // функция с OUT-параметрами всегда возвращает 1 строку
+            return switch (ApplyDeltaStatus.valueOf(rs.getString(1))) {
+                case UPDATED -> ApplyDeltaResult.updated(rs.getBigDecimal(2));
+                case WALLET_NOT_FOUND -> ApplyDeltaResult.walletNotFound();
+                case INSUFFICIENT_FUNDS -> ApplyDeltaResult.insufficientFunds();
+            };
+        });
+    }
+
+    /**
+     * Перевод amount с fromWalletId на toWalletId одним вызовом серверной функции transfer (changeset 009):
+     * обе строки блокируются в порядке id, поэтому встречные переводы не дедлокятся. Списание и зачисление
+     * попадают в журнал двумя записями. Кошельки должны различаться.
+     */
+    public TransferResult transfer(UUID fromWalletId, UUID toWalletId, BigDecimal amount) {
+        return jdbc.getJdbcTemplate().query(TRANSFER_SQL, ps -> {
+            ps.setObject(1, fromWalletId);
+            ps.setObject(2, toWalletId);
+            ps.setBigDecimal(3, amount);
+        }, rs -> {
+            rs.next();
+            return switch (ApplyDeltaStatus.valueOf(rs.getString(1))) {
+                case UPDATED -> TransferResult.updated(rs.getBigDecimal(3), rs.getBigDecimal(4));
+                case WALLET_NOT_FOUND -> TransferResult.walletNotFound(rs.getObject(2, UUID.class));
+                case INSUFFICIENT_FUNDS -> TransferResult.insufficientFunds();
+            };
+        });
+    }
+
+    /**
+     * Исходный вариант (wallet.write.apply-delta=cte) — для сравнения.
+     */
+    private ApplyDeltaResult applyDeltaCte(UUID walletId, BigDecimal delta) {
         String sql = """
             WITH wallet AS (
                 SELECT 1 AS exists
@@ -70,7 +231,11 @@ public class WalletRepository {
                 SET balance = balance + :delta
                 WHERE id = :id
                   AND balance + :delta >= 0
-                RETURNING balance
+                RETURNING id, balance
+            ),
+            ledger AS (
+                INSERT INTO wallet_transactions (wallet_id, delta, balance_after)
+                SELECT id, :delta, balance FROM upd
             )
             SELECT
               (SELECT balance FROM upd)   AS balance,
@@ -81,19 +246,260 @@ public class WalletRepository {
                 .addValue("id", walletId)
                 .addValue("delta", delta);
 
+        return jdbc.query(sql, params, WalletRepository::toApplyDeltaResult);
+    }
+
+    /**
+     * Исход {@link #applyDelta(UUID, BigDecimal, String, Duration)}: stored != null — ключ уже был,
+     * ничего не применено, а result == null.
+     */
+    public record KeyedApplyResult(ApplyDeltaResult result, IdempotencyRepository.StoredResult stored) {}
+
+    /**
+     * То же, что {@link #applyDelta}, но в том же стейтменте сохраняет результат под idempotency key.
+     *
+     * Стейтмент сначала ищет ключ по PK: если он уже сохранён (повтор, пришедший на другой инстанс или после
+     * рестарта), UPDATE, запись в журнал и вставка ключа не выполняются — повтор стоит одного чтения по индексу
+     * без блокировки строки кошелька, а первый запрос не платит лишний round-trip на проверку.
+     *
+     * Ключ, вставленный конкурентной, ещё не закоммиченной транзакцией, не виден: тогда INSERT падает по PK
+     * и откатывает весь стейтмент вместе с UPDATE — повтор не применяется дважды.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException ключ вставлен конкурентно или истёк, но ещё не удалён
+     */
+    public KeyedApplyResult applyDelta(UUID walletId, BigDecimal delta, String idempotencyKey, Duration ttl) {
+        String sql = """
+            WITH stored AS (
+                SELECT wallet_id, delta, status, balance
+                FROM idempotency_keys
+                WHERE key = :key
+                  AND expires_at > now()
+            ),
+            wallet AS (
+                SELECT 1 AS exists
+                FROM wallets
+                WHERE id = :id
+            ),
+            upd AS (
+                UPDATE wallets
+                SET balance = balance + :delta
+                WHERE id = :id
+                  AND balance + :delta >= 0
+                  AND NOT EXISTS (SELECT 1 FROM stored)
+                RETURNING id, balance
+            ),
+            ledger AS (
+                INSERT INTO wallet_transactions (wallet_id, delta, balance_after)
+                SELECT id, :delta, balance FROM upd
+            ),
+            idem AS (
+                INSERT INTO idempotency_keys (key, wallet_id, delta, status, balance, expires_at)
+                SELECT :key, :id, :delta,
+                       CASE
+                         WHEN (SELECT balance FROM upd) IS NOT NULL THEN 'UPDATED'
+                         WHEN (SELECT exists FROM wallet) IS NULL THEN 'WALLET_NOT_FOUND'
+                         ELSE 'INSUFFICIENT_FUNDS'
+                       END,
+                       (SELECT balance FROM upd),
+                       now() + make_interval(secs => :ttlSeconds)
+                WHERE NOT EXISTS (SELECT 1 FROM stored)
+            )
+            SELECT
+              (SELECT balance FROM upd)    AS balance,
+              (SELECT exists  FROM wallet) AS exists,
+              s.wallet_id AS stored_wallet_id,
+              s.delta     AS stored_delta,
+              s.status    AS stored_status,
+              s.balance   AS stored_balance
+            FROM (SELECT 1) AS one
+            LEFT JOIN stored s ON true
+            """;
+
+        var params = new MapSqlParameterSource()
+                .addValue("id", walletId)
+                .addValue("delta", delta)
+                .addValue("key", idempotencyKey)
+                .addValue("ttlSeconds", (double) ttl.toSeconds());
+
         return jdbc.query(sql, params, rs -> {
-            rs.next(); // SELECT без FROM всегда возвращает 1 строку
+            rs.next();
+            String storedStatus = rs.getString("stored_status");
+            if (storedStatus != null) {
+                return new KeyedApplyResult(null, new IdempotencyRepository.StoredResult(
+                        rs.getObject("stored_wallet_id", UUID.class),
+                        rs.getBigDecimal("stored_delta"),
+                        new ApplyDeltaResult(ApplyDeltaStatus.valueOf(storedStatus), rs.getBigDecimal("stored_balance"))
+                ));
+            }
+            return new KeyedApplyResult(toApplyDeltaResultRow(rs), null);
+        });
+    }
 
-            BigDecimal balance = rs.getBigDecimal("balance");
-            Object exists = rs.getObject("exists");
+    private static ApplyDeltaResult toApplyDeltaResult(ResultSet rs) throws SQLException {
+        rs.next(); // SELECT без FROM всегда возвращает 1 строку
+        return toApplyDeltaResultRow(rs);
+    }
+
+    private static ApplyDeltaResult toApplyDeltaResultRow(ResultSet rs) throws SQLException {
+        BigDecimal balance = rs.getBigDecimal("balance");
+        Object exists = rs.getObject("exists");
+
+        if (exists == null) {
+            return ApplyDeltaResult.walletNotFound();
+        }
+        if (balance == null) {
+            return ApplyDeltaResult.insufficientFunds();
+        }
+        return ApplyDeltaResult.updated(balance);
+    }
+
+    /**
+     * Применяет пачку изменений к одному кошельку за одну транзакцию:
+     * SELECT ... FOR UPDATE, расчёт по порядку в памяти и один итоговый UPDATE
+     * (вместе с записями журнала по каждой применённой дельте).
+     *
+     * Результат для каждой дельты такой же, как дал бы последовательный {@link #applyDelta}:
+     * операция, уводящая баланс в минус, получает INSUFFICIENT_FUNDS и не влияет на следующие.
+     */
+    @Transactional
+    public List<ApplyDeltaResult> applyDeltas(UUID walletId, List<BigDecimal> deltas) {
+        List<ApplyDeltaResult> results = new ArrayList<>(deltas.size());
+
+        List<BigDecimal> locked = jdbc.queryForList(
+                "SELECT balance FROM wallets WHERE id = :id FOR UPDATE",
+                new MapSqlParameterSource("id", walletId),
+                BigDecimal.class
+        );
+        if (locked.isEmpty()) {
+            for (int i = 0; i < deltas.size(); i++) {
+                results.add(ApplyDeltaResult.walletNotFound());
+            }
+            return results;
+        }
+
+        BigDecimal balance = locked.get(0);
+        List<BigDecimal> appliedDeltas = new ArrayList<>();
+        List<BigDecimal> appliedBalances = new ArrayList<>();
+        for (BigDecimal delta : deltas) {
+            BigDecimal next = balance.add(delta);
+            if (next.signum() < 0) {
+                results.add(ApplyDeltaResult.insufficientFunds());
+            } else {
+                balance = next;
+                appliedDeltas.add(delta);
+                appliedBalances.add(balance);
+                results.add(ApplyDeltaResult.updated(balance));
+            }
+        }
+
+        if (!appliedDeltas.isEmpty()) {
+            String sql = """
+                WITH upd AS (
+                    UPDATE wallets
+                    SET balance = :balance
+                    WHERE id = :id
+                )
+                INSERT INTO wallet_transactions (wallet_id, delta, balance_after)
+                SELECT :id, t.delta, t.balance_after
+                FROM unnest(:deltas, :balances) WITH ORDINALITY AS t(delta, balance_after, ord)
+                ORDER BY t.ord
+                """;
+
+            var params = new MapSqlParameterSource()
+                    .addValue("id", walletId)
+                    .addValue("balance", balance)
+                    .addValue("deltas", new SqlArrayValue("numeric", appliedDeltas.toArray()))
+                    .addValue("balances", new SqlArrayValue("numeric", appliedBalances.toArray()));
+            jdbc.update(sql, params);
+        }
+        return results;
+    }
+
+    /**
+     * Пакетное применение дельт одним SQL-стейтментом.
+     *
+     * Элементы разворачиваются через UNNEST ... WITH ORDINALITY, затронутые кошельки блокируются
+     * в порядке id (без дедлоков между конкурентными пачками), а операции по одному кошельку
+     * применяются по порядку рекурсивным CTE — как если бы {@link #applyDelta} вызывался для каждой
+     * по очереди. Результаты возвращаются в порядке входных элементов.
+     *
+     * Глубина рекурсии равна максимальному числу операций на один кошелёк в пачке,
+     * поэтому размер пачки ограничивается на уровне сервиса.
+     */
+    public List<ApplyDeltaResult> applyDeltaBatch(List<UUID> walletIds, List<BigDecimal> deltas) {
+        if (walletIds.isEmpty()) {
+            return List.of();
+        }
+
+        String sql = """
+            WITH RECURSIVE input AS (
+                SELECT t.id, t.delta, t.ord,
+                       row_number() OVER (PARTITION BY t.id ORDER BY t.ord) AS rn
+                FROM unnest(:ids, :deltas) WITH ORDINALITY AS t(id, delta, ord)
+            ),
+            locked AS (
+                SELECT w.id, w.balance
+                FROM wallets w
+                WHERE w.id IN (SELECT id FROM input)
+                ORDER BY w.id
+                FOR UPDATE
+            ),
+            walk AS (
+                SELECT i.id, i.rn, i.delta,
+                       (l.balance + i.delta >= 0) AS applied,
+                       CASE WHEN l.balance + i.delta >= 0 THEN l.balance + i.delta ELSE l.balance END AS balance
+                FROM input i
+                JOIN locked l ON l.id = i.id
+                WHERE i.rn = 1
+                UNION ALL
+                SELECT i.id, i.rn, i.delta,
+                       (w.balance + i.delta >= 0),
+                       CASE WHEN w.balance + i.delta >= 0 THEN w.balance + i.delta ELSE w.balance END
+                FROM walk w
+                JOIN input i ON i.id = w.id AND i.rn = w.rn + 1
+            ),
+            final AS (
+                SELECT DISTINCT ON (id) id, balance
+                FROM walk
+                ORDER BY id, rn DESC
+            ),
+            upd AS (
+                UPDATE wallets w
+                SET balance = f.balance
+                FROM final f
+                WHERE w.id = f.id
+                  AND w.balance <> f.balance
+                RETURNING w.id
+            ),
+            ledger AS (
+                INSERT INTO wallet_transactions (wallet_id, delta, balance_after)
+                SELECT id, delta, balance
+                FROM walk
+                WHERE applied
+                ORDER BY id, rn
+            )
+            SELECT
+              (l.id IS NOT NULL) AS exists,
+              wk.applied,
+              wk.balance
+            FROM input i
+            LEFT JOIN locked l ON l.id = i.id
+            LEFT JOIN walk wk ON wk.id = i.id AND wk.rn = i.rn
+            ORDER BY i.ord
+            """;
+
+        var params = new MapSqlParameterSource()
+                .addValue("ids", new SqlArrayValue("uuid", walletIds.toArray()))
+                .addValue("deltas", new SqlArrayValue("numeric", deltas.toArray()));
 
-            if (exists == null) {
+        return jdbc.query(sql, params, (rs, rowNum) -> {
+            if (!rs.getBoolean("exists")) {
                 return ApplyDeltaResult.walletNotFound();
             }
-            if (balance == null) {
+            if (!rs.getBoolean("applied")) {
                 return ApplyDeltaResult.insufficientFunds();
             }
-            return ApplyDeltaResult.updated(balance);
+            return ApplyDeltaResult.updated(rs.getBigDecimal("balance"));
         });
     }
-}
\ No newline at end of file
+}
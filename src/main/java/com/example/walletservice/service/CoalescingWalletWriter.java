@@ -0,0 +1,174 @@
+package com.example.walletservice.service;
+
+import com.example.walletservice.persistence.WalletRepository;
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Group commit для «горячих» кошельков.
+ *
+ * Конкурентные операции по одному кошельку складываются в очередь. Первый пришедший поток
+ * становится лидером: забирает пачку, применяет её одной транзакцией
+ * ({@link WalletRepository#applyDeltas}) и раздаёт каждому вызывающему его собственный результат.
+ * Остальные просто ждут. Вместо N UPDATE-ов, стоящих в очереди на row lock, — один на пачку.
+ *
+ * Лидер применяет одну пачку и передаёт лидерство потоку из головы очереди: задержка запроса
+ * ограничена его собственной пачкой и пачками перед ним, а не всем потоком операций по кошельку.
+ * Если пачка падает целиком (переполнение, ошибка БД), её операции применяются по одной —
+ * ошибку получает только та, что её вызвала.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.write.mode", havingValue = "coalescing")
+public class CoalescingWalletWriter implements WalletWriter {
+
+    private final WalletRepository repo;
+    private final int maxBatchSize;
+    private final ConcurrentHashMap<UUID, WalletQueue> queues = new ConcurrentHashMap<>();
+
+    public CoalescingWalletWriter(
+            WalletRepository repo,
+            @Value("${wallet.write.coalescing.max-batch-size:256}") int maxBatchSize
+    ) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("wallet.write.coalescing.max-batch-size должен быть >= 1");
+        }
+        this.repo = repo;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public ApplyDeltaResult apply(UUID walletId, BigDecimal delta) {
+        WalletQueue queue = queues.computeIfAbsent(walletId, WalletQueue::new);
+        PendingDelta op = new PendingDelta(delta);
+        queue.pending.add(op);
+
+        while (!op.result.isDone()) {
+            if (!lead(queue)) {
+                // будят результат или передача лидерства; после пробуждения — повторная проверка
+                LockSupport.park(this);
+            }
+        }
+
+        try {
+            return op.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Если лидера нет — становимся им на одну пачку, затем будим поток из головы очереди,
+     * чтобы лидером стал он. Поток, положивший операцию, пока лидер заканчивал работу,
+     * сам пробует стать лидером, поэтому операция в очереди без лидера не остаётся.
+     *
+     * @return false — лидер уже есть
+     */
+    private boolean lead(WalletQueue queue) {
+        if (!queue.draining.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            List<PendingDelta> batch = poll(queue);
+            if (!batch.isEmpty()) {
+                flush(queue.walletId, batch);
+            }
+        } finally {
+            queue.draining.set(false);
+        }
+
+        PendingDelta next = queue.pending.peek();
+        if (next != null) {
+            LockSupport.unpark(next.waiter);
+        } else {
+            // Пустую очередь убираем, чтобы map не рос по числу когда-либо виденных кошельков.
+            // Если кто-то успел взять ссылку на удалённую очередь, он сам станет её лидером.
+            queues.remove(queue.walletId, queue);
+        }
+        return true;
+    }
+
+    private List<PendingDelta> poll(WalletQueue queue) {
+        List<PendingDelta> batch = new ArrayList<>();
+        PendingDelta op;
+        while (batch.size() < maxBatchSize && (op = queue.pending.poll()) != null) {
+            batch.add(op);
+        }
+        return batch;
+    }
+
+    private void flush(UUID walletId, List<PendingDelta> batch) {
+        List<BigDecimal> deltas = new ArrayList<>(batch.size());
+        for (PendingDelta op : batch) {
+            deltas.add(op.delta);
+        }
+
+        List<ApplyDeltaResult> results;
+        try {
+            results = repo.applyDeltas(walletId, deltas);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).fail(e);
+                return;
+            }
+            // транзакция пачки откатилась целиком — применяем по одной
+            for (PendingDelta op : batch) {
+                try {
+                    op.complete(repo.applyDelta(walletId, op.delta));
+                } catch (RuntimeException single) {
+                    op.fail(single);
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(results.get(i));
+        }
+    }
+
+    private static final class WalletQueue {
+        final UUID walletId;
+        final ConcurrentLinkedQueue<PendingDelta> pending = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        WalletQueue(UUID walletId) {
+            this.walletId = walletId;
+        }
+    }
+
+    private static final class PendingDelta {
+        final BigDecimal delta;
+        final Thread waiter = Thread.currentThread();
+        final CompletableFuture<ApplyDeltaResult> result = new CompletableFuture<>();
+
+        PendingDelta(BigDecimal delta) {
+            this.delta = delta;
+        }
+
+        void complete(ApplyDeltaResult value) {
+            result.complete(value);
+            LockSupport.unpark(waiter);
+        }
+
+        void fail(RuntimeException e) {
+            result.completeExceptionally(e);
+            LockSupport.unpark(waiter);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.walletservice.service;
+
+import com.example.walletservice.persistence.WalletRepository;
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Режим по умолчанию: каждая операция — отдельный UPDATE.
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.write.mode", havingValue = "direct", matchIfMissing = true)
+public class DirectWalletWriter implements WalletWriter {
+
+    private final WalletRepository repo;
+
+    public DirectWalletWriter(WalletRepository repo) {
+        this.repo = repo;
+    }
+
+    @Override
+    public ApplyDeltaResult apply(UUID walletId, BigDecimal delta) {
+        return repo.applyDelta(walletId, delta);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.walletservice.service;
+
+import com.example.walletservice.error.IdempotencyKeyReusedException;
+import com.example.walletservice.persistence.IdempotencyRepository;
+import com.example.walletservice.persistence.IdempotencyRepository.StoredResult;
+import com.example.walletservice.persistence.WalletRepository;
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Операции с заголовком Idempotency-Key.
+ *
+ * Путь первого запроса — один стейтмент: поиск ключа по PK, UPDATE баланса + INSERT ключа с результатом.
+ * Повторы:
+ * - ключ недавно видели на этом инстансе — результат берётся из локальной ограниченной map без обращения к БД;
+ * - иначе (другой инстанс, рестарт) тот же стейтмент находит сохранённый ключ и ничего не пишет: ни UPDATE,
+ *   ни блокировки строки кошелька, ни записи в журнал — только чтение по индексу;
+ * - ключ вставлен конкурентным запросом, ещё не закоммиченным, — INSERT падает по PK (стейтмент откатывается
+ *   целиком) и результат читается из БД.
+ * Шторм ретраев во время инцидента поэтому не добавляет записей и не стоит в очереди на row lock.
+ * Стейтмент выполняется через {@link WalletWriter#inOrder}: в режиме serialized — в очереди кошелька.
+ */
+@Component
+public class IdempotencyGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyGuard.class);
+
+    private static final int PURGE_BATCH = 10_000;
+
+    public record Outcome(ApplyDeltaResult result, boolean replayed) {}
+
+    private final WalletRepository repo;
+    private final WalletWriter writer;
+    private final IdempotencyRepository idempotencyRepo;
+    private final Duration ttl;
+    private final Cache<String, StoredResult> recent;
+
+    public IdempotencyGuard(
+            WalletRepository repo,
+            WalletWriter writer,
+            IdempotencyRepository idempotencyRepo,
+            @Value("${wallet.idempotency.ttl:24h}") Duration ttl,
+            @Value("${wallet.idempotency.recent-keys-size:100000}") long recentKeysSize
+    ) {
+        this.repo = repo;
+        this.writer = writer;
+        this.idempotencyRepo = idempotencyRepo;
+        this.ttl = ttl;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(recentKeysSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Outcome apply(String key, UUID walletId, BigDecimal delta) {
+        StoredResult known = recent.getIfPresent(key);
+        if (known != null) {
+            return replay(key, known, walletId, delta);
+        }
+
+        // вторая попытка — только если мешал истёкший, ещё не удалённый ключ
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                WalletRepository.KeyedApplyResult applied =
+                        writer.inOrder(walletId, () -> repo.applyDelta(walletId, delta, key, ttl));
+                if (applied.stored() != null) {
+                    recent.put(key, applied.stored());
+                    return replay(key, applied.stored(), walletId, delta);
+                }
+                recent.put(key, new StoredResult(walletId, delta, applied.result()));
+                return new Outcome(applied.result(), false);
+            } catch (DuplicateKeyException e) {
+                Optional<StoredResult> stored = idempotencyRepo.find(key);
+                if (stored.isPresent()) {
+                    recent.put(key, stored.get());
+                    return replay(key, stored.get(), walletId, delta);
+                }
+                idempotencyRepo.deleteIfExpired(key);
+            }
+        }
+        throw new IllegalStateException("Не удалось применить операцию с Idempotency-Key " + key);
+    }
+
+    private Outcome replay(String key, StoredResult stored, UUID walletId, BigDecimal delta) {
+        if (!stored.walletId().equals(walletId) || stored.delta().compareTo(delta) != 0) {
+            throw new IdempotencyKeyReusedException(key);
+        }
+        return new Outcome(stored.result(), true);
+    }
+
+    @Scheduled(fixedDelayString = "${wallet.idempotency.purge-interval:PT5M}")
+    public void purgeExpired() {
+        try {
+            int deleted;
+            do {
+                deleted = idempotencyRepo.purgeExpired(PURGE_BATCH);
+            } while (deleted == PURGE_BATCH);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось удалить истёкшие idempotency keys", e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.walletservice.service;
+
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.dto.MinorUnitsBalanceResponse;
+import com.example.walletservice.dto.MinorUnitsOperationRequest;
+import com.example.walletservice.error.InsufficientFundsException;
+import com.example.walletservice.error.StripedWalletNotSupportedException;
+import com.example.walletservice.error.WalletNotFoundException;
+import com.example.walletservice.metrics.WalletMetrics;
+import com.example.walletservice.metrics.WalletMetrics.ReadOutcome;
+import com.example.walletservice.persistence.MinorUnitsWalletRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * {@link WalletService#operate(com.example.walletservice.dto.WalletOperationRequest)} и
+ * {@link WalletService#getBalance} на суммах в копейках — без BigDecimal на всём пути запроса.
+ *
+ * Запись идёт только в строку wallets, поэтому операции по «полосатому» кошельку отклоняются:
+ * списание не увидело бы средства в слотах, которые учитывает чтение.
+ */
+@Service
+@ConditionalOnProperty(name = "wallet.money.minor-units", havingValue = "true")
+public class MinorUnitsWalletService {
+
+    private final MinorUnitsWalletRepository repo;
+    private final StripedWalletWriter stripedWriter;
+    private final WalletMetrics metrics;
+
+    public MinorUnitsWalletService(MinorUnitsWalletRepository repo, StripedWalletWriter stripedWriter, WalletMetrics metrics) {
+        this.repo = repo;
+        this.stripedWriter = stripedWriter;
+        this.metrics = metrics;
+    }
+
+    public MinorUnitsBalanceResponse operate(MinorUnitsOperationRequest req) {
+        UUID id = req.walletId();
+        if (stripedWriter.isStriped(id)) {
+            throw new StripedWalletNotSupportedException(id);
+        }
+
+        long amount = req.amount();
+        // amount > 0 (валидация), поэтому negateExact не переполняется — но проверка явная
+        long delta = (req.operationType() == OperationType.DEPOSIT) ? amount : Math.negateExact(amount);
+
+        MinorUnitsWalletRepository.ApplyResult result = null;
+        long start = System.nanoTime();
+        try {
+            result = repo.applyDelta(id, delta);
+        } finally {
+            metrics.recordOperation(req.operationType(), result == null ? null : result.status(), System.nanoTime() - start);
+        }
+
+        return switch (result.status()) {
+            case UPDATED -> new MinorUnitsBalanceResponse(id, result.balance());
+            case WALLET_NOT_FOUND -> throw new WalletNotFoundException(id);
+            case INSUFFICIENT_FUNDS -> throw new InsufficientFundsException(id);
+        };
+    }
+
+    public MinorUnitsBalanceResponse getBalance(UUID walletId) {
+        long start = System.nanoTime();
+        ReadOutcome outcome = ReadOutcome.ERROR;
+        try {
+            OptionalLong balance = repo.findBalance(walletId);
+            if (balance.isEmpty()) {
+                outcome = ReadOutcome.WALLET_NOT_FOUND;
+                throw new WalletNotFoundException(walletId);
+            }
+            outcome = ReadOutcome.FOUND;
+            return new MinorUnitsBalanceResponse(walletId, balance.getAsLong());
+        } finally {
+            metrics.recordBalanceRead(outcome, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.walletservice.service;
+
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.dto.WalletBalanceResponse;
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.error.InsufficientFundsException;
+import com.example.walletservice.error.WalletNotFoundException;
+import com.example.walletservice.persistence.ReactiveWalletRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Неблокирующий аналог {@link WalletService#operate(WalletOperationRequest)} и {@link WalletService#getBalance}.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWalletService {
+
+    private final ReactiveWalletRepository repo;
+
+    public ReactiveWalletService(ReactiveWalletRepository repo) {
+        this.repo = repo;
+    }
+
+    public Mono<WalletBalanceResponse> operate(WalletOperationRequest req) {
+        UUID id = req.walletId();
+
+        BigDecimal amount = req.amount();
+        BigDecimal delta = (req.operationType() == OperationType.DEPOSIT) ? amount : amount.negate();
+
+        return repo.applyDelta(id, delta).map(result -> switch (result.status()) {
+            case UPDATED -> new WalletBalanceResponse(id, result.balance());
+            case WALLET_NOT_FOUND -> throw new WalletNotFoundException(id);
+            case INSUFFICIENT_FUNDS -> throw new InsufficientFundsException(id);
+        });
+    }
+
+    public Mono<WalletBalanceResponse> getBalance(UUID walletId) {
+        return repo.findBalance(walletId)
+                .map(b -> new WalletBalanceResponse(walletId, b))
+                .switchIfEmpty(Mono.error(() -> new WalletNotFoundException(walletId)));
+    }
+}
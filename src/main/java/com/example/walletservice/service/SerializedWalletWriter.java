@@ -0,0 +1,155 @@
+package com.example.walletservice.service;
+
+import com.example.walletservice.error.WalletBusyException;
+import com.example.walletservice.persistence.WalletRepository;
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Очереди по кошелькам внутри JVM: не больше max-in-flight UPDATE-ов на кошелёк одновременно.
+ *
+ * Без этого всплеск операций по одному кошельку занимает соединения пула, которые стоят в Postgres
+ * на одной блокировке строки, и запросы к остальным кошелькам ждут соединения. Здесь лишние операции
+ * ждут в JVM, не держа соединение: на горячий кошелёк уходит не больше max-in-flight соединений.
+ *
+ * Очереди «полосатые»: кошелёк попадает в одну из stripes полос (честный Semaphore), память постоянна и
+ * не зависит от числа кошельков. Очередь полосы ограничена max-queue ожидающими (граница приблизительная:
+ * поток, только что получивший разрешение, ещё мгновение числится ожидающим) и таймаутом ожидания;
+ * сверх этого — {@link WalletBusyException} (429 WALLET_BUSY). Операции с Idempotency-Key стоят в той же
+ * очереди ({@link #inOrder}).
+ */
+@Component
+@ConditionalOnProperty(name = "wallet.write.mode", havingValue = "serialized")
+public class SerializedWalletWriter implements WalletWriter {
+
+    private final WalletRepository repo;
+    private final Stripe[] stripes;
+    private final int mask;
+    private final int maxQueue;
+    private final long timeoutNanos;
+
+    private final Counter rejectedFull;
+    private final Counter rejectedTimeout;
+
+    public SerializedWalletWriter(
+            WalletRepository repo,
+            MeterRegistry registry,
+            @Value("${wallet.write.serialized.max-in-flight:1}") int maxInFlight,
+            @Value("${wallet.write.serialized.max-queue:64}") int maxQueue,
+            @Value("${wallet.write.serialized.timeout:1s}") Duration timeout,
+            @Value("${wallet.write.serialized.stripes:4096}") int stripes
+    ) {
+        if (maxInFlight < 1 || maxQueue < 0 || stripes < 1) {
+            throw new IllegalArgumentException(
+                    "wallet.write.serialized: max-in-flight >= 1, max-queue >= 0, stripes >= 1");
+        }
+        this.repo = repo;
+        this.maxQueue = maxQueue;
+        this.timeoutNanos = timeout.toNanos();
+
+        int size = (stripes == 1) ? 1 : Integer.highestOneBit(stripes - 1) << 1; // степень двойки
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe(maxInFlight);
+        }
+        this.mask = size - 1;
+
+        Gauge.builder("wallet.write.queue.waiting", this, SerializedWalletWriter::waiting)
+                .description("Операции, ожидающие своей очереди по кошельку")
+                .register(registry);
+        this.rejectedFull = rejected(registry, "full");
+        this.rejectedTimeout = rejected(registry, "timeout");
+    }
+
+    private static Counter rejected(MeterRegistry registry, String reason) {
+        return Counter.builder("wallet.write.queue.rejected")
+                .description("Операции, отклонённые очередью кошелька (429 WALLET_BUSY)")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    @Override
+    public ApplyDeltaResult apply(UUID walletId, BigDecimal delta) {
+        return inOrder(walletId, () -> repo.applyDelta(walletId, delta));
+    }
+
+    @Override
+    public <T> T inOrder(UUID walletId, Supplier<T> write) {
+        Stripe stripe = stripes[index(walletId)];
+        acquire(stripe, walletId);
+        try {
+            return write.get();
+        } finally {
+            stripe.permits.release();
+        }
+    }
+
+    private void acquire(Stripe stripe, UUID walletId) {
+        // tryAcquire(0, …), а не tryAcquire(): честный семафор не пропускает вперёд уже ожидающих
+        if (tryAcquire(stripe, 0, walletId)) {
+            return;
+        }
+        if (stripe.waiting.incrementAndGet() > maxQueue) {
+            stripe.waiting.decrementAndGet();
+            rejectedFull.increment();
+            throw new WalletBusyException(walletId);
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = tryAcquire(stripe, timeoutNanos, walletId);
+        } finally {
+            stripe.waiting.decrementAndGet();
+            WriteQueueWait.add(System.nanoTime() - start);
+        }
+        if (!acquired) {
+            rejectedTimeout.increment();
+            throw new WalletBusyException(walletId);
+        }
+    }
+
+    private static boolean tryAcquire(Stripe stripe, long timeoutNanos, UUID walletId) {
+        try {
+            return stripe.permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WalletBusyException(walletId);
+        }
+    }
+
+    private int index(UUID walletId) {
+        long h = walletId.getMostSignificantBits() ^ walletId.getLeastSignificantBits();
+        int x = (int) (h ^ (h >>> 32));
+        return (x ^ (x >>> 16)) & mask;
+    }
+
+    private double waiting() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.waiting.get();
+        }
+        return total;
+    }
+
+    private static final class Stripe {
+        final Semaphore permits;
+        final AtomicInteger waiting = new AtomicInteger();
+
+        Stripe(int maxInFlight) {
+            this.permits = new Semaphore(maxInFlight, true);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.walletservice.service;
+
+import com.example.walletservice.persistence.StripedWalletRepository;
+import com.example.walletservice.persistence.WalletRepository;
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaResult;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Запись в «полосатые» кошельки (список задаётся wallet.striping.wallet-ids).
+ * Зачисление — в случайный слот, списание — см. {@link StripedWalletRepository#withdraw}.
+ *
+ * Остальные пути записи работают только со строкой wallets, и списание через них видело бы лишь
+ * wallets.balance. Поэтому операции по полосатому кошельку идут только сюда: WalletService направляет их
+ * мимо WalletWriter (group commit, очередь), а batch и Idempotency-Key для них отклоняет.
+ * По той же причине список полосатых кошельков должен быть одинаковым на всех инстансах.
+ */
+@Component
+public class StripedWalletWriter {
+
+    private final StripedWalletRepository stripedRepo;
+    private final WalletRepository repo;
+    private final Set<UUID> walletIds;
+    private final int slots;
+
+    public StripedWalletWriter(
+            StripedWalletRepository stripedRepo,
+            WalletRepository repo,
+            @Value("${wallet.striping.wallet-ids:}") Set<UUID> walletIds,
+            @Value("${wallet.striping.slots:16}") int slots
+    ) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("wallet.striping.slots должен быть >= 1");
+        }
+        this.stripedRepo = stripedRepo;
+        this.repo = repo;
+        this.walletIds = Set.copyOf(walletIds);
+        this.slots = slots;
+    }
+
+    @PostConstruct
+    void createSlots() {
+        for (UUID walletId : walletIds) {
+            ensureSlots(walletId);
+        }
+    }
+
+    public boolean isStriped(UUID walletId) {
+        return walletIds.contains(walletId);
+    }
+
+    /**
+     * Идемпотентно создаёт слоты кошелька. Кошелька, которого ещё нет в БД, не касается —
+     * до создания слотов операции идут через wallets.balance.
+     */
+    public void ensureSlots(UUID walletId) {
+        stripedRepo.ensureSlots(walletId, slots);
+    }
+
+    public ApplyDeltaResult apply(UUID walletId, BigDecimal delta) {
+        if (delta.signum() < 0) {
+            return stripedRepo.withdraw(walletId, delta.negate());
+        }
+
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        ApplyDeltaResult result = stripedRepo.deposit(walletId, slot, delta);
+        return result != null ? result : repo.applyDelta(walletId, delta);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.walletservice.service;
+
+import com.example.walletservice.persistence.WalletExportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Выгрузка всех балансов в NDJSON или CSV прямо в выходной поток ответа. id и баланс — ASCII-текст
+ * из Postgres, поэтому строка пишется побайтно в буфер без кодировщика и промежуточных строк.
+ */
+@Service
+public class WalletExportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(WalletExportService.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WalletExportRepository repo;
+
+    public WalletExportService(WalletExportRepository repo) {
+        this.repo = repo;
+    }
+
+    /**
+     * @return число выгруженных кошельков
+     */
+    public long export(Format format, boolean consistent, OutputStream target) throws IOException {
+        long start = System.nanoTime();
+        long[] rows = {0};
+        var out = new BufferedOutputStream(target, BUFFER_SIZE);
+        if (format == Format.CSV) {
+            writeAscii(out, "id,balance\n");
+        }
+        try {
+            repo.export(consistent, (id, balance) -> {
+                if (format == Format.CSV) {
+                    writeAscii(out, id);
+                    out.write(',');
+                    writeAscii(out, balance);
+                    out.write('\n');
+                } else {
+                    writeAscii(out, "{\"id\":\"");
+                    writeAscii(out, id);
+                    writeAscii(out, "\",\"balance\":");
+                    writeAscii(out, balance);
+                    writeAscii(out, "}\n");
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            // клиент закрыл соединение
+            throw e.getCause();
+        }
+        out.flush();
+        log.info("wallet export ({}, consistent={}): {} rows, {} ms",
+                format, consistent, rows[0], (System.nanoTime() - start) / 1_000_000);
+        return rows[0];
+    }
+
+    private static void writeAscii(OutputStream out, String s) throws IOException {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            out.write(s.charAt(i));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.walletservice.service;
+
+import com.example.walletservice.dto.WalletImportResponse;
+import com.example.walletservice.persistence.WalletImportRepository;
+import com.example.walletservice.persistence.WalletImportRepository.Format;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+
+@Service
+public class WalletImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletImportService.class);
+
+    private final WalletImportRepository repo;
+
+    public WalletImportService(WalletImportRepository repo) {
+        this.repo = repo;
+    }
+
+    public WalletImportResponse importWallets(Format format, InputStream in) {
+        long start = System.nanoTime();
+        var result = repo.importWallets(format, in);
+        log.info("wallet import ({}): received={}, created={}, skipped={}, {} ms",
+                format, result.received(), result.created(), result.skipped(), (System.nanoTime() - start) / 1_000_000);
+        return new WalletImportResponse(result.received(), result.created(), result.skipped());
+    }
+}
@@ -1,33 +1,119 @@
 package com.example.walletservice.service;
 
+import com.example.walletservice.cache.BalanceCache;
 import com.example.walletservice.domain.OperationType;
 import com.example.walletservice.dto.WalletBalanceResponse;
+import com.example.walletservice.dto.WalletBalancesResponse;
+import com.example.walletservice.dto.WalletBatchItemResponse;
 import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.dto.WalletTransferRequest;
+import com.example.walletservice.dto.WalletTransferResponse;
+import com.example.walletservice.error.BatchTooLargeException;
 import com.example.walletservice.error.InsufficientFundsException;
+import com.example.walletservice.error.StripedWalletNotSupportedException;
+import com.example.walletservice.error.TransferNotSupportedException;
 import com.example.walletservice.error.WalletNotFoundException;
+import com.example.walletservice.events.BalanceEventBus;
+import com.example.walletservice.metrics.WalletMetrics;
+import com.example.walletservice.metrics.WalletMetrics.ReadOutcome;
 import com.example.walletservice.persistence.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.util.UUID;
+import java.util.*;
 
 @Service
 public class WalletService {
 
     private final WalletRepository repo;
+    private final WalletWriter writer;
+    private final StripedWalletWriter stripedWriter;
+    private final BalanceCache cache;
+    private final IdempotencyGuard idempotency;
+    private final WalletMetrics metrics;
+    private final BalanceEventBus events;
+    private final int batchMaxSize;
+    private final int balancesMaxSize;
+    private final int balancesChunkSize;
 
-    public WalletService(WalletRepository repo) {
+    public WalletService(
+            WalletRepository repo,
+            WalletWriter writer,
+            StripedWalletWriter stripedWriter,
+            BalanceCache cache,
+            IdempotencyGuard idempotency,
+            WalletMetrics metrics,
+            BalanceEventBus events,
+            @Value("${wallet.batch.max-size:1000}") int batchMaxSize,
+            @Value("${wallet.balances.max-size:1000}") int balancesMaxSize,
+            @Value("${wallet.balances.chunk-size:500}") int balancesChunkSize
+    ) {
+        if (balancesChunkSize < 1) {
+            throw new IllegalArgumentException("wallet.balances.chunk-size должен быть >= 1");
+        }
         this.repo = repo;
+        this.writer = writer;
+        this.stripedWriter = stripedWriter;
+        this.cache = cache;
+        this.idempotency = idempotency;
+        this.metrics = metrics;
+        this.events = events;
+        this.batchMaxSize = batchMaxSize;
+        this.balancesMaxSize = balancesMaxSize;
+        this.balancesChunkSize = balancesChunkSize;
     }
 
     public WalletBalanceResponse operate(WalletOperationRequest req) {
+        return operate(req, null);
+    }
+
+    /** Баланс кошелька разнесён по слотам: {@link #operateBatch} его не принимает, только {@link #operate}. */
+    public boolean isStriped(UUID walletId) {
+        return stripedWriter.isStriped(walletId);
+    }
+
+    /**
+     * @param idempotencyKey значение заголовка Idempotency-Key или null. Операции с ключом
+     *                       всегда идут одним стейтментом через wallets (без group commit и слотов),
+     *                       поэтому для «полосатого» кошелька отклоняются.
+     */
+    public WalletBalanceResponse operate(WalletOperationRequest req, String idempotencyKey) {
         UUID id = req.walletId();
 
-        BigDecimal amount = req.amount();
-        BigDecimal delta = (req.operationType() == OperationType.DEPOSIT) ? amount : amount.negate();
+        BigDecimal delta = toDelta(req);
+
+        boolean striped = stripedWriter.isStriped(id);
+        if (striped && idempotencyKey != null) {
+            throw new StripedWalletNotSupportedException(id);
+        }
+        WalletRepository.ApplyDeltaResult result = null;
+        boolean replayed = false;
 
-        WalletRepository.ApplyDeltaResult result = repo.applyDelta(id, delta);
+        long start = System.nanoTime();
+        long cacheToken = cache.beginWrite(id);
+        try {
+            if (idempotencyKey != null) {
+                IdempotencyGuard.Outcome outcome = idempotency.apply(idempotencyKey, id, delta);
+                result = outcome.result();
+                replayed = outcome.replayed();
+            } else {
+                result = striped ? stripedWriter.apply(id, delta) : writer.apply(id, delta);
+            }
+        } finally {
+            // баланс полосатого кошелька после операции приблизительный, а повтор возвращает
+            // сохранённый (возможно, уже устаревший) баланс — их в кэш не кладём
+            if (replayed) {
+                cache.endWriteUnchanged(id);
+            } else {
+                endCacheWrite(id, cacheToken, result, striped);
+            }
+            metrics.recordOperation(req.operationType(), result == null ? null : result.status(), System.nanoTime() - start);
+        }
 
+        if (result.status() == WalletRepository.ApplyDeltaStatus.UPDATED && !replayed) {
+            events.walletChanged(id);
+        }
         return switch (result.status()) {
             case UPDATED -> new WalletBalanceResponse(id, result.balance());
             case WALLET_NOT_FOUND -> throw new WalletNotFoundException(id);
@@ -35,9 +121,185 @@ public class WalletService {
         };
     }
 
+    /**
+     * Пачка одним стейтментом по строкам wallets: слоты «полосатого» кошелька она не видит
+     * (списание получило бы ложный INSUFFICIENT_FUNDS), поэтому такая пачка отклоняется целиком.
+     */
+    public List<WalletBatchItemResponse> operateBatch(List<WalletOperationRequest> requests) {
+        if (requests.size() > batchMaxSize) {
+            throw new BatchTooLargeException(requests.size(), batchMaxSize);
+        }
+
+        List<UUID> ids = new ArrayList<>(requests.size());
+        List<BigDecimal> deltas = new ArrayList<>(requests.size());
+        for (WalletOperationRequest req : requests) {
+            if (stripedWriter.isStriped(req.walletId())) {
+                throw new StripedWalletNotSupportedException(req.walletId());
+            }
+            ids.add(req.walletId());
+            deltas.add(toDelta(req));
+        }
+
+        long[] cacheTokens = new long[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            cacheTokens[i] = cache.beginWrite(ids.get(i));
+        }
+
+        List<WalletRepository.ApplyDeltaResult> results = null;
+        try {
+            results = repo.applyDeltaBatch(ids, deltas);
+        } finally {
+            for (int i = 0; i < ids.size(); i++) {
+                UUID id = ids.get(i);
+                endCacheWrite(id, cacheTokens[i], results == null ? null : results.get(i), false);
+            }
+        }
+
+        List<WalletBatchItemResponse> response = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            var result = results.get(i);
+            if (result.status() == WalletRepository.ApplyDeltaStatus.UPDATED) {
+                events.walletChanged(ids.get(i));
+            }
+            response.add(new WalletBatchItemResponse(ids.get(i), result.status(), result.balance()));
+        }
+        return response;
+    }
+
+    /**
+     * Перевод одним стейтментом мимо WalletWriter (как batch): режимы coalescing/serialized на него не влияют.
+     * «Полосатые» кошельки не поддерживаются — их баланс не хранится в одной строке.
+     */
+    public WalletTransferResponse transfer(WalletTransferRequest req) {
+        UUID from = req.fromWalletId();
+        UUID to = req.toWalletId();
+        for (UUID id : List.of(from, to)) {
+            if (stripedWriter.isStriped(id)) {
+                throw new TransferNotSupportedException(id);
+            }
+        }
+
+        WalletRepository.TransferResult result = null;
+        long start = System.nanoTime();
+        long fromToken = cache.beginWrite(from);
+        long toToken = cache.beginWrite(to);
+        try {
+            result = repo.transfer(from, to, req.amount());
+        } finally {
+            if (result != null && result.status() != WalletRepository.ApplyDeltaStatus.UPDATED) {
+                cache.endWriteUnchanged(from);
+                cache.endWriteUnchanged(to);
+            } else {
+                cache.endWrite(from, fromToken, result == null ? null : result.fromBalance());
+                cache.endWrite(to, toToken, result == null ? null : result.toBalance());
+            }
+            metrics.recordTransfer(result == null ? null : result.status(), System.nanoTime() - start);
+        }
+
+        if (result.status() == WalletRepository.ApplyDeltaStatus.UPDATED) {
+            events.walletChanged(from);
+            events.walletChanged(to);
+        }
+        return switch (result.status()) {
+            case UPDATED -> new WalletTransferResponse(from, result.fromBalance(), to, result.toBalance());
+            case WALLET_NOT_FOUND -> throw new WalletNotFoundException(result.missingWalletId());
+            case INSUFFICIENT_FUNDS -> throw new InsufficientFundsException(from);
+        };
+    }
+
     public WalletBalanceResponse getBalance(UUID walletId) {
-        return repo.findBalance(walletId)
-                .map(b -> new WalletBalanceResponse(walletId, b))
-                .orElseThrow(() -> new WalletNotFoundException(walletId));
+        long start = System.nanoTime();
+        ReadOutcome outcome = ReadOutcome.ERROR;
+        try {
+            BigDecimal cached = cache.get(walletId);
+            if (cached != null) {
+                outcome = ReadOutcome.FOUND;
+                return new WalletBalanceResponse(walletId, cached);
+            }
+
+            long cacheToken = cache.beginRead(walletId);
+            Optional<BigDecimal> balance = repo.readBalance(walletId);
+            if (balance.isEmpty()) {
+                outcome = ReadOutcome.WALLET_NOT_FOUND;
+                throw new WalletNotFoundException(walletId);
+            }
+            // значение с реплики может отставать — в кэш попадают только значения с primary
+            if (!repo.readsFromReplicas()) {
+                cache.endRead(walletId, cacheToken, balance.get());
+            }
+
+            outcome = ReadOutcome.FOUND;
+            return new WalletBalanceResponse(walletId, balance.get());
+        } finally {
+            metrics.recordBalanceRead(outcome, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Балансы списка кошельков: сначала кэш, промахи — запросами id = ANY(:ids) по balancesChunkSize id
+     * (длинный список не превращается в один огромный массив-параметр и план на весь список).
+     */
+    public WalletBalancesResponse getBalances(List<UUID> walletIds) {
+        if (walletIds.size() > balancesMaxSize) {
+            throw new BatchTooLargeException(walletIds.size(), balancesMaxSize);
+        }
+
+        Set<UUID> ids = new LinkedHashSet<>(walletIds);
+        Map<UUID, BigDecimal> balances = new HashMap<>(ids.size() * 2);
+        List<UUID> misses = new ArrayList<>();
+        for (UUID id : ids) {
+            BigDecimal cached = cache.get(id);
+            if (cached != null) {
+                balances.put(id, cached);
+            } else {
+                misses.add(id);
+            }
+        }
+
+        for (int from = 0; from < misses.size(); from += balancesChunkSize) {
+            List<UUID> chunk = misses.subList(from, Math.min(from + balancesChunkSize, misses.size()));
+            long[] tokens = new long[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                tokens[i] = cache.beginRead(chunk.get(i));
+            }
+            Map<UUID, BigDecimal> loaded = repo.findBalances(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                BigDecimal balance = loaded.get(chunk.get(i));
+                if (balance != null) {
+                    if (!repo.readsFromReplicas()) {
+                        cache.endRead(chunk.get(i), tokens[i], balance);
+                    }
+                    balances.put(chunk.get(i), balance);
+                }
+            }
+        }
+
+        List<WalletBalanceResponse> found = new ArrayList<>(balances.size());
+        List<UUID> missing = new ArrayList<>(ids.size() - balances.size());
+        for (UUID id : ids) {
+            BigDecimal balance = balances.get(id);
+            if (balance != null) {
+                found.add(new WalletBalanceResponse(id, balance));
+            } else {
+                missing.add(id);
+            }
+        }
+        return new WalletBalancesResponse(found, missing);
+    }
+
+    static BigDecimal toDelta(WalletOperationRequest req) {
+        BigDecimal amount = req.amount();
+        return (req.operationType() == OperationType.DEPOSIT) ? amount : amount.negate();
+    }
+
+    /**
+     * result == null — исход неизвестен (исключение), запись в кэше инвалидируется.
+     */
+    private void endCacheWrite(UUID id, long token, WalletRepository.ApplyDeltaResult result, boolean striped) {
+        if (result != null && result.status() != WalletRepository.ApplyDeltaStatus.UPDATED) {
+            cache.endWriteUnchanged(id);
+        } else {
+            cache.endWrite(id, token, (result == null || striped) ? null : result.balance());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package com.example.walletservice.service;
+
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaResult;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Способ применения изменения баланса к кошельку.
+ * Реализация выбирается свойством {@code wallet.write.mode}.
+ */
+public interface WalletWriter {
+
+    ApplyDeltaResult apply(UUID walletId, BigDecimal delta);
+
+    /**
+     * Запись по кошельку, которая идёт не через {@link #apply} (операция с Idempotency-Key), в том же порядке,
+     * что и {@link #apply}: serialized ставит её в очередь кошелька, остальные режимы выполняют сразу.
+     */
+    default <T> T inOrder(UUID walletId, Supplier<T> write) {
+        return write.get();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.walletservice.service;
+
+/**
+ * Время, которое текущий поток провёл в очереди {@link SerializedWalletWriter}.
+ *
+ * Ограничитель нагрузки ({@code LoadSheddingInterceptor}) вычитает его из латентности запроса:
+ * ожидание своей очереди за горячим кошельком — не признак перегрузки БД, и сжимать из-за него
+ * общий предел записей (а с ним пропускную способность холодных кошельков) нельзя.
+ */
+public final class WriteQueueWait {
+
+    private static final ThreadLocal<long[]> WAIT_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private WriteQueueWait() {
+    }
+
+    static void add(long nanos) {
+        WAIT_NANOS.get()[0] += nanos;
+    }
+
+    public static void reset() {
+        WAIT_NANOS.get()[0] = 0;
+    }
+
+    /** Накопленное ожидание; счётчик обнуляется. */
+    public static long take() {
+        long[] wait = WAIT_NANOS.get();
+        long nanos = wait[0];
+        wait[0] = 0;
+        return nanos;
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.walletservice;
 
+import com.example.walletservice.error.ApiErrorResponse;
+import com.example.walletservice.error.ApiErrorTemplate;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -7,7 +10,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -19,6 +30,9 @@ class WalletApiTest extends AbstractPostgresTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Test
     void deposit_shouldIncreaseBalance() throws Exception {
         mockMvc.perform(post("/api/v1/wallet")
@@ -72,6 +86,171 @@ class WalletApiTest extends AbstractPostgresTest {
                 .andExpect(jsonPath("$.details.walletId").value("00000000-0000-0000-0000-000000000099"));
     }
 
+    @Test
+    void insufficientFunds_bodyShouldBeByteCompatibleWithApiErrorResponse() throws Exception {
+        var response = mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"WITHDRAW","amount":999999}
+                                """))
+                .andExpect(status().isConflict())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+        byte[] body = response.getContentAsByteArray();
+        assertEquals(body.length, response.getContentLength());
+
+        ApiErrorResponse parsed = objectMapper.readValue(body, ApiErrorResponse.class);
+        assertArrayEquals(objectMapper.writeValueAsBytes(parsed), body);
+    }
+
+    @Test
+    void errorTemplates_shouldMatchJacksonSerialization() throws Exception {
+        Map<ApiErrorTemplate, String> messages = Map.of(
+                ApiErrorTemplate.INSUFFICIENT_FUNDS, "Недостаточно средств",
+                ApiErrorTemplate.WALLET_NOT_FOUND, "Кошелёк не найден");
+        Instant[] timestamps = {
+                Instant.parse("2026-10-17T10:15:30Z"),
+                Instant.parse("2026-10-17T10:15:30.120Z"),
+                Instant.parse("2026-10-17T10:15:30.123456Z"),
+                Instant.parse("2026-10-17T10:15:30.000000001Z"),
+                Instant.parse("1970-01-01T00:00:00Z"),
+                Instant.parse("2000-02-29T23:59:59.999Z"),
+                Instant.parse("2100-03-01T00:00:00Z"),
+                Instant.parse("9999-12-31T23:59:59.999999999Z"),
+                Instant.parse("+10000-01-01T00:00:00Z"),
+                Instant.parse("1969-12-31T23:59:59.5Z")
+        };
+        String[] paths = {"/api/v1/wallet", "/api/v1/wallets/\"a\\b\u0001", "/api/v1/кошелёк", null};
+        UUID[] walletIds = {WALLET_ID, UUID.fromString("fedcba98-7654-3210-0f1e-2d3c4b5a6978"), null};
+
+        for (var template : messages.entrySet()) {
+            for (Instant timestamp : timestamps) {
+                for (String path : paths) {
+                    for (UUID walletId : walletIds) {
+                        byte[] expected = objectMapper.writeValueAsBytes(new ApiErrorResponse(
+                                template.getKey().errorCode(), template.getValue(), timestamp, path,
+                                Map.of("walletId", String.valueOf(walletId))));
+                        byte[] actual = template.getKey().encode(timestamp, path, walletId).json();
+                        assertArrayEquals(expected, actual, () -> new String(actual) + " / " + Arrays.toString(expected));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void batch_shouldReturnResultPerItemInOrder() throws Exception {
+        mockMvc.perform(post("/api/v1/wallet/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [
+                                  {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":100},
+                                  {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"WITHDRAW","amount":500},
+                                  {"walletId":"00000000-0000-0000-0000-000000000099","operationType":"DEPOSIT","amount":10},
+                                  {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"WITHDRAW","amount":30}
+                                ]
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[0].status").value("UPDATED"))
+                .andExpect(jsonPath("$[0].balance").value(100.0))
+                .andExpect(jsonPath("$[1].status").value("INSUFFICIENT_FUNDS"))
+                .andExpect(jsonPath("$[2].status").value("WALLET_NOT_FOUND"))
+                .andExpect(jsonPath("$[2].walletId").value("00000000-0000-0000-0000-000000000099"))
+                .andExpect(jsonPath("$[3].status").value("UPDATED"))
+                .andExpect(jsonPath("$[3].balance").value(70.0));
+
+        mockMvc.perform(get("/api/v1/wallets/{id}", WALLET_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(70.0));
+    }
+
+    @Test
+    void batch_whenItemInvalid_shouldReturn400WithItemIndex() throws Exception {
+        mockMvc.perform(post("/api/v1/wallet/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":0}]
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.details.fieldErrors[0].field").value("[0].amount"));
+    }
+
+    @Test
+    void idempotencyKey_retryShouldReturnFirstResultAndNotApplyTwice() throws Exception {
+        String key = "retry-" + UUID.randomUUID();
+        String body = """
+                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":100}
+                """;
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/v1/wallet")
+                            .header("Idempotency-Key", key)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.balance").value(100.0));
+        }
+
+        mockMvc.perform(get("/api/v1/wallets/{id}", WALLET_ID))
+                .andExpect(jsonPath("$.balance").value(100.0));
+    }
+
+    @Test
+    void idempotencyKey_reusedForDifferentRequest_shouldReturn422() throws Exception {
+        String key = "reuse-" + UUID.randomUUID();
+
+        mockMvc.perform(post("/api/v1/wallet")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":100}
+                                """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/v1/wallet")
+                        .header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":5}
+                                """))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.errorCode").value("IDEMPOTENCY_KEY_REUSED"))
+                .andExpect(jsonPath("$.details.idempotencyKey").value(key));
+    }
+
+    @Test
+    void idempotencyKey_storedErrorShouldBeReplayed() throws Exception {
+        String key = "error-" + UUID.randomUUID();
+        String body = """
+                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"WITHDRAW","amount":10}
+                """;
+
+        mockMvc.perform(post("/api/v1/wallet").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isConflict());
+
+        upsertWallet(WALLET_ID, new BigDecimal("50"));
+
+        mockMvc.perform(post("/api/v1/wallet").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errorCode").value("INSUFFICIENT_FUNDS"));
+    }
+
+    @Test
+    void idempotencyKey_tooLong_shouldReturn400() throws Exception {
+        mockMvc.perform(post("/api/v1/wallet")
+                        .header("Idempotency-Key", "k".repeat(256))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":1}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("VALIDATION_ERROR"));
+    }
+
     @Test
     void invalidJson_shouldReturn400() throws Exception {
         mockMvc.perform(post("/api/v1/wallet")
@@ -0,0 +1,48 @@
+package com.example.walletservice;
+
+import com.example.walletservice.persistence.WalletRepository;
+import com.example.walletservice.persistence.WalletRepository.ApplyDeltaStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Исходный CTE-путь applyDelta (wallet.write.apply-delta=cte) даёт те же результаты, что и функция apply_delta.
+ */
+@SpringBootTest(properties = "wallet.write.apply-delta=cte")
+class WalletApplyDeltaCteTest extends AbstractPostgresTest {
+
+    @Autowired
+    private WalletRepository repo;
+
+    @Test
+    void cteAndFunction_shouldAgreeOnEveryOutcome() {
+        UUID walletId = UUID.randomUUID();
+        upsertWallet(walletId, new BigDecimal("10.00"));
+        WalletRepository function = new WalletRepository(
+                new NamedParameterJdbcTemplate(jdbcTemplate), "function");
+
+        for (WalletRepository r : new WalletRepository[]{repo, function}) {
+            var updated = r.applyDelta(walletId, new BigDecimal("-4.00"));
+            assertEquals(ApplyDeltaStatus.UPDATED, updated.status());
+
+            var insufficient = r.applyDelta(walletId, new BigDecimal("-100.00"));
+            assertEquals(ApplyDeltaStatus.INSUFFICIENT_FUNDS, insufficient.status());
+
+            var notFound = r.applyDelta(UUID.randomUUID(), BigDecimal.ONE);
+            assertEquals(ApplyDeltaStatus.WALLET_NOT_FOUND, notFound.status());
+        }
+
+        assertEquals(0, new BigDecimal("2.00").compareTo(
+                jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE id = ?", BigDecimal.class, walletId)));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM wallet_transactions WHERE wallet_id = ? AND delta = -4 AND balance_after IN (6, 2)",
+                Integer.class, walletId));
+    }
+}
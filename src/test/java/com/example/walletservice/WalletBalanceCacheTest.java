@@ -0,0 +1,49 @@
+package com.example.walletservice;
+
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.service.WalletService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "wallet.cache.mode=local")
+class WalletBalanceCacheTest extends AbstractPostgresTest {
+
+    private static final UUID CACHED_ID = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void balance_shouldBeServedFromCacheAndUpdatedWriteThrough() {
+        upsertWallet(CACHED_ID, new BigDecimal("10.00"));
+
+        // промах -> чтение из БД и заполнение кэша
+        assertEquals(0, new BigDecimal("10.00").compareTo(walletService.getBalance(CACHED_ID).balance()));
+
+        // изменение в обход сервиса не видно, пока запись в кэше жива
+        jdbcTemplate.update("UPDATE wallets SET balance = 999 WHERE id = ?", CACHED_ID);
+        assertEquals(0, new BigDecimal("10.00").compareTo(walletService.getBalance(CACHED_ID).balance()));
+
+        // write-through: кэш обновляется результатом applyDelta
+        walletService.operate(new WalletOperationRequest(CACHED_ID, OperationType.DEPOSIT, BigDecimal.ONE));
+        jdbcTemplate.update("UPDATE wallets SET balance = 0 WHERE id = ?", CACHED_ID);
+        assertEquals(0, new BigDecimal("1000.00").compareTo(walletService.getBalance(CACHED_ID).balance()));
+
+        double hits = meterRegistry.get("cache.gets")
+                .tags("cache", "wallet.balance", "result", "hit")
+                .functionCounter()
+                .count();
+        assertEquals(2.0, hits);
+    }
+}
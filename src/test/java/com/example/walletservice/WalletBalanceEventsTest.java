@@ -0,0 +1,248 @@
+package com.example.walletservice;
+
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.events.BalanceEventBus;
+import com.example.walletservice.events.BalanceListener;
+import com.example.walletservice.service.WalletService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "wallet.events.listen-notify=true"
+)
+class WalletBalanceEventsTest extends AbstractPostgresTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WalletService service;
+
+    @Autowired
+    private BalanceEventBus bus;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSourceProperties dataSource;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @Test
+    void subscription_shouldReceiveCurrentAndEveryNewBalance() throws Exception {
+        HttpResponse<Stream<String>> response = http.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/wallets/" + WALLET_ID + "/events"))
+                        .header("Accept", "text/event-stream")
+                        .build(),
+                HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/event-stream"));
+
+        BlockingQueue<String> data = new LinkedBlockingQueue<>();
+        Thread reader = Thread.ofVirtual().start(() -> {
+            try {
+                response.body()
+                        .filter(line -> line.startsWith("data:"))
+                        .forEach(line -> data.add(line.substring("data:".length())));
+            } catch (UncheckedIOException e) {
+                // поток закрыт в finally
+            }
+        });
+        try {
+            assertBalance(data.poll(10, TimeUnit.SECONDS), "0");
+
+            deposit(WALLET_ID, "10.00");
+            assertBalance(data.poll(10, TimeUnit.SECONDS), "10.00");
+
+            deposit(WALLET_ID, "5.00");
+            assertBalance(data.poll(10, TimeUnit.SECONDS), "15.00");
+        } finally {
+            response.body().close();
+            reader.interrupt();
+        }
+    }
+
+    @Test
+    void subscriptionToUnknownWallet_shouldReturn404() throws Exception {
+        HttpResponse<String> response = http.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/wallets/" + UUID.randomUUID() + "/events"))
+                        .header("Accept", "text/event-stream")
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(404, response.statusCode());
+        assertEquals("WALLET_NOT_FOUND", objectMapper.readTree(response.body()).get("errorCode").asText());
+    }
+
+    @Test
+    void slowSubscriber_shouldBeConflatedToLatestBalance() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        upsertWallet(walletId, BigDecimal.ZERO);
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<BigDecimal> received = new CopyOnWriteArrayList<>();
+        double conflatedBefore = registry.get("wallet.events.conflated").counter().count();
+
+        var subscription = bus.subscribe(walletId, new BalanceListener() {
+            @Override
+            public void onBalance(UUID id, BigDecimal balance) throws InterruptedException {
+                received.add(balance);
+                blocked.countDown();
+                // первый баланс «застревает» у медленного клиента
+                release.await();
+            }
+
+            @Override
+            public void onHeartbeat() {
+            }
+        });
+        try {
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 50; i++) {
+                deposit(walletId, "1.00");
+                Thread.sleep(2);
+            }
+            awaitCondition(() -> registry.get("wallet.events.conflated").counter().count() > conflatedBefore);
+            release.countDown();
+
+            awaitCondition(() -> !received.isEmpty()
+                    && received.get(received.size() - 1).compareTo(new BigDecimal("50.00")) == 0);
+            assertTrue(received.size() <= 3, "received " + received);
+        } finally {
+            release.countDown();
+            subscription.cancel();
+        }
+    }
+
+    @Test
+    void writeOnOtherInstance_shouldReachSubscribersThroughListenNotify() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        upsertWallet(walletId, BigDecimal.ZERO);
+
+        BlockingQueue<BigDecimal> received = new LinkedBlockingQueue<>();
+        var subscription = bus.subscribe(walletId, new BalanceListener() {
+            @Override
+            public void onBalance(UUID id, BigDecimal balance) {
+                received.add(balance);
+            }
+
+            @Override
+            public void onHeartbeat() {
+            }
+        });
+        try (ConfigurableApplicationContext other = new SpringApplicationBuilder(WalletServiceApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + dataSource.getUrl(),
+                "--spring.datasource.username=" + dataSource.getUsername(),
+                "--spring.datasource.password=" + dataSource.getPassword(),
+                "--spring.liquibase.enabled=false",
+                "--wallet.events.listen-notify=true"
+        )) {
+            assertEquals(0, received.poll(10, TimeUnit.SECONDS).signum());
+
+            other.getBean(WalletService.class).operate(
+                    new WalletOperationRequest(walletId, OperationType.DEPOSIT, new BigDecimal("7.00")));
+
+            assertEquals(0, new BigDecimal("7.00").compareTo(received.poll(10, TimeUnit.SECONDS)));
+            assertTrue(registry.get("wallet.events.notify").tag("direction", "received").counter().count() > 0);
+        } finally {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * 100k подписок без трафика: на стороне шины — небольшие объекты на подписку и кошелёк, без потоков
+     * и буферов. Память соединений (Tomcat) сюда не входит.
+     */
+    @Test
+    void idleSubscriptions_shouldStayCompact() throws Exception {
+        int count = 100_000;
+        BalanceListener idle = new BalanceListener() {
+            @Override
+            public void onBalance(UUID id, BigDecimal balance) {
+            }
+
+            @Override
+            public void onHeartbeat() {
+            }
+        };
+        double gaugeBefore = registry.get("wallet.events.subscriptions").gauge().value();
+
+        long before = usedHeap();
+        List<BalanceEventBus.Subscription> subscriptions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            subscriptions.add(bus.subscribe(UUID.randomUUID(), idle));
+        }
+        long perSubscription = (usedHeap() - before) / count;
+
+        assertEquals(gaugeBefore + count, registry.get("wallet.events.subscriptions").gauge().value());
+        assertTrue(perSubscription < 1024, perSubscription + " bytes per subscription");
+
+        subscriptions.forEach(BalanceEventBus.Subscription::cancel);
+        assertEquals(gaugeBefore, registry.get("wallet.events.subscriptions").gauge().value());
+    }
+
+    private void deposit(UUID walletId, String amount) {
+        service.operate(new WalletOperationRequest(walletId, OperationType.DEPOSIT, new BigDecimal(amount)));
+    }
+
+    private void assertBalance(String json, String expected) throws Exception {
+        assertNotNull(json, "нет события balance");
+        JsonNode event = objectMapper.readTree(json);
+        assertEquals(WALLET_ID.toString(), event.get("walletId").asText());
+        assertEquals(0, new BigDecimal(expected).compareTo(event.get("balance").decimalValue()), json);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("условие не выполнено за 10 с");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
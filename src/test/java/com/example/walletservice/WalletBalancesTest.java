@@ -0,0 +1,96 @@
+package com.example.walletservice;
+
+import com.example.walletservice.service.WalletService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// чанк меньше списка: несколько запросов ANY(:ids) на один вызов
+@SpringBootTest(properties = {"wallet.balances.max-size=10", "wallet.balances.chunk-size=3"})
+@AutoConfigureMockMvc
+class WalletBalancesTest extends AbstractPostgresTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Test
+    void balances_shouldSplitFoundAndMissingInRequestOrder() throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            UUID id = UUID.randomUUID();
+            upsertWallet(id, new BigDecimal(i + ".50"));
+            ids.add(id);
+        }
+        UUID missing1 = UUID.randomUUID();
+        UUID missing2 = UUID.randomUUID();
+        ids.add(2, missing1);
+        ids.add(missing2);
+        ids.add(ids.get(0)); // повтор
+
+        var response = walletService.getBalances(ids);
+
+        assertEquals(7, response.found().size());
+        assertEquals(List.of(missing1, missing2), response.missing());
+        assertEquals(ids.get(0), response.found().get(0).walletId());
+        assertEquals(0, new BigDecimal("0.50").compareTo(response.found().get(0).balance()));
+        assertEquals(0, new BigDecimal("6.50").compareTo(response.found().get(6).balance()));
+
+        mockMvc.perform(post("/api/v1/wallets/balances")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(List.of(ids.get(1), missing1))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found[0].walletId").value(ids.get(1).toString()))
+                .andExpect(jsonPath("$.found[0].balance").value(1.50))
+                .andExpect(jsonPath("$.missing[0]").value(missing1.toString()));
+    }
+
+    @Test
+    void balances_shouldRejectOversizedAndEmptyLists() throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            ids.add(UUID.randomUUID());
+        }
+
+        mockMvc.perform(post("/api/v1/wallets/balances")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(ids)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("BATCH_TOO_LARGE"))
+                .andExpect(jsonPath("$.details.maxSize").value(10));
+
+        mockMvc.perform(post("/api/v1/wallets/balances")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"walletIds\":[]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("VALIDATION_ERROR"));
+    }
+
+    @Test
+    void nonPositiveChunkSize_shouldBeRejectedAtStartup() {
+        // иначе цикл по чанкам в getBalances не продвигается
+        assertThrows(IllegalArgumentException.class, () -> new WalletService(
+                null, null, null, null, null, null, null, 1000, 1000, 0));
+    }
+
+    private static String body(List<UUID> ids) {
+        return ids.stream().map(id -> "\"" + id + "\"")
+                .collect(Collectors.joining(",", "{\"walletIds\":[", "]}"));
+    }
+}
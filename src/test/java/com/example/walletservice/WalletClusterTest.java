@@ -0,0 +1,269 @@
+package com.example.walletservice;
+
+import com.example.walletservice.cluster.ConsistentHashRing;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Несколько узлов в одном JVM поверх общей БД. Контекст самого теста — обычный (кластер выключен),
+ * он только применяет миграции и даёт jdbcTemplate.
+ */
+@SpringBootTest
+class WalletClusterTest extends AbstractPostgresTest {
+
+    private static final int VIRTUAL_NODES = 128;
+    private static final int BUCKETS = 1024;
+
+    /** БД контекста теста: он может быть взят из кэша и смотреть не туда, куда сейчас POSTGRES.getJdbcUrl() */
+    @Autowired
+    private DataSourceProperties dataSource;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final Map<String, Integer> ports = new LinkedHashMap<>();
+    private final Map<String, ConfigurableApplicationContext> nodes = new LinkedHashMap<>();
+
+    @AfterEach
+    void stopNodes() {
+        nodes.values().forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void depositsThroughAnyNode_shouldBeAppliedOnceByOwner() throws Exception {
+        startCluster(List.of("a", "b", "c"), 1);
+        var ring = new ConsistentHashRing(List.of("a", "b", "c"), VIRTUAL_NODES, BUCKETS);
+        UUID walletId = walletOwnedBy(id -> ring.ownerOf(id).equals("a"));
+        upsertWallet(walletId, BigDecimal.ZERO);
+
+        int perNode = 30;
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (String node : List.of("a", "b", "c")) {
+                for (int t = 0; t < 2; t++) {
+                    results.add(pool.submit(() -> {
+                        int ok = 0;
+                        for (int i = 0; i < perNode / 2; i++) {
+                            if (operate(node, walletId, "DEPOSIT", "1.00").statusCode() == 200) {
+                                ok++;
+                            }
+                        }
+                        return ok;
+                    }));
+                }
+            }
+            int ok = 0;
+            for (Future<Integer> f : results) {
+                ok += f.get();
+            }
+            assertEquals(3 * perNode, ok);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(0, new BigDecimal("90.00").compareTo(balanceInDb(walletId)));
+        assertTrue(counter("b", "wallet.cluster.forwarded") > 0);
+        assertEquals(0, counter("a", "wallet.cluster.forwarded"));
+
+        // ответ владельца (ошибка бизнес-логики) возвращается клиенту без изменений
+        var rejected = operate("c", walletId, "WITHDRAW", "1000.00");
+        assertTrue(rejected.body().contains("INSUFFICIENT_FUNDS"), rejected.body());
+        assertEquals(0, new BigDecimal("90.00").compareTo(balanceInDb(walletId)));
+    }
+
+    @Test
+    void joiningNode_shouldFencePreviousOwnerAndReceiveItsWrites() throws Exception {
+        startCluster(List.of("a", "b", "c"), 1);
+        var oldRing = new ConsistentHashRing(List.of("a", "b", "c"), VIRTUAL_NODES, BUCKETS);
+        var newRing = new ConsistentHashRing(List.of("a", "b", "c", "d"), VIRTUAL_NODES, BUCKETS);
+        UUID walletId = walletOwnedBy(id -> oldRing.ownerOf(id).equals("a") && newRing.ownerOf(id).equals("d"));
+        upsertWallet(walletId, BigDecimal.ZERO);
+
+        assertEquals(200, operate("a", walletId, "DEPOSIT", "10.00").statusCode());
+
+        // d знает о себе (версия 2), a/b/c ещё работают со старым списком
+        ports.put("d", freePort());
+        nodes.put("d", startNode("d", 2));
+        assertEquals(200, operate("d", walletId, "DEPOSIT", "5.00").statusCode());
+
+        // a держит устаревший epoch: запись отклоняется fencing'ом и пересылается d
+        assertEquals(200, operate("a", walletId, "DEPOSIT", "1.00").statusCode());
+        // b по старому кольцу шлёт a, a — дальше d
+        assertEquals(200, operate("b", walletId, "WITHDRAW", "6.00").statusCode());
+        assertEquals(1, count("SELECT count(*) FROM cluster_buckets WHERE owner = 'd'"));
+
+        assertEquals(0, new BigDecimal("10.00").compareTo(balanceInDb(walletId)));
+        assertTrue(counter("a", "wallet.cluster.forwarded") >= 2);
+        assertEquals(0, counter("d", "wallet.cluster.forwarded"));
+    }
+
+    @Test
+    void ownerNotResponding_shouldReportUnknownOutcomeNotRetryableUnavailable() throws Exception {
+        startCluster(List.of("a", "b"), 1, "--wallet.cluster.forward-timeout=500ms");
+        var ring = new ConsistentHashRing(List.of("a", "b"), VIRTUAL_NODES, BUCKETS);
+        UUID walletId = walletOwnedBy(id -> ring.ownerOf(id).equals("a"));
+        upsertWallet(walletId, BigDecimal.ZERO);
+
+        try (Connection lock = jdbcTemplate.getDataSource().getConnection();
+             Statement st = lock.createStatement()) {
+            // владелец получил запрос и стоит на блокировке строки дольше таймаута пересылки
+            lock.setAutoCommit(false);
+            st.execute("SELECT 1 FROM wallets WHERE id = '" + walletId + "' FOR UPDATE");
+
+            var response = operate("b", walletId, "DEPOSIT", "3.00");
+            assertEquals(504, response.statusCode(), response.body());
+            assertTrue(response.body().contains("OPERATION_OUTCOME_UNKNOWN"), response.body());
+            assertTrue(response.headers().firstValue("Retry-After").isEmpty());
+
+            lock.commit();
+        }
+        // владелец всё-таки применил операцию — повтор после 504 задвоил бы её
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (balanceInDb(walletId).signum() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, new BigDecimal("3.00").compareTo(balanceInDb(walletId)));
+
+        // владелец остановлен: соединения нет, запрос не дошёл — 503 с Retry-After
+        nodes.remove("a").close();
+        var unavailable = operate("b", walletId, "DEPOSIT", "3.00");
+        assertEquals(503, unavailable.statusCode(), unavailable.body());
+        assertTrue(unavailable.body().contains("OWNER_UNAVAILABLE"), unavailable.body());
+        assertTrue(unavailable.headers().firstValue("Retry-After").isPresent());
+        assertEquals(0, new BigDecimal("3.00").compareTo(balanceInDb(walletId)));
+    }
+
+    @Test
+    void ownerWrite_shouldUpdateOwnersBalanceCache() throws Exception {
+        startCluster(List.of("a", "b"), 1, "--wallet.cache.mode=multi-instance", "--wallet.cache.multi-instance-ttl=1h");
+        var ring = new ConsistentHashRing(List.of("a", "b"), VIRTUAL_NODES, BUCKETS);
+        UUID walletId = walletOwnedBy(id -> ring.ownerOf(id).equals("a"));
+        upsertWallet(walletId, BigDecimal.ZERO);
+
+        assertTrue(balance("a", walletId).contains("\"balance\":0"));
+        assertEquals(200, operate("b", walletId, "DEPOSIT", "7.00").statusCode());
+        assertTrue(balance("a", walletId).contains("\"balance\":7"), balance("a", walletId));
+    }
+
+    @Test
+    void localBalanceCache_shouldFailClusterStartup() throws Exception {
+        jdbcTemplate.update("DELETE FROM cluster_buckets");
+        ports.put("a", freePort());
+        Exception e = assertThrows(Exception.class, () -> startNode("a", 1, "--wallet.cache.mode=local"));
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        assertTrue(String.valueOf(cause.getMessage()).contains("wallet.cache.mode=local"), cause.getMessage());
+    }
+
+    @Test
+    void stripedWallets_shouldFailClusterStartup() throws Exception {
+        jdbcTemplate.update("DELETE FROM cluster_buckets");
+        ports.put("a", freePort());
+        Exception e = assertThrows(Exception.class,
+                () -> startNode("a", 1, "--wallet.striping.wallet-ids=" + UUID.randomUUID()));
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        assertTrue(String.valueOf(cause.getMessage()).contains("wallet.striping.wallet-ids"), cause.getMessage());
+    }
+
+    private void startCluster(List<String> ids, long version, String... args) throws Exception {
+        jdbcTemplate.update("DELETE FROM cluster_buckets");
+        for (String id : ids) {
+            ports.put(id, freePort());
+        }
+        for (String id : ids) {
+            nodes.put(id, startNode(id, version, args));
+        }
+    }
+
+    private ConfigurableApplicationContext startNode(String id, long version, String... args) {
+        StringJoiner members = new StringJoiner(",");
+        ports.forEach((node, port) -> members.add(node + "=http://localhost:" + port));
+        List<String> all = new ArrayList<>(List.of(
+                "--server.port=" + ports.get(id),
+                "--spring.datasource.url=" + dataSource.getUrl(),
+                "--spring.datasource.username=" + dataSource.getUsername(),
+                "--spring.datasource.password=" + dataSource.getPassword(),
+                "--spring.liquibase.enabled=false",
+                "--wallet.cluster.enabled=true",
+                "--wallet.cluster.node-id=" + id,
+                "--wallet.cluster.members=" + members,
+                "--wallet.cluster.membership-version=" + version,
+                "--wallet.cluster.virtual-nodes=" + VIRTUAL_NODES,
+                "--wallet.cluster.buckets=" + BUCKETS
+        ));
+        all.addAll(List.of(args));
+        return new SpringApplicationBuilder(WalletServiceApplication.class).run(all.toArray(String[]::new));
+    }
+
+    private String balance(String node, UUID walletId) throws Exception {
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + ports.get(node) + "/api/v1/wallets/" + walletId))
+                .GET()
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private HttpResponse<String> operate(String node, UUID walletId, String type, String amount) throws Exception {
+        String body = """
+                {"walletId":"%s","operationType":"%s","amount":%s}
+                """.formatted(walletId, type, amount);
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + ports.get(node) + "/api/v1/wallet"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private double counter(String node, String name) {
+        return nodes.get(node).getBean(MeterRegistry.class).get(name).counter().count();
+    }
+
+    private BigDecimal balanceInDb(UUID walletId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE id = ?", BigDecimal.class, walletId);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    private static UUID walletOwnedBy(Predicate<UUID> predicate) {
+        for (long i = 1; ; i++) {
+            UUID id = new UUID(0xC1, i);
+            if (predicate.test(id)) {
+                return id;
+            }
+        }
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.walletservice;
+
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.dto.WalletBalanceResponse;
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.error.InsufficientFundsException;
+import com.example.walletservice.service.WalletService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "wallet.write.mode=coalescing")
+class WalletCoalescingTest extends AbstractPostgresTest {
+
+    @Autowired
+    private WalletService walletService;
+
+    @Test
+    void concurrentMixedOperations_shouldKeepBalanceConsistent() throws Exception {
+        upsertWallet(WALLET_ID, new BigDecimal("50.00"));
+        long ledgerFrom = lastLedgerId();
+
+        int threads = 20;
+        int perThreadOps = 20; // итого 400 операций: половина DEPOSIT 1, половина WITHDRAW 2
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger deposits = new AtomicInteger();
+        AtomicInteger withdrawals = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        // (дельта, баланс после) — то, что получил каждый вызывающий
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            boolean deposit = t % 2 == 0;
+            futures.add(pool.submit(() -> {
+                await(start);
+                for (int i = 0; i < perThreadOps; i++) {
+                    BigDecimal delta = deposit ? BigDecimal.ONE : new BigDecimal("-2");
+                    try {
+                        WalletBalanceResponse response = walletService.operate(new WalletOperationRequest(
+                                WALLET_ID,
+                                deposit ? OperationType.DEPOSIT : OperationType.WITHDRAW,
+                                delta.abs()
+                        ));
+                        (deposit ? deposits : withdrawals).incrementAndGet();
+                        applied.add(entry(delta, response.balance()));
+                    } catch (InsufficientFundsException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+
+        pool.shutdown();
+
+        BigDecimal expected = new BigDecimal("50.00")
+                .add(BigDecimal.valueOf(deposits.get()))
+                .subtract(BigDecimal.valueOf(2L * withdrawals.get()));
+
+        assertEquals(threads * perThreadOps, deposits.get() + withdrawals.get() + rejected.get());
+        assertEquals(0, expected.compareTo(walletService.getBalance(WALLET_ID).balance()));
+
+        // журнал — последовательная цепочка от 50.00, а каждый вызывающий получил ровно свою запись из неё
+        List<BigDecimal[]> rows = jdbcTemplate.query(
+                "SELECT delta, balance_after FROM wallet_transactions WHERE wallet_id = ? AND id > ? ORDER BY id",
+                (rs, i) -> new BigDecimal[]{rs.getBigDecimal(1), rs.getBigDecimal(2)}, WALLET_ID, ledgerFrom);
+        BigDecimal running = new BigDecimal("50.00");
+        List<String> ledger = new ArrayList<>();
+        for (BigDecimal[] row : rows) {
+            running = running.add(row[0]);
+            assertEquals(0, running.compareTo(row[1]));
+            ledger.add(entry(row[0], row[1]));
+        }
+        List<String> returned = new ArrayList<>(applied);
+        Collections.sort(returned);
+        Collections.sort(ledger);
+        assertEquals(ledger, returned);
+
+        // записи одной транзакции имеют общий created_at (now()) — транзакций заметно меньше, чем операций
+        Integer transactions = jdbcTemplate.queryForObject(
+                "SELECT count(DISTINCT created_at) FROM wallet_transactions WHERE wallet_id = ? AND id > ?",
+                Integer.class, WALLET_ID, ledgerFrom);
+        assertTrue(transactions < applied.size(), transactions + " транзакций на " + applied.size() + " операций");
+    }
+
+    @Test
+    void failingOperation_shouldNotFailOthersInItsBatch() throws Exception {
+        upsertWallet(WALLET_ID, new BigDecimal("99999999999999900.00"));
+
+        int threads = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> deposits = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            deposits.add(pool.submit(() -> {
+                await(start);
+                walletService.operate(new WalletOperationRequest(WALLET_ID, OperationType.DEPOSIT, BigDecimal.ONE));
+            }));
+        }
+        // выходит за numeric(19,2)
+        Future<?> overflow = pool.submit(() -> {
+            await(start);
+            walletService.operate(new WalletOperationRequest(WALLET_ID, OperationType.DEPOSIT, new BigDecimal("1000")));
+        });
+
+        start.countDown();
+        for (Future<?> f : deposits) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        ExecutionException e = assertThrows(ExecutionException.class, () -> overflow.get(30, TimeUnit.SECONDS));
+        assertInstanceOf(DataAccessException.class, e.getCause());
+
+        pool.shutdown();
+
+        assertEquals(0, new BigDecimal("99999999999999920.00").compareTo(walletService.getBalance(WALLET_ID).balance()));
+    }
+
+    private long lastLedgerId() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(max(id), 0) FROM wallet_transactions", Long.class);
+    }
+
+    private static String entry(BigDecimal delta, BigDecimal balance) {
+        return delta.stripTrailingZeros().toPlainString() + "@" + balance.stripTrailingZeros().toPlainString();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -8,8 +8,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -53,6 +55,63 @@ class WalletConcurrencyTest extends AbstractPostgresTest {
         assertEquals(new BigDecimal("200.00"), balance);
     }
 
+    @Test
+    void concurrentRetriesWithSameIdempotencyKey_shouldApplyOnce() throws Exception {
+        int threads = 20;
+        String key = "storm-" + UUID.randomUUID();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BigDecimal>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                await(start);
+                return walletService.operate(new WalletOperationRequest(
+                        WALLET_ID,
+                        OperationType.DEPOSIT,
+                        BigDecimal.TEN
+                ), key).balance();
+            }));
+        }
+
+        start.countDown();
+        for (Future<BigDecimal> f : futures) {
+            assertEquals(new BigDecimal("10.00"), f.get(30, TimeUnit.SECONDS));
+        }
+
+        pool.shutdown();
+
+        assertEquals(new BigDecimal("10.00"), walletService.getBalance(WALLET_ID).balance());
+    }
+
+    @Test
+    void retryOfKeyStoredElsewhere_shouldReplayWithoutTouchingWalletRow() throws Exception {
+        // ключ сохранил другой инстанс: в локальной map этого его нет
+        String key = "elsewhere-" + UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO idempotency_keys (key, wallet_id, delta, status, balance, expires_at)
+                VALUES (?, ?, 10, 'UPDATED', 10, now() + interval '1 hour')
+                """, key, WALLET_ID);
+        long ledgerRows = jdbcTemplate.queryForObject("SELECT count(*) FROM wallet_transactions", Long.class);
+
+        try (Connection holder = jdbcTemplate.getDataSource().getConnection()) {
+            holder.setAutoCommit(false);
+            holder.createStatement().execute("SELECT 1 FROM wallets WHERE id = '" + WALLET_ID + "' FOR UPDATE");
+
+            // строка кошелька заблокирована: повтор, дошедший до UPDATE, повис бы здесь
+            ExecutorService pool = Executors.newSingleThreadExecutor();
+            Future<BigDecimal> replay = pool.submit(() -> walletService.operate(
+                    new WalletOperationRequest(WALLET_ID, OperationType.DEPOSIT, BigDecimal.TEN), key).balance());
+            assertEquals(0, BigDecimal.TEN.compareTo(replay.get(5, TimeUnit.SECONDS)));
+            pool.shutdown();
+            holder.rollback();
+        }
+
+        assertEquals(ledgerRows, jdbcTemplate.queryForObject("SELECT count(*) FROM wallet_transactions", Long.class));
+        assertEquals(0, BigDecimal.ZERO.compareTo(walletService.getBalance(WALLET_ID).balance()));
+    }
+
     private static void await(CountDownLatch latch) {
         try {
             latch.await();
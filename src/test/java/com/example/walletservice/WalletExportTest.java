@@ -0,0 +1,131 @@
+package com.example.walletservice;
+
+import com.example.walletservice.persistence.WalletExportRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// маленькие страницы, чтобы выгрузка шла через много запросов keyset
+@SpringBootTest(properties = {"wallet.export.page-size=100", "wallet.export.fetch-size=100"})
+@AutoConfigureMockMvc
+class WalletExportTest extends AbstractPostgresTest {
+
+    private static final UUID LAST_ID = UUID.fromString("ffffffff-ffff-ffff-ffff-fffffffffff0");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WalletExportRepository exportRepository;
+
+    @Test
+    void ndjsonExport_shouldContainEveryWalletInIdOrder() throws Exception {
+        UUID id = UUID.randomUUID();
+        upsertWallet(id, new BigDecimal("12.34"));
+        jdbcTemplate.update("""
+                INSERT INTO wallets (id, balance)
+                SELECT md5(random()::text || g)::uuid, g FROM generate_series(1, 350) g
+                """);
+
+        byte[] body = mockMvc.perform(get("/api/v1/wallets/export"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<String> lines = lines(body);
+        assertEquals(walletCount(), lines.size());
+        assertTrue(lines.contains("{\"id\":\"" + id + "\",\"balance\":12.34}"));
+        assertSortedById(lines, 7);
+    }
+
+    @Test
+    void csvExport_shouldBeGzippedWhenAccepted() throws Exception {
+        UUID id = UUID.randomUUID();
+        upsertWallet(id, new BigDecimal("5.00"));
+
+        byte[] body = mockMvc.perform(get("/api/v1/wallets/export")
+                        .param("format", "csv")
+                        .param("consistent", "true")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<String> lines = lines(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes());
+        assertEquals("id,balance", lines.get(0));
+        assertEquals(walletCount() + 1, lines.size());
+        assertTrue(lines.contains(id + ",5.00"));
+
+        mockMvc.perform(get("/api/v1/wallets/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void consistentExport_shouldNotSeeWalletsCreatedDuringIt() {
+        jdbcTemplate.update("""
+                INSERT INTO wallets (id, balance)
+                SELECT md5(random()::text || g)::uuid, 0 FROM generate_series(1, 150) g
+                """);
+
+        assertFalse(exportSeesWalletCreatedDuringIt(true));
+        // без снимка кошелёк с наибольшим id, созданный после первой страницы, попадает в одну из следующих
+        assertTrue(exportSeesWalletCreatedDuringIt(false));
+    }
+
+    private boolean exportSeesWalletCreatedDuringIt(boolean consistent) {
+        jdbcTemplate.update("DELETE FROM wallets WHERE id = ?", LAST_ID);
+        boolean[] inserted = {false};
+        boolean[] seen = {false};
+        exportRepository.export(consistent, (walletId, balance) -> {
+            if (!inserted[0]) {
+                // отдельное соединение с autocommit: jdbcTemplate в этом потоке попал бы в транзакцию выгрузки
+                try (Connection c = jdbcTemplate.getDataSource().getConnection();
+                     Statement st = c.createStatement()) {
+                    st.executeUpdate("INSERT INTO wallets (id, balance) VALUES ('" + LAST_ID + "', 0)");
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                inserted[0] = true;
+            }
+            seen[0] |= walletId.equals(LAST_ID.toString());
+        });
+        jdbcTemplate.update("DELETE FROM wallets WHERE id = ?", LAST_ID);
+        return seen[0];
+    }
+
+    private int walletCount() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM wallets", Integer.class);
+    }
+
+    private static List<String> lines(byte[] body) {
+        String text = new String(body, StandardCharsets.UTF_8);
+        assertTrue(text.endsWith("\n"));
+        return List.of(text.substring(0, text.length() - 1).split("\n"));
+    }
+
+    private static void assertSortedById(List<String> lines, int idOffset) {
+        String prev = "";
+        for (String line : lines) {
+            String id = line.substring(idOffset, idOffset + 36);
+            assertTrue(id.compareTo(prev) > 0, "порядок нарушен на " + id);
+            prev = id;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.walletservice;
+
+import com.example.walletservice.grpc.WalletGrpcServer;
+import com.example.walletservice.grpc.v1.GetBalanceRequest;
+import com.example.walletservice.grpc.v1.OperateRequest;
+import com.example.walletservice.grpc.v1.OperateResponse;
+import com.example.walletservice.grpc.v1.OperateStatus;
+import com.example.walletservice.grpc.v1.OperationType;
+import com.example.walletservice.grpc.v1.WalletApiGrpc;
+import com.example.walletservice.service.StripedWalletWriter;
+import com.example.walletservice.service.WalletService;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "wallet.grpc.enabled=true",
+        "wallet.grpc.port=0",
+        "wallet.striping.wallet-ids=00000000-0000-0000-0000-000000000002",
+        "wallet.striping.slots=4"
+})
+class WalletGrpcApiTest extends AbstractPostgresTest {
+
+    private static final UUID STRIPED_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Autowired
+    private WalletGrpcServer server;
+
+    @Autowired
+    private StripedWalletWriter stripedWriter;
+
+    @Autowired
+    private WalletService walletService;
+
+    private ManagedChannel channel;
+    private WalletApiGrpc.WalletApiBlockingStub blocking;
+    private WalletApiGrpc.WalletApiStub async;
+
+    @BeforeEach
+    void connect() {
+        channel = Grpc.newChannelBuilderForAddress("localhost", server.getPort(), InsecureChannelCredentials.create())
+                .build();
+        blocking = WalletApiGrpc.newBlockingStub(channel).withDeadlineAfter(10, TimeUnit.SECONDS);
+        async = WalletApiGrpc.newStub(channel);
+    }
+
+    @AfterEach
+    void disconnect() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void operate_shouldMapApplyDeltaStatusToResponseStatus() {
+        OperateResponse deposit = blocking.operate(operation(WALLET_ID, OperationType.DEPOSIT, "10.50"));
+        assertEquals(OperateStatus.UPDATED, deposit.getStatus());
+        assertEquals(WALLET_ID.toString(), deposit.getWalletId());
+        assertEquals(0, new BigDecimal("10.50").compareTo(new BigDecimal(deposit.getBalance())));
+
+        OperateResponse insufficient = blocking.operate(operation(WALLET_ID, OperationType.WITHDRAW, "100.00"));
+        assertEquals(OperateStatus.INSUFFICIENT_FUNDS, insufficient.getStatus());
+        assertEquals("", insufficient.getBalance());
+
+        OperateResponse notFound = blocking.operate(operation(UUID.randomUUID(), OperationType.DEPOSIT, "1.00"));
+        assertEquals(OperateStatus.WALLET_NOT_FOUND, notFound.getStatus());
+
+        assertEquals(0, new BigDecimal("10.50").compareTo(
+                new BigDecimal(blocking.getBalance(GetBalanceRequest.newBuilder().setWalletId(WALLET_ID.toString()).build())
+                        .getBalance())));
+    }
+
+    @Test
+    void operate_shouldRejectInvalidRequestsLikeRest() {
+        for (OperateRequest invalid : List.of(
+                operation(WALLET_ID, OperationType.DEPOSIT, "0"),
+                operation(WALLET_ID, OperationType.DEPOSIT, "1.001"),
+                operation(WALLET_ID, OperationType.DEPOSIT, "abc"),
+                operation(WALLET_ID, OperationType.OPERATION_TYPE_UNSPECIFIED, "1.00"),
+                OperateRequest.newBuilder().setWalletId("not-a-uuid").setOperationType(OperationType.DEPOSIT)
+                        .setAmount("1.00").build()
+        )) {
+            StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> blocking.operate(invalid));
+            assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode(), invalid.toString());
+        }
+
+        StatusRuntimeException notFound = assertThrows(StatusRuntimeException.class, () -> blocking.getBalance(
+                GetBalanceRequest.newBuilder().setWalletId(UUID.randomUUID().toString()).build()));
+        assertEquals(Status.Code.NOT_FOUND, notFound.getStatus().getCode());
+    }
+
+    @Test
+    void operate_withIdempotencyKey_shouldApplyOnce() {
+        OperateRequest request = operation(WALLET_ID, OperationType.DEPOSIT, "5.00").toBuilder()
+                .setIdempotencyKey("grpc-" + UUID.randomUUID())
+                .build();
+
+        OperateResponse first = blocking.operate(request);
+        OperateResponse replay = blocking.operate(request);
+
+        assertEquals(first, replay);
+        assertEquals(0, new BigDecimal("5.00").compareTo(
+                new BigDecimal(blocking.getBalance(GetBalanceRequest.newBuilder().setWalletId(WALLET_ID.toString()).build())
+                        .getBalance())));
+    }
+
+    @Test
+    void operateStream_shouldPipelineOperationsAndAnswerInOrder() throws Exception {
+        UUID drained = UUID.randomUUID();
+        upsertWallet(drained, new BigDecimal("100.00"));
+
+        int count = 5_000;
+        List<OperateResponse> responses = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        StreamObserver<OperateRequest> requests = async.operateStream(collect(responses, done));
+        for (int i = 0; i < count; i++) {
+            // каждая десятая — списание 1.00 со второго кошелька: первые 100 проходят, остальные — INSUFFICIENT_FUNDS
+            OperateRequest request = (i % 10 == 0)
+                    ? operation(drained, OperationType.WITHDRAW, "1.00")
+                    : operation(WALLET_ID, OperationType.DEPOSIT, "1.00");
+            requests.onNext(request.toBuilder().setRequestId(i).build());
+        }
+        requests.onCompleted();
+        done.get(60, TimeUnit.SECONDS);
+
+        assertEquals(count, responses.size());
+        BigDecimal lastDeposit = BigDecimal.ZERO;
+        int withdrawn = 0;
+        int insufficient = 0;
+        for (int i = 0; i < count; i++) {
+            OperateResponse response = responses.get(i);
+            assertEquals(i, response.getRequestId());
+            if (i % 10 == 0) {
+                if (response.getStatus() == OperateStatus.UPDATED) {
+                    withdrawn++;
+                    assertEquals(0, insufficient, "списание прошло после отказа: порядок нарушен");
+                } else {
+                    assertEquals(OperateStatus.INSUFFICIENT_FUNDS, response.getStatus());
+                    insufficient++;
+                }
+            } else {
+                assertEquals(OperateStatus.UPDATED, response.getStatus());
+                BigDecimal balance = new BigDecimal(response.getBalance());
+                assertEquals(0, lastDeposit.add(BigDecimal.ONE).compareTo(balance), "request " + i);
+                lastDeposit = balance;
+            }
+        }
+        assertEquals(100, withdrawn);
+        assertEquals(0, new BigDecimal(count - count / 10).compareTo(lastDeposit));
+    }
+
+    @Test
+    void operateStream_stripedWallet_shouldGoThroughSlotAwareApplyInOrder() throws Exception {
+        jdbcTemplate.update("DELETE FROM wallet_slots");
+        upsertWallet(STRIPED_ID, new BigDecimal("10.00"));
+        stripedWriter.ensureSlots(STRIPED_ID);
+
+        List<OperateResponse> responses = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        StreamObserver<OperateRequest> requests = async.operateStream(collect(responses, done));
+        // списание 12 больше любого слота: пачкой по wallets.balance оно было бы ложным INSUFFICIENT_FUNDS
+        List<OperateRequest> sent = List.of(
+                operation(STRIPED_ID, OperationType.DEPOSIT, "5.00"),
+                operation(WALLET_ID, OperationType.DEPOSIT, "1.00"),
+                operation(STRIPED_ID, OperationType.WITHDRAW, "12.00"),
+                operation(WALLET_ID, OperationType.DEPOSIT, "1.00"),
+                operation(STRIPED_ID, OperationType.WITHDRAW, "4.00"));
+        for (int i = 0; i < sent.size(); i++) {
+            requests.onNext(sent.get(i).toBuilder().setRequestId(i).build());
+        }
+        requests.onCompleted();
+        done.get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of(OperateStatus.UPDATED, OperateStatus.UPDATED, OperateStatus.UPDATED, OperateStatus.UPDATED,
+                        OperateStatus.INSUFFICIENT_FUNDS),
+                responses.stream().map(OperateResponse::getStatus).toList());
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), responses.stream().map(OperateResponse::getRequestId).toList());
+        assertEquals(0, new BigDecimal("3.00").compareTo(walletService.getBalance(STRIPED_ID).balance()));
+        assertEquals(0, new BigDecimal("2.00").compareTo(walletService.getBalance(WALLET_ID).balance()));
+    }
+
+    @Test
+    void operateStream_invalidRequest_shouldFailCallAfterAnsweringEarlierOnes() throws Exception {
+        List<OperateResponse> responses = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        StreamObserver<OperateRequest> requests = async.operateStream(collect(responses, done));
+        requests.onNext(operation(WALLET_ID, OperationType.DEPOSIT, "1.00").toBuilder().setRequestId(1).build());
+        requests.onNext(operation(WALLET_ID, OperationType.DEPOSIT, "-1").toBuilder().setRequestId(2).build());
+        requests.onCompleted();
+
+        Exception e = assertThrows(Exception.class, () -> done.get(10, TimeUnit.SECONDS));
+        Status status = Status.fromThrowable(e.getCause());
+        assertEquals(Status.Code.INVALID_ARGUMENT, status.getCode());
+        assertTrue(status.getDescription().startsWith("request_id 2:"), status.getDescription());
+        assertEquals(1, responses.size());
+        assertEquals(1, responses.get(0).getRequestId());
+    }
+
+    private static OperateRequest operation(UUID walletId, OperationType type, String amount) {
+        return OperateRequest.newBuilder()
+                .setWalletId(walletId.toString())
+                .setOperationType(type)
+                .setAmount(amount)
+                .build();
+    }
+
+    private static StreamObserver<OperateResponse> collect(List<OperateResponse> responses, CompletableFuture<Void> done) {
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(OperateResponse response) {
+                responses.add(response);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                done.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                done.complete(null);
+            }
+        };
+    }
+}
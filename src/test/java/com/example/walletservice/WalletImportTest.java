@@ -0,0 +1,161 @@
+package com.example.walletservice;
+
+import com.example.walletservice.persistence.WalletImportRepository.Format;
+import com.example.walletservice.service.WalletImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class WalletImportTest extends AbstractPostgresTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WalletImportService importService;
+
+    @Test
+    void csvImport_shouldCreateNewWalletsAndSkipExisting() throws Exception {
+        UUID existing = UUID.randomUUID();
+        UUID created1 = UUID.randomUUID();
+        UUID created2 = UUID.randomUUID();
+        upsertWallet(existing, new BigDecimal("7.00"));
+
+        String csv = """
+                id,balance
+                %s,100.00
+                %s,0
+                %s,999.99
+                """.formatted(created1, created2, existing);
+
+        mockMvc.perform(post("/api/v1/wallets/import").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(3))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.skipped").value(1));
+
+        assertEquals(0, new BigDecimal("100.00").compareTo(balance(created1)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(balance(created2)));
+        assertEquals(0, new BigDecimal("7.00").compareTo(balance(existing)));
+        // начальный баланс попадает в журнал, как зачисление
+        assertEquals(0, new BigDecimal("100.00").compareTo(ledgerSum(created1)));
+    }
+
+    @Test
+    void invalidRow_shouldRejectWholeImport() throws Exception {
+        UUID first = UUID.randomUUID();
+        String ndjson = """
+                {"id":"%s","balance":10}
+                {"id":"%s","balance":-1}
+                """.formatted(first, UUID.randomUUID());
+
+        mockMvc.perform(post("/api/v1/wallets/import").contentType("application/x-ndjson").content(ndjson))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("IMPORT_INVALID"))
+                .andExpect(jsonPath("$.details.line").value(2));
+
+        mockMvc.perform(post("/api/v1/wallets/import").contentType("text/csv").content("id,balance\nnot-a-uuid,1\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("IMPORT_INVALID"));
+
+        mockMvc.perform(post("/api/v1/wallets/import").contentType("text/plain").content("x"))
+                .andExpect(status().isUnsupportedMediaType())
+                .andExpect(jsonPath("$.errorCode").value("UNSUPPORTED_MEDIA_TYPE"));
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM wallets WHERE id = ?", Integer.class, first));
+    }
+
+    @Test
+    void copyFailureNotCausedByData_shouldNotBeReportedAsInvalidImport() {
+        UUID id = UUID.randomUUID();
+        // COPY отменяется на сервере (57014 query_canceled), пока ждёт данных: файл корректен, ошибка — не 400
+        InputStream cancelledMidCopy = new InputStream() {
+            private byte[] data;
+            private int pos;
+
+            @Override
+            public int read() {
+                if (data == null) {
+                    // из другого потока: в этом к транзакции импорта привязано соединение, занятое COPY
+                    CompletableFuture.runAsync(() -> jdbcTemplate.queryForList("""
+                            SELECT pg_cancel_backend(pid) FROM pg_stat_activity
+                            WHERE query LIKE 'COPY wallet_import%' AND pid <> pg_backend_pid()
+                            """)).join();
+                    data = ("id,balance\n" + id + ",1\n").getBytes(StandardCharsets.UTF_8);
+                }
+                return pos < data.length ? data[pos++] : -1;
+            }
+        };
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> importService.importWallets(Format.CSV, cancelledMidCopy));
+        assertEquals("57014", assertInstanceOf(SQLException.class, e.getCause()).getSQLState());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM wallets WHERE id = ?", Integer.class, id));
+    }
+
+    @Test
+    void largeNdjsonStream_shouldBeCopiedWithoutBuffering() {
+        int rows = 200_000;
+        long prefix = System.nanoTime();
+
+        // поток генерирует строки на лету: весь файл ни разу не существует в памяти
+        var result = importService.importWallets(Format.NDJSON, new GeneratedNdjson(prefix, rows));
+
+        assertEquals(rows, result.received());
+        assertEquals(rows, result.created());
+        assertEquals(rows, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM wallets WHERE id >= ? AND id <= ?", Integer.class,
+                new UUID(prefix, 0), new UUID(prefix, rows - 1)));
+    }
+
+    private BigDecimal balance(UUID id) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE id = ?", BigDecimal.class, id);
+    }
+
+    private BigDecimal ledgerSum(UUID id) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(sum(delta), 0) FROM wallet_transactions WHERE wallet_id = ?", BigDecimal.class, id);
+    }
+
+    private static final class GeneratedNdjson extends InputStream {
+        private final long prefix;
+        private final int rows;
+        private int next;
+        private byte[] line = new byte[0];
+        private int pos;
+
+        GeneratedNdjson(long prefix, int rows) {
+            this.prefix = prefix;
+            this.rows = rows;
+        }
+
+        @Override
+        public int read() {
+            if (pos == line.length) {
+                if (next == rows) {
+                    return -1;
+                }
+                line = ("{\"id\":\"" + new UUID(prefix, next) + "\",\"balance\":" + (next % 1000) + ".25}\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                pos = 0;
+                next++;
+            }
+            return line[pos++];
+        }
+    }
+}
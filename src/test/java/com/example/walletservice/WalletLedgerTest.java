@@ -0,0 +1,120 @@
+package com.example.walletservice;
+
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.error.InsufficientFundsException;
+import com.example.walletservice.persistence.LedgerPartitionMaintenance;
+import com.example.walletservice.service.WalletService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class WalletLedgerTest extends AbstractPostgresTest {
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private LedgerPartitionMaintenance partitionMaintenance;
+
+    @Test
+    void successfulOperations_shouldBeJournaled() {
+        UUID walletId = UUID.randomUUID();
+        upsertWallet(walletId, BigDecimal.ZERO);
+
+        walletService.operate(new WalletOperationRequest(walletId, OperationType.DEPOSIT, new BigDecimal("100")));
+        walletService.operate(new WalletOperationRequest(walletId, OperationType.WITHDRAW, new BigDecimal("30")));
+        assertThrows(InsufficientFundsException.class, () -> walletService.operate(
+                new WalletOperationRequest(walletId, OperationType.WITHDRAW, new BigDecimal("500"))));
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT delta, balance_after FROM wallet_transactions WHERE wallet_id = ? ORDER BY id", walletId);
+
+        assertEquals(2, rows.size());
+        assertEquals(0, new BigDecimal("100").compareTo((BigDecimal) rows.get(0).get("delta")));
+        assertEquals(0, new BigDecimal("100").compareTo((BigDecimal) rows.get(0).get("balance_after")));
+        assertEquals(0, new BigDecimal("-30").compareTo((BigDecimal) rows.get(1).get("delta")));
+        assertEquals(0, new BigDecimal("70").compareTo((BigDecimal) rows.get(1).get("balance_after")));
+    }
+
+    @Test
+    void maintenance_shouldKeepFuturePartitionsAndNotUseDefault() {
+        partitionMaintenance.maintain();
+
+        Integer partitions = jdbcTemplate.queryForObject("""
+                SELECT count(*)
+                FROM pg_inherits
+                WHERE inhparent = 'wallet_transactions'::regclass
+                """, Integer.class);
+        assertTrue(partitions >= 8, "ожидаются секции на сегодня и 7 дней вперёд + default");
+
+        Integer inDefault = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM wallet_transactions_default", Integer.class);
+        assertEquals(0, inDefault);
+    }
+
+    @Test
+    void ensurePartitions_shouldMoveRowsOfTheDayOutOfDefault() {
+        UUID walletId = UUID.randomUUID();
+        // секции на этот день ещё нет — строка попадает в default
+        jdbcTemplate.update("""
+                INSERT INTO wallet_transactions (wallet_id, delta, balance_after, created_at)
+                VALUES (?, 5, 5, date_trunc('day', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' + interval '20 days 1 hour')
+                """, walletId);
+        assertEquals(1, countIn("wallet_transactions_default", walletId));
+
+        jdbcTemplate.execute("SELECT wallet_transactions_ensure_partitions(20)");
+
+        String partition = jdbcTemplate.queryForObject(
+                "SELECT 'wallet_transactions_' || to_char((now() AT TIME ZONE 'UTC')::date + 20, 'YYYYMMDD')", String.class);
+        assertEquals(0, countIn("wallet_transactions_default", walletId));
+        assertEquals(1, countIn(partition, walletId));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM wallet_transactions WHERE wallet_id = ?", Integer.class, walletId));
+    }
+
+    @Test
+    void detachPartition_shouldGiveUpInsteadOfQueueingBehindReaders() throws Exception {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS wallet_transactions_20000101 PARTITION OF wallet_transactions
+                FOR VALUES FROM ('2000-01-01 00:00+00') TO ('2000-01-02 00:00+00')
+                """);
+        List<String> expired = jdbcTemplate.queryForList(
+                "SELECT wallet_transactions_expired_partitions(30)", String.class);
+        assertTrue(expired.contains("wallet_transactions_20000101"), expired.toString());
+
+        try (Connection reader = jdbcTemplate.getDataSource().getConnection()) {
+            reader.setAutoCommit(false);
+            reader.createStatement().execute("LOCK TABLE wallet_transactions IN ACCESS SHARE MODE");
+
+            long start = System.nanoTime();
+            assertFalse(detach("wallet_transactions_20000101"));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            reader.rollback();
+        }
+
+        assertTrue(detach("wallet_transactions_20000101"));
+        assertFalse(detach("wallet_transactions_20000101"));
+        jdbcTemplate.execute("DROP TABLE wallet_transactions_20000101");
+    }
+
+    private boolean detach(String partition) {
+        return jdbcTemplate.queryForObject(
+                "SELECT wallet_transactions_detach_partition(?, 100)", Boolean.class, partition);
+    }
+
+    private int countIn(String table, UUID walletId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM " + table + " WHERE wallet_id = ?", Integer.class, walletId);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.walletservice;
+
+import com.example.walletservice.api.AdaptiveConcurrencyLimiter;
+import com.example.walletservice.api.LoadSheddingInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "wallet.shedding.write.initial-limit=1",
+        "wallet.shedding.write.min-limit=1",
+        "wallet.shedding.write.max-limit=1",
+        "wallet.shedding.retry-after=1500ms"
+})
+@AutoConfigureMockMvc
+class WalletLoadSheddingTest extends AbstractPostgresTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LoadSheddingInterceptor loadShedding;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void overLimit_shouldRejectWritesWith503AndKeepReadsSeparate() throws Exception {
+        double rejectedBefore = registry.get("wallet.shedding.rejected").tag("operation", "write").counter().count();
+
+        AdaptiveConcurrencyLimiter writes = loadShedding.writeLimiter();
+        assertTrue(writes.tryAcquire()); // единственное место занято «долгим» запросом
+        try {
+            mockMvc.perform(deposit())
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "2"))
+                    .andExpect(jsonPath("$.errorCode").value("SERVICE_OVERLOADED"))
+                    .andExpect(jsonPath("$.path").value("/api/v1/wallet"))
+                    .andExpect(jsonPath("$.details.operation").value("write"));
+
+            mockMvc.perform(get("/api/v1/wallets/{id}", WALLET_ID))
+                    .andExpect(status().isOk());
+        } finally {
+            writes.release(0, false);
+        }
+
+        mockMvc.perform(deposit()).andExpect(status().isOk());
+
+        assertEquals(rejectedBefore + 1, registry.get("wallet.shedding.rejected").tag("operation", "write").counter().count());
+        assertEquals(1.0, registry.get("wallet.shedding.limit").tag("operation", "write").gauge().value());
+        assertEquals(0, writes.getInFlight());
+    }
+
+    @Test
+    void limiter_shouldBackOffOnSlowResponsesAndGrowWhenSaturatedAndFast() {
+        var limiter = new AdaptiveConcurrencyLimiter(20, 2, 40, Duration.ofMillis(100), 0.5);
+        long slow = Duration.ofMillis(500).toNanos();
+        long fast = Duration.ofMillis(5).toNanos();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(slow, false);
+        }
+        assertEquals(2, limiter.getLimit()); // 20 → 10 → 5 → 2.5
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertEquals(false, limiter.tryAcquire());
+        limiter.release(fast, true); // 5xx — снижение и без задержки
+        limiter.release(fast, false);
+        assertEquals(2, limiter.getLimit());
+
+        // быстрые ответы при занятом пределе: +1 примерно за каждые limit запросов
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.tryAcquire());
+            assertTrue(limiter.tryAcquire());
+            limiter.release(fast, false);
+            limiter.release(fast, false);
+        }
+        assertTrue(limiter.getLimit() > 2, "limit=" + limiter.getLimit());
+        assertTrue(limiter.getLimit() <= 40);
+    }
+
+    private static MockHttpServletRequestBuilder deposit() {
+        return post("/api/v1/wallet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":1}
+                        """);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.walletservice;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class WalletMetricsTest extends AbstractPostgresTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void operations_shouldBeTimedByOperationAndOutcome() throws Exception {
+        long updatedBefore = operations("DEPOSIT", "UPDATED");
+        long insufficientBefore = operations("WITHDRAW", "INSUFFICIENT_FUNDS");
+        long notFoundBefore = reads("WALLET_NOT_FOUND");
+
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":5}
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"WITHDRAW","amount":50}
+                                """))
+                .andExpect(status().isConflict());
+        mockMvc.perform(get("/api/v1/wallets/{id}", "00000000-0000-0000-0000-000000000099"))
+                .andExpect(status().isNotFound());
+
+        assertEquals(updatedBefore + 1, operations("DEPOSIT", "UPDATED"));
+        assertEquals(insufficientBefore + 1, operations("WITHDRAW", "INSUFFICIENT_FUNDS"));
+        assertEquals(notFoundBefore + 1, reads("WALLET_NOT_FOUND"));
+    }
+
+    @Test
+    void errors_shouldBeCountedByCodeAndField() throws Exception {
+        double before = errors("VALIDATION_ERROR", "400");
+        double notFoundBefore = errors("NOT_FOUND", "404");
+        var field = registry.find("wallet.api.validation.errors").tag("field", "amount").counter();
+        double fieldBefore = field == null ? 0 : field.count();
+
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":-1}
+                                """))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/nope"))
+                .andExpect(status().isNotFound());
+
+        assertEquals(before + 1, errors("VALIDATION_ERROR", "400"));
+        assertEquals(fieldBefore + 1, registry.get("wallet.api.validation.errors").tag("field", "amount").counter().count());
+        assertEquals(notFoundBefore + 1, errors("NOT_FOUND", "404"));
+    }
+
+    @Test
+    void prometheus_shouldExposeHistogramsAndPoolGauges() throws Exception {
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":1}
+                                """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "wallet_operations_seconds_bucket{operation=\"DEPOSIT\",outcome=\"UPDATED\",le=\"0.005\"")))
+                .andExpect(content().string(containsString("hikaricp_connections_acquire_seconds_bucket")))
+                .andExpect(content().string(containsString("hikaricp_connections_usage_seconds_bucket")))
+                .andExpect(content().string(containsString("wallet_db_pool_saturation")));
+    }
+
+    private long operations(String operation, String outcome) {
+        return registry.get("wallet.operations").tag("operation", operation).tag("outcome", outcome).timer().count();
+    }
+
+    private long reads(String outcome) {
+        return registry.get("wallet.balance.reads").tag("outcome", outcome).timer().count();
+    }
+
+    private double errors(String code, String status) {
+        var counter = registry.find("wallet.api.errors").tag("code", code).tag("status", status).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.walletservice;
+
+import com.example.walletservice.persistence.MigrationJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * wallet.migrations.mode=verify и MigrationJob. Проверяемые экземпляры работают в отдельной схеме,
+ * которая пересоздаётся перед каждым тестом; контекст самого теста мигрирует схему по умолчанию.
+ */
+@SpringBootTest
+class WalletMigrationModeTest extends AbstractPostgresTest {
+
+    private static final String SCHEMA = "wallet_migration_mode";
+
+    /** БД контекста теста (он может быть взят из кэша): схема пересоздаётся через его jdbcTemplate */
+    @Autowired
+    private DataSourceProperties dataSource;
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+    @BeforeEach
+    void recreateSchema() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+    }
+
+    @AfterEach
+    void closeContexts() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void verify_shouldRefuseToStartOnUnmigratedSchema() {
+        Exception e = assertThrows(Exception.class, () -> startApp("verify"));
+        assertTrue(rootMessage(e).contains("MigrationJob"), rootMessage(e));
+        assertEquals(0, countTables());
+    }
+
+    @Test
+    void verify_shouldStartAfterMigrationJob() {
+        contexts.add(SpringApplication.run(MigrationJob.class, withSchema("--spring.main.web-application-type=none")));
+        int tables = countTables();
+        assertTrue(tables > 0);
+
+        ConfigurableApplicationContext app = startApp("verify");
+
+        assertTrue(app.isRunning());
+        assertEquals(tables, countTables());
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM " + SCHEMA + ".databasechangeloglock WHERE locked", Integer.class));
+    }
+
+    @Test
+    void verify_shouldRefuseToStartWhenChangeSetIsNotApplied() {
+        contexts.add(SpringApplication.run(MigrationJob.class, withSchema("--spring.main.web-application-type=none")));
+        jdbcTemplate.update("DELETE FROM " + SCHEMA + ".databasechangelog WHERE id = '008-create-cluster-buckets'");
+
+        Exception e = assertThrows(Exception.class, () -> startApp("verify"));
+
+        assertTrue(rootMessage(e).contains("008-create-cluster-buckets"), rootMessage(e));
+        assertTrue(rootMessage(e).contains("MigrationJob"), rootMessage(e));
+    }
+
+    @Test
+    void verify_shouldRefuseToStartOnChangedChecksum() {
+        contexts.add(SpringApplication.run(MigrationJob.class, withSchema("--spring.main.web-application-type=none")));
+        jdbcTemplate.update("UPDATE " + SCHEMA + ".databasechangelog SET md5sum = '9:0' WHERE id = '001-create-wallets'");
+
+        Exception e = assertThrows(Exception.class, () -> startApp("verify"));
+
+        assertTrue(rootMessage(e).contains("001-create-wallets"), rootMessage(e));
+    }
+
+    @Test
+    void unknownMode_shouldFailStartup() {
+        Exception e = assertThrows(Exception.class, () -> startApp("later"));
+        assertTrue(rootMessage(e).contains("apply | verify | skip"), rootMessage(e));
+    }
+
+    private ConfigurableApplicationContext startApp(String mode) {
+        ConfigurableApplicationContext app = new SpringApplicationBuilder(WalletServiceApplication.class)
+                .run(withSchema("--server.port=0", "--wallet.migrations.mode=" + mode));
+        contexts.add(app);
+        return app;
+    }
+
+    private String[] withSchema(String... args) {
+        List<String> all = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + dataSource.getUrl(),
+                "--spring.datasource.username=" + dataSource.getUsername(),
+                "--spring.datasource.password=" + dataSource.getPassword(),
+                "--spring.datasource.hikari.schema=" + SCHEMA,
+                "--spring.liquibase.default-schema=" + SCHEMA
+        ));
+        all.addAll(List.of(args));
+        return all.toArray(String[]::new);
+    }
+
+    private int countTables() {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM information_schema.tables WHERE table_schema = ?", Integer.class, SCHEMA);
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return String.valueOf(cause.getMessage());
+    }
+}
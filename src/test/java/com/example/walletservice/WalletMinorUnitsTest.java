@@ -0,0 +1,199 @@
+package com.example.walletservice;
+
+import com.example.walletservice.dto.MinorUnitsBalanceResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Режим wallet.money.minor-units=true. Миграция 006 необратима, поэтому тест работает в отдельной схеме
+ * той же БД, которая пересоздаётся перед запуском.
+ */
+@SpringBootTest(properties = {
+        "wallet.money.minor-units=true",
+        "wallet.striping.wallet-ids=" + WalletMinorUnitsTest.STRIPED_ID,
+        "spring.datasource.hikari.schema=" + WalletMinorUnitsTest.SCHEMA,
+        "spring.liquibase.default-schema=" + WalletMinorUnitsTest.SCHEMA
+})
+@AutoConfigureMockMvc
+class WalletMinorUnitsTest extends AbstractPostgresTest {
+
+    static final String SCHEMA = "wallet_minor_units";
+    static final String STRIPED_ID = "00000000-0000-0000-0000-000000000002";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    static void recreateSchema() throws Exception {
+        try (Connection c = DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+             Statement st = c.createStatement()) {
+            st.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            st.execute("CREATE SCHEMA " + SCHEMA);
+        }
+    }
+
+    @Test
+    void migration_shouldStoreBalancesAsBigint() {
+        String type = jdbcTemplate.queryForObject("""
+                SELECT data_type FROM information_schema.columns
+                WHERE table_schema = current_schema() AND table_name = 'wallets' AND column_name = 'balance'
+                """, String.class);
+        assertEquals("bigint", type);
+    }
+
+    @Test
+    void deposit_shouldKeepDecimalWireFormatAndStoreMinorUnits() throws Exception {
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"valletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":1000.5}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"balance\":1000.50")));
+
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"WITHDRAW","amount":"0.500"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(1000.0));
+
+        mockMvc.perform(get("/api/v1/wallets/{id}", WALLET_ID))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"balance\":1000.00")));
+
+        assertEquals(100_000L, jdbcTemplate.queryForObject(
+                "SELECT balance FROM wallets WHERE id = ?", Long.class, WALLET_ID));
+        List<Map<String, Object>> ledger = jdbcTemplate.queryForList(
+                "SELECT delta, balance_after FROM wallet_transactions WHERE wallet_id = ? ORDER BY id DESC LIMIT 2", WALLET_ID);
+        assertEquals(-50L, ledger.get(0).get("delta"));
+        assertEquals(100_050L, ledger.get(1).get("balance_after"));
+    }
+
+    @Test
+    void withdraw_whenInsufficientFunds_shouldReturn409() throws Exception {
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"WITHDRAW","amount":0.01}
+                                """))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errorCode").value("INSUFFICIENT_FUNDS"));
+    }
+
+    @Test
+    void amount_shouldFollowDigitsAndRangeRules() throws Exception {
+        assertValidationError("0.001", "amount: максимум 2 знака после запятой");
+        assertValidationError("100000000000000000", "amount: максимум 2 знака после запятой");
+        assertValidationError("0", "amount должен быть больше 0");
+        assertValidationError("-5", "amount должен быть больше 0");
+        // 17 целых разрядов допустимы, но в копейках не помещаются в long
+        assertValidationError("99999999999999999.99", "amount: значение вне допустимого диапазона");
+
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":"abc"}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("INVALID_VALUE"))
+                .andExpect(jsonPath("$.details.field").value("amount"));
+    }
+
+    @Test
+    void deposit_whenBalanceWouldOverflow_shouldReturn409AndKeepBalance() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO wallets(id, balance) VALUES (?, ?)", walletId, Long.MAX_VALUE - 10);
+
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"%s","operationType":"DEPOSIT","amount":1}
+                                """.formatted(walletId)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errorCode").value("BALANCE_OVERFLOW"))
+                .andExpect(jsonPath("$.details.walletId").value(walletId.toString()));
+
+        assertEquals(Long.MAX_VALUE - 10, jdbcTemplate.queryForObject(
+                "SELECT balance FROM wallets WHERE id = ?", Long.class, walletId));
+    }
+
+    @Test
+    void stripedWallet_shouldBeRejectedInsteadOfMissingSlotFunds() throws Exception {
+        UUID stripedId = UUID.fromString(STRIPED_ID);
+        upsertWallet(stripedId, BigDecimal.ZERO);
+        jdbcTemplate.update("DELETE FROM wallet_slots WHERE wallet_id = ?", stripedId);
+        jdbcTemplate.update("INSERT INTO wallet_slots (wallet_id, slot, balance) VALUES (?, 0, 500)", stripedId);
+
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"%s","operationType":"WITHDRAW","amount":1}
+                                """.formatted(STRIPED_ID)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("STRIPED_WALLET_NOT_SUPPORTED"))
+                .andExpect(jsonPath("$.details.walletId").value(STRIPED_ID));
+
+        mockMvc.perform(get("/api/v1/wallets/{id}", stripedId))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"balance\":5.00")));
+    }
+
+    @Test
+    void balanceResponse_shouldConvertWithoutRawOutput() {
+        // valueToTree пишет в TokenBuffer, который не поддерживает writeRaw
+        for (long minor : new long[]{100_050L, -100_050L, -5L}) {
+            JsonNode node = objectMapper.valueToTree(new MinorUnitsBalanceResponse(WALLET_ID, minor));
+            assertEquals(0, BigDecimal.valueOf(minor, 2).compareTo(node.get("balance").decimalValue()), node.toString());
+        }
+    }
+
+    @Test
+    void idempotencyKey_shouldBeRejected() throws Exception {
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotency-Key", "k-1")
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":1}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("IDEMPOTENCY_KEY_NOT_SUPPORTED"));
+    }
+
+    private void assertValidationError(String amount, String message) throws Exception {
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":%s}
+                                """.formatted(amount)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.details.fieldErrors[0].field").value("amount"))
+                .andExpect(jsonPath("$.details.fieldErrors[0].message").value(message));
+    }
+}
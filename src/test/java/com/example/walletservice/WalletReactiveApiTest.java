@@ -0,0 +1,164 @@
+package com.example.walletservice;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasItems;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive"
+)
+class WalletReactiveApiTest extends AbstractPostgresTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DataSourceProperties dataSource;
+
+    @DynamicPropertySource
+    static void r2dbcProps(DynamicPropertyRegistry registry) {
+        registry.add("wallet.reactive.r2dbc-url", () -> "r2dbc:" + POSTGRES.getJdbcUrl().substring("jdbc:".length()));
+    }
+
+    @Test
+    void depositAndGetBalance_shouldMatchServletContract() {
+        webTestClient.post().uri("/api/v1/wallet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":10}
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.walletId").isEqualTo(WALLET_ID.toString())
+                .jsonPath("$.balance").isEqualTo(10.0);
+
+        webTestClient.get().uri("/api/v1/wallets/{id}", WALLET_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.balance").isEqualTo(10.0);
+    }
+
+    @Test
+    void withdraw_whenInsufficientFunds_shouldReturn409() {
+        upsertWallet(WALLET_ID, new BigDecimal("5.00"));
+
+        webTestClient.post().uri("/api/v1/wallet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"WITHDRAW","amount":6}
+                        """)
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("INSUFFICIENT_FUNDS")
+                .jsonPath("$.details.walletId").isEqualTo(WALLET_ID.toString());
+    }
+
+    @Test
+    void getBalance_whenWalletNotFound_shouldReturn404() {
+        webTestClient.get().uri("/api/v1/wallets/{id}", "00000000-0000-0000-0000-000000000099")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("WALLET_NOT_FOUND");
+    }
+
+    @Test
+    void validationAndInputErrors_shouldUseSameFormat() {
+        webTestClient.post().uri("/api/v1/wallet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":-1}
+                        """)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("VALIDATION_ERROR")
+                .jsonPath("$.details.fieldErrors[0].field").isEqualTo("amount");
+
+        webTestClient.post().uri("/api/v1/wallet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"TRANSFER","amount":1}
+                        """)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("INVALID_VALUE")
+                .jsonPath("$.details.field").isEqualTo("operationType")
+                .jsonPath("$.details.allowedValues").value(hasItems("DEPOSIT", "WITHDRAW"));
+
+        webTestClient.post().uri("/api/v1/wallet")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("INVALID_JSON");
+
+        webTestClient.get().uri("/api/v1/wallets/not-a-uuid")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("INVALID_VALUE")
+                .jsonPath("$.details.parameter").isEqualTo("walletId");
+    }
+
+    @Test
+    void routingErrors_shouldUseSameFormat() {
+        webTestClient.get().uri("/api/v1/wallet")
+                .exchange()
+                .expectStatus().isEqualTo(405)
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("METHOD_NOT_ALLOWED")
+                .jsonPath("$.details.supportedMethods").value(hasItem("POST"));
+
+        webTestClient.get().uri("/api/v1/nope")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.errorCode").isEqualTo("NOT_FOUND");
+    }
+
+    @Test
+    void stripedWallets_shouldFailStartup() {
+        // кошелька нет в БД, поэтому слоты для него не создаются, даже если StripedWalletWriter успеет подняться
+        Exception e = assertThrows(Exception.class, () -> new SpringApplicationBuilder(WalletServiceApplication.class).run(
+                "--spring.main.web-application-type=reactive",
+                "--server.port=0",
+                "--spring.datasource.url=" + dataSource.getUrl(),
+                "--spring.datasource.username=" + dataSource.getUsername(),
+                "--spring.datasource.password=" + dataSource.getPassword(),
+                "--spring.liquibase.enabled=false",
+                "--wallet.reactive.r2dbc-url=r2dbc:" + dataSource.getUrl().substring("jdbc:".length()),
+                "--wallet.striping.wallet-ids=" + UUID.randomUUID()
+        ).close());
+
+        assertTrue(rootMessage(e).contains("wallet.striping.wallet-ids"), rootMessage(e));
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return String.valueOf(cause.getMessage());
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.walletservice;
+
+import com.example.walletservice.api.ReadConsistencyInterceptor;
+import com.example.walletservice.api.WriteLsnAdvice;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Primary и потоковая реплика (pg_basebackup -R) в двух контейнерах. Не наследует AbstractPostgresTest:
+ * primary здесь нужен с разрешённой репликацией и в общей сети с репликой.
+ */
+@Testcontainers
+@SpringBootTest(properties = {
+        "wallet.replicas.max-lag=1s",
+        "wallet.replicas.max-wait=300ms",
+        "wallet.replicas.health-check-interval=PT0.2S"
+})
+@AutoConfigureMockMvc
+class WalletReplicaReadTest {
+
+    private static final Network NETWORK = Network.newNetwork();
+
+    @Container
+    static final PostgreSQLContainer<?> PRIMARY = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("wallet")
+            .withUsername("wallet")
+            .withPassword("wallet")
+            .withNetwork(NETWORK)
+            .withNetworkAliases("primary")
+            .withCopyToContainer(Transferable.of(
+                    "echo 'host replication all all scram-sha-256' >> \"$PGDATA/pg_hba.conf\"\n"),
+                    "/docker-entrypoint-initdb.d/replication.sh");
+
+    @Container
+    static final GenericContainer<?> REPLICA = new GenericContainer<>("postgres:16-alpine")
+            .dependsOn(PRIMARY)
+            .withNetwork(NETWORK)
+            .withEnv("PGPASSWORD", "wallet")
+            .withExposedPorts(5432)
+            .withCreateContainerCmdModifier(cmd -> cmd.withEntrypoint("sh", "-c"))
+            .withCommand("""
+                    mkdir -p /tmp/replica && chown postgres /tmp/replica && chmod 700 /tmp/replica && \
+                    until su-exec postgres pg_basebackup -h primary -U wallet -D /tmp/replica -R -X stream; \
+                    do rm -rf /tmp/replica/*; sleep 1; done && \
+                    exec su-exec postgres postgres -D /tmp/replica""")
+            .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*", 1)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", PRIMARY::getJdbcUrl);
+        registry.add("spring.datasource.username", PRIMARY::getUsername);
+        registry.add("spring.datasource.password", PRIMARY::getPassword);
+        registry.add("spring.liquibase.enabled", () -> true);
+        registry.add("wallet.replicas.urls", WalletReplicaReadTest::replicaJdbcUrl);
+    }
+
+    private static String replicaJdbcUrl() {
+        return "jdbc:postgresql://" + REPLICA.getHost() + ":" + REPLICA.getMappedPort(5432) + "/wallet";
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private final JdbcTemplate replica = new JdbcTemplate(
+            new DriverManagerDataSource(replicaJdbcUrl(), PRIMARY.getUsername(), PRIMARY.getPassword()));
+
+    @AfterEach
+    void resumeReplay() {
+        replica.execute("SELECT pg_wal_replay_resume()");
+    }
+
+    @Test
+    void reads_shouldGoToReplicaAndHonourReadYourWrites() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO wallets (id, balance) VALUES (?, 0)", walletId);
+        awaitCondition(() -> registry.get("wallet.replica.healthy").gauge().value() == 1);
+
+        String lsn = deposit(walletId, "10.00");
+        assertNotNull(lsn);
+
+        double replicaReads = reads("replica");
+        mockMvc.perform(get("/api/v1/wallets/{id}", walletId).header(ReadConsistencyInterceptor.MIN_LSN, lsn))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(10.00));
+        assertEquals(replicaReads + 1, reads("replica"));
+
+        double primaryReads = reads("primary");
+        mockMvc.perform(get("/api/v1/wallets/{id}", walletId).header(ReadConsistencyInterceptor.CONSISTENCY, "primary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(10.00));
+        assertEquals(primaryReads + 1, reads("primary"));
+    }
+
+    @Test
+    void laggingReplica_shouldFallBackToPrimaryAndThenBeExcluded() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO wallets (id, balance) VALUES (?, 0)", walletId);
+        awaitCondition(() -> registry.get("wallet.replica.healthy").gauge().value() == 1);
+        String first = deposit(walletId, "1.00");
+        awaitCondition(() -> replayed(first));
+
+        replica.execute("SELECT pg_wal_replay_pause()");
+        String lsn = deposit(walletId, "2.00");
+
+        // без требований — реплика отдаёт устаревшее значение (в пределах max-lag)
+        mockMvc.perform(get("/api/v1/wallets/{id}", walletId))
+                .andExpect(jsonPath("$.balance").value(1.00));
+
+        // с LSN записи реплика не догоняет за max-wait — чтение уходит на primary
+        double primaryReads = reads("primary");
+        mockMvc.perform(get("/api/v1/wallets/{id}", walletId).header(ReadConsistencyInterceptor.MIN_LSN, lsn))
+                .andExpect(jsonPath("$.balance").value(3.00));
+        assertEquals(primaryReads + 1, reads("primary"));
+
+        // отставание больше max-lag — реплика исключается целиком
+        awaitCondition(() -> registry.get("wallet.replica.healthy").gauge().value() == 0);
+        mockMvc.perform(get("/api/v1/wallets/{id}", walletId))
+                .andExpect(jsonPath("$.balance").value(3.00));
+
+        replica.execute("SELECT pg_wal_replay_resume()");
+        awaitCondition(() -> registry.get("wallet.replica.healthy").gauge().value() == 1);
+    }
+
+    @Test
+    void disconnectedReplica_shouldBeExcludedOncePrimaryMovesOn() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO wallets (id, balance) VALUES (?, 0)", walletId);
+        awaitCondition(() -> registry.get("wallet.replica.healthy").gauge().value() == 1);
+
+        // реплика перестаёт получать WAL: receive LSN = replay LSN, но всё, что пишется на primary, до неё не доходит
+        String conninfo = replica.queryForObject("SHOW primary_conninfo", String.class);
+        replica.execute("ALTER SYSTEM SET primary_conninfo = ''");
+        replica.execute("SELECT pg_reload_conf()");
+        try {
+            awaitCondition(() -> replica.queryForObject("SELECT count(*) FROM pg_stat_wal_receiver", Integer.class) == 0);
+            deposit(walletId, "5.00");
+
+            awaitCondition(() -> registry.get("wallet.replica.healthy").gauge().value() == 0);
+            mockMvc.perform(get("/api/v1/wallets/{id}", walletId))
+                    .andExpect(jsonPath("$.balance").value(5.00));
+        } finally {
+            replica.update("ALTER SYSTEM SET primary_conninfo = '" + conninfo.replace("'", "''") + "'");
+            replica.execute("SELECT pg_reload_conf()");
+        }
+        awaitCondition(() -> registry.get("wallet.replica.healthy").gauge().value() == 1);
+    }
+
+    private String deposit(UUID walletId, String amount) throws Exception {
+        return mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"walletId":"%s","operationType":"DEPOSIT","amount":%s}
+                                """.formatted(walletId, amount)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(WriteLsnAdvice.LSN);
+    }
+
+    private boolean replayed(String lsn) {
+        return Boolean.TRUE.equals(replica.queryForObject(
+                "SELECT pg_last_wal_replay_lsn() >= ?::pg_lsn", Boolean.class, lsn));
+    }
+
+    private double reads(String target) {
+        return registry.get("wallet.replica.reads").tag("target", target).counter().count();
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("условие не выполнено за 20 с");
+            }
+            Thread.sleep(50);
+        }
+    }
+}
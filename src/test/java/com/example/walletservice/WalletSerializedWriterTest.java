@@ -0,0 +1,254 @@
+package com.example.walletservice;
+
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.error.WalletBusyException;
+import com.example.walletservice.grpc.WalletGrpcServer;
+import com.example.walletservice.grpc.v1.OperateRequest;
+import com.example.walletservice.grpc.v1.OperateResponse;
+import com.example.walletservice.grpc.v1.OperateStatus;
+import com.example.walletservice.grpc.v1.WalletApiGrpc;
+import com.example.walletservice.service.WalletService;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+
+import static com.example.walletservice.grpc.v1.OperationType.DEPOSIT;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "wallet.write.mode=serialized",
+        "wallet.write.serialized.max-queue=2",
+        "wallet.write.serialized.timeout=2s",
+        "wallet.write.serialized.stripes=1024",
+        "wallet.grpc.enabled=true",
+        "wallet.grpc.port=0"
+})
+@AutoConfigureMockMvc
+class WalletSerializedWriterTest extends AbstractPostgresTest {
+
+    // в другой полосе, чем WALLET_ID
+    private static final UUID COLD_WALLET_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private WalletGrpcServer grpcServer;
+
+    @Test
+    void hotWallet_shouldHoldOneConnectionAndBoundItsQueue() throws Exception {
+        upsertWallet(COLD_WALLET_ID, BigDecimal.ZERO);
+        double fullBefore = rejected("full");
+        double timeoutBefore = rejected("timeout");
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        Future<?> first;
+        try (Connection lock = jdbcTemplate.getDataSource().getConnection();
+             Statement st = lock.createStatement()) {
+            // строка горячего кошелька заблокирована: первая операция встаёт на блокировке в БД
+            lock.setAutoCommit(false);
+            st.execute("SELECT 1 FROM wallets WHERE id = '" + WALLET_ID + "' FOR UPDATE");
+
+            first = pool.submit(() -> deposit(WALLET_ID));
+            awaitCondition(() -> lockWaiters() == 1);
+
+            // следующие две ждут в JVM, не занимая соединений
+            Future<?> queued1 = pool.submit(() -> deposit(WALLET_ID));
+            Future<?> queued2 = pool.submit(() -> deposit(WALLET_ID));
+            awaitCondition(() -> registry.get("wallet.write.queue.waiting").gauge().value() == 2);
+            assertEquals(1, lockWaiters());
+
+            // очередь полна — отказ сразу
+            mockMvc.perform(post("/api/v1/wallet")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                                    {"walletId":"00000000-0000-0000-0000-000000000001","operationType":"DEPOSIT","amount":1}
+                                    """))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "1"))
+                    .andExpect(jsonPath("$.errorCode").value("WALLET_BUSY"))
+                    .andExpect(jsonPath("$.details.walletId").value(WALLET_ID.toString()));
+
+            // другой кошелёк проходит, пока горячий занят
+            assertEquals(0, BigDecimal.ONE.compareTo(deposit(COLD_WALLET_ID)));
+
+            // ожидавшие в очереди получают отказ по таймауту
+            assertBusy(queued1);
+            assertBusy(queued2);
+
+            lock.commit();
+        } finally {
+            pool.shutdown();
+        }
+
+        first.get(10, TimeUnit.SECONDS);
+        assertEquals(0, BigDecimal.ONE.compareTo(walletService.getBalance(WALLET_ID).balance()));
+        assertEquals(fullBefore + 1, rejected("full"));
+        assertEquals(timeoutBefore + 2, rejected("timeout"));
+    }
+
+    @Test
+    void idempotentOperation_shouldWaitInWalletQueue() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<?> first;
+        Future<?> keyed;
+        try (Connection lock = jdbcTemplate.getDataSource().getConnection();
+             Statement st = lock.createStatement()) {
+            lock.setAutoCommit(false);
+            st.execute("SELECT 1 FROM wallets WHERE id = '" + WALLET_ID + "' FOR UPDATE");
+
+            first = pool.submit(() -> deposit(WALLET_ID));
+            awaitCondition(() -> lockWaiters() == 1);
+
+            // операция с ключом ждёт в очереди кошелька, а не на блокировке строки с занятым соединением
+            keyed = pool.submit(() -> walletService.operate(
+                    new WalletOperationRequest(WALLET_ID, OperationType.DEPOSIT, BigDecimal.ONE), "serialized-key-1"));
+            awaitCondition(() -> registry.get("wallet.write.queue.waiting").gauge().value() == 1);
+            assertEquals(1, lockWaiters());
+
+            lock.commit();
+        } finally {
+            pool.shutdown();
+        }
+
+        first.get(10, TimeUnit.SECONDS);
+        keyed.get(10, TimeUnit.SECONDS);
+        assertEquals(0, BigDecimal.valueOf(2).compareTo(walletService.getBalance(WALLET_ID).balance()));
+    }
+
+    @Test
+    void operateStream_shouldWaitInWalletQueue() throws Exception {
+        ManagedChannel channel = Grpc.newChannelBuilderForAddress(
+                "localhost", grpcServer.getPort(), InsecureChannelCredentials.create()).build();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        CompletableFuture<OperateResponse> streamed = new CompletableFuture<>();
+        Future<?> first;
+        try (Connection lock = jdbcTemplate.getDataSource().getConnection();
+             Statement st = lock.createStatement()) {
+            lock.setAutoCommit(false);
+            st.execute("SELECT 1 FROM wallets WHERE id = '" + WALLET_ID + "' FOR UPDATE");
+
+            first = pool.submit(() -> deposit(WALLET_ID));
+            awaitCondition(() -> lockWaiters() == 1);
+
+            // операция из OperateStream идёт через очередь кошелька, а не пачкой мимо неё
+            StreamObserver<OperateRequest> requests = WalletApiGrpc.newStub(channel).operateStream(new StreamObserver<>() {
+                @Override
+                public void onNext(OperateResponse response) {
+                    streamed.complete(response);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    streamed.completeExceptionally(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                }
+            });
+            requests.onNext(OperateRequest.newBuilder()
+                    .setWalletId(WALLET_ID.toString())
+                    .setOperationType(DEPOSIT)
+                    .setAmount("1")
+                    .build());
+            requests.onCompleted();
+            awaitCondition(() -> registry.get("wallet.write.queue.waiting").gauge().value() == 1);
+            assertEquals(1, lockWaiters());
+
+            lock.commit();
+        } finally {
+            pool.shutdown();
+        }
+
+        first.get(10, TimeUnit.SECONDS);
+        assertEquals(OperateStatus.UPDATED, streamed.get(10, TimeUnit.SECONDS).getStatus());
+        assertEquals(0, BigDecimal.valueOf(2).compareTo(walletService.getBalance(WALLET_ID).balance()));
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void concurrentDeposits_shouldNotLoseUpdates() throws Exception {
+        // 1 выполняется + 1 ждёт: с запасом до max-queue (счётчик ожидающих на мгновение включает
+        // поток, который уже получил разрешение) — отказов быть не должно
+        int threads = 2;
+        int perThreadOps = 30;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThreadOps; i++) {
+                    deposit(WALLET_ID);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(0, BigDecimal.valueOf(threads * perThreadOps)
+                .compareTo(walletService.getBalance(WALLET_ID).balance()));
+    }
+
+    private BigDecimal deposit(UUID walletId) {
+        return walletService.operate(new WalletOperationRequest(walletId, OperationType.DEPOSIT, BigDecimal.ONE)).balance();
+    }
+
+    private int lockWaiters() {
+        return jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM pg_stat_activity
+                WHERE wait_event_type = 'Lock' AND datname = current_database()
+                """, Integer.class);
+    }
+
+    private double rejected(String reason) {
+        return registry.get("wallet.write.queue.rejected").tag("reason", reason).counter().count();
+    }
+
+    private static void assertBusy(Future<?> future) throws Exception {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(WalletBusyException.class, e.getCause());
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("условие не выполнилось за 10 секунд");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.walletservice;
+
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.error.InsufficientFundsException;
+import com.example.walletservice.error.StripedWalletNotSupportedException;
+import com.example.walletservice.service.StripedWalletWriter;
+import com.example.walletservice.service.WalletService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "wallet.striping.wallet-ids=00000000-0000-0000-0000-000000000002",
+        "wallet.striping.slots=4"
+})
+class WalletStripingTest extends AbstractPostgresTest {
+
+    private static final UUID STRIPED_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private StripedWalletWriter stripedWriter;
+
+    @BeforeEach
+    void setUpStripedWallet() {
+        jdbcTemplate.update("DELETE FROM wallet_slots");
+        upsertWallet(STRIPED_ID, new BigDecimal("10.00"));
+        stripedWriter.ensureSlots(STRIPED_ID);
+    }
+
+    @Test
+    void withdraw_largerThanAnySlot_shouldSweepSeveralSlots() {
+        for (int i = 0; i < 8; i++) {
+            walletService.operate(new WalletOperationRequest(STRIPED_ID, OperationType.DEPOSIT, new BigDecimal("5")));
+        }
+        assertEquals(0, new BigDecimal("50.00").compareTo(walletService.getBalance(STRIPED_ID).balance()));
+
+        var result = walletService.operate(new WalletOperationRequest(STRIPED_ID, OperationType.WITHDRAW, new BigDecimal("45")));
+        assertEquals(0, new BigDecimal("5.00").compareTo(result.balance()));
+
+        assertThrows(InsufficientFundsException.class, () -> walletService.operate(
+                new WalletOperationRequest(STRIPED_ID, OperationType.WITHDRAW, new BigDecimal("6"))));
+        assertEquals(0, new BigDecimal("5.00").compareTo(walletService.getBalance(STRIPED_ID).balance()));
+    }
+
+    @Test
+    void batchAndIdempotencyKey_shouldRejectStripedWallet() {
+        walletService.operate(new WalletOperationRequest(STRIPED_ID, OperationType.DEPOSIT, new BigDecimal("5")));
+
+        assertThrows(StripedWalletNotSupportedException.class, () -> walletService.operateBatch(List.of(
+                new WalletOperationRequest(WALLET_ID, OperationType.DEPOSIT, BigDecimal.ONE),
+                new WalletOperationRequest(STRIPED_ID, OperationType.WITHDRAW, new BigDecimal("12")))));
+        assertThrows(StripedWalletNotSupportedException.class, () -> walletService.operate(
+                new WalletOperationRequest(STRIPED_ID, OperationType.WITHDRAW, new BigDecimal("12")), "striped-key"));
+
+        // пачка отклонена целиком, ничего не применено
+        assertEquals(0, BigDecimal.ZERO.compareTo(walletService.getBalance(WALLET_ID).balance()));
+        assertEquals(0, new BigDecimal("15.00").compareTo(walletService.getBalance(STRIPED_ID).balance()));
+    }
+
+    @Test
+    void concurrentMixedOperations_shouldConserveBalance() throws Exception {
+        int threads = 16;
+        int perThreadOps = 25;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger deposits = new AtomicInteger();
+        AtomicInteger withdrawals = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            boolean deposit = t % 2 == 0;
+            futures.add(pool.submit(() -> {
+                await(start);
+                for (int i = 0; i < perThreadOps; i++) {
+                    try {
+                        walletService.operate(new WalletOperationRequest(
+                                STRIPED_ID,
+                                deposit ? OperationType.DEPOSIT : OperationType.WITHDRAW,
+                                deposit ? BigDecimal.ONE : new BigDecimal("3")
+                        ));
+                        (deposit ? deposits : withdrawals).incrementAndGet();
+                    } catch (InsufficientFundsException ignored) {
+                        // ожидаемо при нехватке средств
+                    }
+                }
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(60, TimeUnit.SECONDS);
+        }
+
+        pool.shutdown();
+
+        BigDecimal expected = new BigDecimal("10.00")
+                .add(BigDecimal.valueOf(deposits.get()))
+                .subtract(BigDecimal.valueOf(3L * withdrawals.get()));
+
+        assertEquals(0, expected.compareTo(walletService.getBalance(STRIPED_ID).balance()));
+        Integer negativeSlots = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM wallet_slots WHERE balance < 0", Integer.class);
+        assertEquals(0, negativeSlots);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.walletservice;
+
+import com.example.walletservice.dto.WalletTransferRequest;
+import com.example.walletservice.error.InsufficientFundsException;
+import com.example.walletservice.service.WalletService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class WalletTransferTest extends AbstractPostgresTest {
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void transfer_shouldMoveFundsAtomicallyAndJournalBothSides() throws Exception {
+        UUID from = UUID.randomUUID();
+        UUID to = UUID.randomUUID();
+        upsertWallet(from, new BigDecimal("100.00"));
+        upsertWallet(to, new BigDecimal("5.00"));
+
+        mockMvc.perform(post("/api/v1/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(from, to, "30.50")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fromWalletId").value(from.toString()))
+                .andExpect(jsonPath("$.fromBalance").value(69.50))
+                .andExpect(jsonPath("$.toWalletId").value(to.toString()))
+                .andExpect(jsonPath("$.toBalance").value(35.50));
+
+        assertEquals(0, new BigDecimal("-30.50").compareTo(ledgerSum(from)));
+        assertEquals(0, new BigDecimal("30.50").compareTo(ledgerSum(to)));
+    }
+
+    @Test
+    void transfer_shouldReportNotFoundAndInsufficientFundsWithoutSideEffects() throws Exception {
+        UUID from = UUID.randomUUID();
+        UUID to = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        upsertWallet(from, new BigDecimal("10.00"));
+        upsertWallet(to, BigDecimal.ZERO);
+
+        mockMvc.perform(post("/api/v1/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(from, to, "10.01")))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.errorCode").value("INSUFFICIENT_FUNDS"))
+                .andExpect(jsonPath("$.details.walletId").value(from.toString()));
+
+        mockMvc.perform(post("/api/v1/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(from, missing, "1.00")))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.errorCode").value("WALLET_NOT_FOUND"))
+                .andExpect(jsonPath("$.details.walletId").value(missing.toString()));
+
+        mockMvc.perform(post("/api/v1/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(missing, to, "1.00")))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.details.walletId").value(missing.toString()));
+
+        mockMvc.perform(post("/api/v1/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body(from, from, "1.00")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errorCode").value("VALIDATION_ERROR"));
+
+        assertEquals(0, new BigDecimal("10.00").compareTo(balance(from)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(balance(to)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(ledgerSum(from)));
+    }
+
+    @Test
+    void crossingTransfers_shouldNotDeadlockAndShouldConserveTotal() throws Exception {
+        List<UUID> wallets = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        for (UUID id : wallets) {
+            upsertWallet(id, new BigDecimal("100.00"));
+        }
+
+        int threads = 12;
+        int perThread = 150; // итого 1800 переводов по трём кошелькам: A->B, B->A, B->C, C->A, ...
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                var random = ThreadLocalRandom.current();
+                int rejected = 0;
+                for (int i = 0; i < perThread; i++) {
+                    // половина потоков ходит «по кругу» вперёд, половина — назад
+                    int a = (seed + i) % wallets.size();
+                    int b = (seed % 2 == 0) ? (a + 1) % wallets.size() : (a + wallets.size() - 1) % wallets.size();
+                    var amount = BigDecimal.valueOf(random.nextInt(1, 4000), 2);
+                    try {
+                        walletService.transfer(new WalletTransferRequest(wallets.get(a), wallets.get(b), amount));
+                    } catch (InsufficientFundsException e) {
+                        rejected++;
+                    }
+                }
+                return rejected;
+            }));
+        }
+
+        start.countDown();
+        for (Future<Integer> f : futures) {
+            f.get(120, TimeUnit.SECONDS); // дедлок в Postgres пришёл бы сюда как ExecutionException
+        }
+        pool.shutdown();
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (UUID id : wallets) {
+            BigDecimal balance = balance(id);
+            assertTrue(balance.signum() >= 0, "отрицательный баланс " + id);
+            assertEquals(0, balance.subtract(new BigDecimal("100.00")).compareTo(ledgerSum(id)), "журнал " + id);
+            total = total.add(balance);
+        }
+        assertEquals(0, new BigDecimal("300.00").compareTo(total));
+    }
+
+    private static String body(UUID from, UUID to, String amount) {
+        return """
+                {"fromWalletId":"%s","toWalletId":"%s","amount":%s}
+                """.formatted(from, to, amount);
+    }
+
+    private BigDecimal balance(UUID id) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM wallets WHERE id = ?", BigDecimal.class, id);
+    }
+
+    private BigDecimal ledgerSum(UUID id) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(sum(delta), 0) FROM wallet_transactions WHERE wallet_id = ?", BigDecimal.class, id);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.walletservice;
+
+import com.example.walletservice.domain.OperationType;
+import com.example.walletservice.dto.WalletOperationRequest;
+import com.example.walletservice.persistence.ConcurrencyLimitedDataSource;
+import com.example.walletservice.service.WalletService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.threads.virtual.enabled=true",
+        "wallet.db.max-concurrency=4",
+        "wallet.db.acquire-timeout=30s"
+})
+class WalletVirtualThreadsTest extends AbstractPostgresTest {
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void manyVirtualThreads_shouldShareBoundedDbConcurrency() throws Exception {
+        ConcurrencyLimitedDataSource limited = assertInstanceOf(ConcurrencyLimitedDataSource.class, dataSource);
+        HikariDataSource pool = limited.unwrap(HikariDataSource.class);
+
+        // соединения, выданные пулом (т.е. удерживаемые запросами), опрашиваются всё время нагрузки
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger peakActive = new AtomicInteger();
+        Thread sampler = Thread.ofPlatform().start(() -> {
+            while (running.get()) {
+                peakActive.accumulateAndGet(pool.getHikariPoolMXBean().getActiveConnections(), Math::max);
+            }
+        });
+
+        int requests = 1000;
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                futures.add(executor.submit(() -> walletService.operate(new WalletOperationRequest(
+                        WALLET_ID,
+                        OperationType.DEPOSIT,
+                        BigDecimal.ONE
+                ))));
+            }
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            running.set(false);
+            sampler.join();
+        }
+
+        assertEquals(new BigDecimal("1000.00"), walletService.getBalance(WALLET_ID).balance());
+        assertTrue(peakActive.get() <= 4, "одновременно выдано соединений: " + peakActive.get());
+        assertEquals(4, limited.availablePermits());
+    }
+
+    @Test
+    void connectionHolders_shouldNeverExceedMaxConcurrency() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                futures.add(executor.submit(() -> {
+                    try (Connection c = dataSource.getConnection()) {
+                        peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        try {
+                            c.createStatement().execute("SELECT pg_sleep(0.005)");
+                        } finally {
+                            inFlight.decrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        }
+
+        // предел достигнут, но не превышен
+        assertEquals(4, peak.get());
+    }
+}